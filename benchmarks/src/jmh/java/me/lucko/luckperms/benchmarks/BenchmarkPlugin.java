@@ -0,0 +1,243 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.benchmarks;
+
+import me.lucko.luckperms.common.cacheddata.CacheDependencyIndex;
+import me.lucko.luckperms.common.cacheddata.CacheMetadata;
+import me.lucko.luckperms.common.calculator.CalculatorFactory;
+import me.lucko.luckperms.common.calculator.PermissionCalculator;
+import me.lucko.luckperms.common.calculator.processor.DirectProcessor;
+import me.lucko.luckperms.common.calculator.processor.PermissionProcessor;
+import me.lucko.luckperms.common.calculator.processor.RegexProcessor;
+import me.lucko.luckperms.common.calculator.processor.TrieWildcardProcessor;
+import me.lucko.luckperms.common.calculator.processor.WildcardProcessor;
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.config.LuckPermsConfiguration;
+import me.lucko.luckperms.common.config.generic.adapter.StringBasedConfigurationAdapter;
+import me.lucko.luckperms.common.event.AbstractEventBus;
+import me.lucko.luckperms.common.event.EventDispatcher;
+import me.lucko.luckperms.common.inheritance.InheritanceGraphFactory;
+import me.lucko.luckperms.common.model.manager.group.StandardGroupManager;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.plugin.bootstrap.LuckPermsBootstrap;
+import me.lucko.luckperms.common.plugin.scheduler.SchedulerAdapter;
+import me.lucko.luckperms.common.plugin.scheduler.SchedulerTask;
+import me.lucko.luckperms.common.treeview.PermissionRegistry;
+import me.lucko.luckperms.common.verbose.VerboseHandler;
+import net.luckperms.api.platform.Platform;
+import net.luckperms.api.query.QueryOptions;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A minimal in-process {@link LuckPermsPlugin}, wired up with the real
+ * implementations of everything the permission/meta pipeline touches.
+ *
+ * <p>The plugin and bootstrap are dynamic proxies; calls to any service which
+ * hasn't been registered fail fast with an {@link UnsupportedOperationException}.</p>
+ */
+final class BenchmarkPlugin implements InvocationHandler {
+
+    /**
+     * Creates a new plugin instance.
+     *
+     * @param config configuration values to use in place of the defaults
+     * @return the plugin
+     */
+    static LuckPermsPlugin create(Map<String, String> config) {
+        BenchmarkPlugin handler = new BenchmarkPlugin();
+        LuckPermsPlugin plugin = proxy(LuckPermsPlugin.class, handler);
+
+        Path dataDirectory;
+        try {
+            dataDirectory = Files.createTempDirectory("luckperms-benchmarks");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        BenchmarkPlugin bootstrap = new BenchmarkPlugin();
+        bootstrap.services.put("getType", Platform.Type.STANDALONE);
+        bootstrap.services.put("getDataDirectory", dataDirectory);
+        bootstrap.services.put("getConfigDirectory", dataDirectory);
+        bootstrap.services.put("getScheduler", new InlineScheduler());
+        handler.services.put("getBootstrap", proxy(LuckPermsBootstrap.class, bootstrap));
+
+        LuckPermsConfiguration configuration = new LuckPermsConfiguration(plugin, new MapConfigAdapter(plugin, config));
+        handler.services.put("getConfiguration", configuration);
+        handler.services.put("getEventDispatcher", new EventDispatcher(new NoopEventBus(plugin)));
+        handler.services.put("getGroupManager", new StandardGroupManager(plugin));
+        handler.services.put("getInheritanceGraphFactory", new InheritanceGraphFactory(plugin));
+        handler.services.put("getCacheDependencyIndex", new CacheDependencyIndex());
+        handler.services.put("getPermissionRegistry", new PermissionRegistry());
+        handler.services.put("getVerboseHandler", new VerboseHandler(new InlineScheduler()));
+        handler.services.put("getCalculatorFactory", new BenchmarkCalculatorFactory(plugin, configuration));
+        return plugin;
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(BenchmarkPlugin.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private final Map<String, Object> services = new HashMap<>();
+
+    private BenchmarkPlugin() {
+
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return method.getDeclaringClass().getSimpleName() + "(benchmark)";
+        }
+
+        Object service = this.services.get(method.getName());
+        if (service == null) {
+            throw new UnsupportedOperationException(method.getDeclaringClass().getSimpleName() + "#" + method.getName());
+        }
+        return service;
+    }
+
+    /**
+     * Mirrors the calculator setup used by the standalone platform.
+     */
+    private static final class BenchmarkCalculatorFactory implements CalculatorFactory {
+        private final LuckPermsPlugin plugin;
+        private final LuckPermsConfiguration configuration;
+
+        BenchmarkCalculatorFactory(LuckPermsPlugin plugin, LuckPermsConfiguration configuration) {
+            this.plugin = plugin;
+            this.configuration = configuration;
+        }
+
+        @Override
+        public PermissionCalculator build(QueryOptions queryOptions, CacheMetadata metadata) {
+            List<PermissionProcessor> processors = new ArrayList<>(4);
+
+            processors.add(new DirectProcessor());
+
+            if (this.configuration.get(ConfigKeys.APPLYING_REGEX)) {
+                processors.add(new RegexProcessor(this.configuration.get(ConfigKeys.REGEX_PREFIX_FILTERING)));
+            }
+
+            if (this.configuration.get(ConfigKeys.APPLYING_WILDCARDS)) {
+                processors.add(this.configuration.get(ConfigKeys.TRIE_WILDCARD_RESOLUTION) ? new TrieWildcardProcessor() : new WildcardProcessor());
+            }
+
+            return new PermissionCalculator(this.plugin, metadata, processors);
+        }
+    }
+
+    private static final class MapConfigAdapter extends StringBasedConfigurationAdapter {
+        private final LuckPermsPlugin plugin;
+        private final Map<String, String> values;
+
+        MapConfigAdapter(LuckPermsPlugin plugin, Map<String, String> values) {
+            this.plugin = plugin;
+            this.values = values;
+        }
+
+        @Override
+        protected @Nullable String resolveValue(String path) {
+            return this.values.get(path);
+        }
+
+        @Override
+        public LuckPermsPlugin getPlugin() {
+            return this.plugin;
+        }
+
+        @Override
+        public void reload() {
+
+        }
+    }
+
+    private static final class NoopEventBus extends AbstractEventBus<Object> {
+        NoopEventBus(LuckPermsPlugin plugin) {
+            super(plugin, null);
+        }
+
+        @Override
+        protected Object checkPlugin(Object plugin) throws IllegalArgumentException {
+            return plugin;
+        }
+    }
+
+    /**
+     * Runs all tasks on the calling thread, and never schedules anything.
+     */
+    private static final class InlineScheduler implements SchedulerAdapter {
+        private static final Executor INLINE = Runnable::run;
+
+        @Override
+        public Executor async() {
+            return INLINE;
+        }
+
+        @Override
+        public Executor sync() {
+            return INLINE;
+        }
+
+        @Override
+        public SchedulerTask asyncLater(Runnable task, long delay, TimeUnit unit) {
+            return () -> {};
+        }
+
+        @Override
+        public SchedulerTask asyncRepeating(Runnable task, long interval, TimeUnit unit) {
+            return () -> {};
+        }
+
+        @Override
+        public void shutdownScheduler() {
+
+        }
+
+        @Override
+        public void shutdownExecutor() {
+
+        }
+    }
+}
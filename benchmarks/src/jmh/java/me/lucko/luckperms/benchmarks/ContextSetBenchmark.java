@@ -0,0 +1,106 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.benchmarks;
+
+import me.lucko.luckperms.common.context.ImmutableContextSetImpl;
+import net.luckperms.api.context.ContextSatisfyMode;
+import net.luckperms.api.context.ImmutableContextSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks building, hashing and comparing {@link ImmutableContextSetImpl}s,
+ * which are used as map keys throughout the cached data and node maps.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ContextSetBenchmark {
+    private static final int KEYS = 64;
+
+    /** The number of contexts in each set */
+    @Param({"1", "4", "16"})
+    public int contexts;
+
+    private Map<ImmutableContextSet, Integer> map;
+    private ImmutableContextSet[] lookups;
+    private ImmutableContextSet superset;
+    private ImmutableContextSet subset;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.map = new HashMap<>();
+        this.lookups = new ImmutableContextSet[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            this.map.put(build(i), i);
+            // an equal, but not identical, instance
+            this.lookups[i] = build(i);
+        }
+
+        ImmutableContextSetImpl.BuilderImpl builder = new ImmutableContextSetImpl.BuilderImpl();
+        for (int i = 0; i < this.contexts; i++) {
+            builder.add("key" + i, "value" + i);
+            builder.add("key" + i, "other" + i);
+        }
+        this.superset = builder.build();
+        this.subset = build(0);
+    }
+
+    private ImmutableContextSet build(int seed) {
+        ImmutableContextSetImpl.BuilderImpl builder = new ImmutableContextSetImpl.BuilderImpl();
+        for (int i = 0; i < this.contexts; i++) {
+            builder.add("key" + i, i == 0 ? "value" + seed : "value" + i);
+        }
+        return builder.build();
+    }
+
+    @Benchmark
+    public int buildAndHash() {
+        return build(this.index++ & (KEYS - 1)).hashCode();
+    }
+
+    @Benchmark
+    public Integer mapLookup() {
+        return this.map.get(this.lookups[this.index++ & (KEYS - 1)]);
+    }
+
+    @Benchmark
+    public boolean satisfies() {
+        return this.subset.isSatisfiedBy(this.superset, ContextSatisfyMode.AT_LEAST_ONE_VALUE_PER_KEY);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.benchmarks;
+
+import me.lucko.luckperms.common.model.User;
+import me.lucko.luckperms.common.model.nodemap.NodeMapMutable;
+import me.lucko.luckperms.common.node.types.Permission;
+import me.lucko.luckperms.common.util.Difference;
+import net.luckperms.api.model.data.DataType;
+import net.luckperms.api.node.Node;
+import net.luckperms.api.node.types.PermissionNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks adding nodes to a {@link NodeMapMutable}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NodeMapBenchmark {
+
+    /** The number of nodes to add */
+    @Param({"25", "250"})
+    public int nodes;
+
+    /** The number of distinct server contexts nodes are spread over */
+    @Param({"0", "4"})
+    public int contexts;
+
+    private User holder;
+    private Node[] toAdd;
+    private NodeMapMutable populated;
+    private Node extra;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.holder = new SyntheticWorld(1, 1, 1, this.contexts).getUser();
+
+        this.toAdd = new Node[this.nodes];
+        for (int i = 0; i < this.nodes; i++) {
+            PermissionNode.Builder builder = Permission.builder().permission("bench.perm" + i);
+            int bucket = i % (this.contexts + 1);
+            if (bucket != this.contexts) {
+                builder.withContext("server", "server" + bucket);
+            }
+            this.toAdd[i] = builder.build();
+        }
+
+        this.populated = new NodeMapMutable(this.holder, DataType.NORMAL);
+        for (Node node : this.toAdd) {
+            this.populated.add(node);
+        }
+        this.extra = Permission.builder().permission("bench.extra").build();
+    }
+
+    /**
+     * Adds {@link #nodes} nodes to an empty map.
+     */
+    @Benchmark
+    public NodeMapMutable fill() {
+        NodeMapMutable map = new NodeMapMutable(this.holder, DataType.NORMAL);
+        for (Node node : this.toAdd) {
+            map.add(node);
+        }
+        return map;
+    }
+
+    /**
+     * Adds then removes a single node from a map which already holds {@link #nodes} nodes.
+     */
+    @Benchmark
+    public Difference<Node> addRemove() {
+        this.populated.add(this.extra);
+        return this.populated.remove(this.extra);
+    }
+}
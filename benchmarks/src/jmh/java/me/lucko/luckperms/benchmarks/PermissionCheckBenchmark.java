@@ -0,0 +1,130 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.benchmarks;
+
+import me.lucko.luckperms.common.cacheddata.result.TristateResult;
+import me.lucko.luckperms.common.cacheddata.type.PermissionCache;
+import me.lucko.luckperms.common.model.User;
+import me.lucko.luckperms.common.node.types.Permission;
+import me.lucko.luckperms.common.verbose.event.CheckOrigin;
+import net.luckperms.api.context.Context;
+import net.luckperms.api.node.Node;
+import net.luckperms.api.node.types.PermissionNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks permission checks against a user in a {@link SyntheticWorld}.
+ *
+ * <ul>
+ *     <li><b>warmCheck</b> - a check answered by the calculator's lookup cache</li>
+ *     <li><b>coldCheck</b> - a check which misses the lookup cache and runs every processor</li>
+ *     <li><b>checkAfterInvalidation</b> - a check after the user's cached data was invalidated,
+ *     including the rebuild of the permission cache</li>
+ *     <li><b>checkAfterNodeChange</b> - a check after a permission node was added to or removed
+ *     from the user</li>
+ *     <li><b>concurrentWarmCheck</b> - warm checks from several threads at once</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PermissionCheckBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Checks {
+        private static final String TOGGLE_PERMISSION = "user.toggle";
+
+        private User user;
+        private Node toggleNode;
+        private boolean toggled;
+
+        @Setup(Level.Trial)
+        public void setup(WorldState state) {
+            SyntheticWorld world = state.world;
+            this.user = world.getUser();
+
+            // toggles an override of a permission the user already has, in the context being queried
+            world.addUserNode(Permission.builder().permission(TOGGLE_PERMISSION).build());
+            PermissionNode.Builder toggle = Permission.builder().permission(TOGGLE_PERMISSION).value(false);
+            for (Context context : world.getQueryOptions().context()) {
+                toggle.withContext(context.getKey(), context.getValue());
+            }
+            this.toggleNode = toggle.build();
+
+            // populate the lookup cache
+            PermissionCache cache = permissionData(world);
+            for (int i = 0; i < 1024; i++) {
+                cache.checkPermission(world.samplePermission(i), CheckOrigin.PLATFORM_API_HAS_PERMISSION);
+            }
+        }
+    }
+
+    private static PermissionCache permissionData(SyntheticWorld world) {
+        return world.getUser().getCachedData().getPermissionData(world.getQueryOptions());
+    }
+
+    @Benchmark
+    public TristateResult warmCheck(WorldState state, WorldState.Cursor cursor, Checks checks) {
+        return permissionData(state.world).checkPermission(cursor.next(state.world), CheckOrigin.PLATFORM_API_HAS_PERMISSION);
+    }
+
+    @Benchmark
+    public TristateResult coldCheck(WorldState state, WorldState.Cursor cursor, Checks checks) {
+        return permissionData(state.world).getCalculator().apply(cursor.next(state.world));
+    }
+
+    @Benchmark
+    public TristateResult checkAfterInvalidation(WorldState state, WorldState.Cursor cursor, Checks checks) {
+        checks.user.getCachedData().invalidate();
+        return permissionData(state.world).checkPermission(cursor.next(state.world), CheckOrigin.PLATFORM_API_HAS_PERMISSION);
+    }
+
+    @Benchmark
+    public TristateResult checkAfterNodeChange(WorldState state, Checks checks) {
+        if (checks.toggled) {
+            state.world.removeUserNode(checks.toggleNode);
+        } else {
+            state.world.addUserNode(checks.toggleNode);
+        }
+        checks.toggled = !checks.toggled;
+        return permissionData(state.world).checkPermission(Checks.TOGGLE_PERMISSION, CheckOrigin.PLATFORM_API_HAS_PERMISSION);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public TristateResult concurrentWarmCheck(WorldState state, WorldState.Cursor cursor, Checks checks) {
+        return permissionData(state.world).checkPermission(cursor.next(state.world), CheckOrigin.PLATFORM_API_HAS_PERMISSION);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.benchmarks;
+
+import me.lucko.luckperms.common.cacheddata.result.TristateResult;
+import me.lucko.luckperms.common.calculator.processor.RegexProcessor;
+import me.lucko.luckperms.common.node.factory.NodeBuilders;
+import net.luckperms.api.node.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the linear scan performed by {@link RegexProcessor} with the
+ * literal prefix filtering mode.
+ *
+ * <p>Each check is a lookup cache miss in a real calculator, so the processor
+ * is invoked directly.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RegexProcessorBenchmark {
+
+    @Param({"10", "50", "200"})
+    public int patterns;
+
+    @Param({"false", "true"})
+    public boolean prefixFiltering;
+
+    private RegexProcessor processor;
+    private String[] permissions;
+    private int index;
+
+    @Setup
+    public void setup() {
+        Map<String, Node> source = new HashMap<>();
+        for (int i = 0; i < this.patterns; i++) {
+            String key = "r=plugin" + i + "\\.(kit|warp)\\.[a-z]+\\d*";
+            source.put(key, NodeBuilders.determineMostApplicable(key).value(i % 2 == 0).build());
+        }
+
+        this.processor = new RegexProcessor(this.prefixFiltering);
+        this.processor.setSource(source);
+        this.processor.refresh();
+
+        // a mix of matching and non-matching permissions
+        this.permissions = new String[64];
+        for (int i = 0; i < this.permissions.length; i++) {
+            switch (i % 4) {
+                case 0:
+                    this.permissions[i] = "plugin" + (i % this.patterns) + ".kit.starter" + i;
+                    break;
+                case 1:
+                    this.permissions[i] = "plugin" + (i % this.patterns) + ".home.set";
+                    break;
+                case 2:
+                    this.permissions[i] = "essentials.warp.spawn" + i;
+                    break;
+                default:
+                    this.permissions[i] = "minecraft.command.gamemode";
+                    break;
+            }
+        }
+    }
+
+    @Benchmark
+    public TristateResult check() {
+        String permission = this.permissions[this.index++ & (this.permissions.length - 1)];
+        return this.processor.hasPermission(TristateResult.UNDEFINED, permission);
+    }
+}
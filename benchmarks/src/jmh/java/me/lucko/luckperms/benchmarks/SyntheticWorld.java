@@ -0,0 +1,182 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.benchmarks;
+
+import me.lucko.luckperms.common.context.ImmutableContextSetImpl;
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.User;
+import me.lucko.luckperms.common.node.types.Inheritance;
+import me.lucko.luckperms.common.node.types.Meta;
+import me.lucko.luckperms.common.node.types.Permission;
+import me.lucko.luckperms.common.node.types.Prefix;
+import me.lucko.luckperms.common.node.types.Weight;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.query.QueryOptionsImpl;
+import net.luckperms.api.context.ImmutableContextSet;
+import net.luckperms.api.model.data.DataType;
+import net.luckperms.api.node.Node;
+import net.luckperms.api.node.types.PermissionNode;
+import net.luckperms.api.query.QueryOptions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * A synthetic set of groups and a user, built in-process for the benchmarks.
+ *
+ * <p>The {@code groups} groups are arranged into inheritance chains which are
+ * {@code depth} groups long, and the user inherits from the head of each chain.
+ * Each holder has {@code nodes} permission nodes, spread evenly over the global
+ * context and {@code contexts} different server contexts, as well as a weight,
+ * a prefix and a meta node.</p>
+ *
+ * <p>The world is queried in the {@code server=server0} context, so nodes set
+ * in the other server contexts are filtered out during resolution.</p>
+ */
+public final class SyntheticWorld {
+    private static final int SAMPLE_SIZE = 1024;
+
+    private final LuckPermsPlugin plugin;
+    private final List<Group> groups;
+    private final User user;
+    private final QueryOptions queryOptions;
+    private final String[] samplePermissions;
+
+    public SyntheticWorld(int groups, int depth, int nodes, int contexts) {
+        this(groups, depth, nodes, contexts, Collections.emptyMap());
+    }
+
+    public SyntheticWorld(int groups, int depth, int nodes, int contexts, Map<String, String> config) {
+        if (groups < 1 || depth < 1 || nodes < 1 || contexts < 0) {
+            throw new IllegalArgumentException("groups=" + groups + ", depth=" + depth + ", nodes=" + nodes + ", contexts=" + contexts);
+        }
+
+        this.plugin = BenchmarkPlugin.create(config);
+        this.groups = new ArrayList<>(groups);
+        this.user = new User(new UUID(0, 0), this.plugin);
+
+        for (int i = 0; i < groups; i++) {
+            Group group = this.plugin.getGroupManager().getOrMake("group" + i);
+            group.normalData().add(Weight.builder(i).build());
+            group.normalData().add(Prefix.builder("[group" + i + "] ", i).build());
+            group.normalData().add(Meta.builder("key" + (i % 8), "group" + i).build());
+            group.normalData().add(Permission.builder().permission("group" + i + ".wildcard.*").build());
+            for (int n = 0; n < nodes; n++) {
+                group.normalData().add(permission("group" + i + ".perm" + n, n % 5 != 0, n, contexts));
+            }
+
+            // the first group in each chain is inherited by the user, the rest by the previous group
+            if (i % depth == 0) {
+                this.user.normalData().add(Inheritance.builder().group(group.getName()).build());
+            } else {
+                this.groups.get(i - 1).normalData().add(Inheritance.builder().group(group.getName()).build());
+            }
+            this.groups.add(group);
+        }
+
+        for (int n = 0; n < nodes; n++) {
+            this.user.normalData().add(permission("user.perm" + n, n % 3 != 0, n, contexts));
+        }
+
+        ImmutableContextSet context = contexts == 0 ? ImmutableContextSetImpl.EMPTY : ImmutableContextSetImpl.of("server", "server0");
+        this.queryOptions = QueryOptionsImpl.DEFAULT_CONTEXTUAL.toBuilder().context(context).build();
+
+        // a mix of direct hits, wildcard matches and undefined permissions
+        Random random = new Random(0);
+        this.samplePermissions = new String[SAMPLE_SIZE];
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            switch (i % 4) {
+                case 0:
+                    this.samplePermissions[i] = "group" + random.nextInt(groups) + ".perm" + random.nextInt(nodes);
+                    break;
+                case 1:
+                    this.samplePermissions[i] = "user.perm" + random.nextInt(nodes);
+                    break;
+                case 2:
+                    this.samplePermissions[i] = "group" + random.nextInt(groups) + ".wildcard.sub" + random.nextInt(64);
+                    break;
+                default:
+                    this.samplePermissions[i] = "undefined.perm" + random.nextInt(SAMPLE_SIZE);
+                    break;
+            }
+        }
+    }
+
+    private static Node permission(String permission, boolean value, int index, int contexts) {
+        PermissionNode.Builder builder = Permission.builder().permission(permission).value(value);
+
+        // contexts + 1 buckets, the last being the global context
+        int bucket = index % (contexts + 1);
+        if (bucket != contexts) {
+            builder.withContext("server", "server" + bucket);
+        }
+        return builder.build();
+    }
+
+    public LuckPermsPlugin getPlugin() {
+        return this.plugin;
+    }
+
+    public List<Group> getGroups() {
+        return this.groups;
+    }
+
+    public User getUser() {
+        return this.user;
+    }
+
+    public QueryOptions getQueryOptions() {
+        return this.queryOptions;
+    }
+
+    /**
+     * Gets a permission from a fixed sample of permissions to check.
+     *
+     * @param index the index, wrapped around the size of the sample
+     * @return a permission
+     */
+    public String samplePermission(int index) {
+        return this.samplePermissions[index & (SAMPLE_SIZE - 1)];
+    }
+
+    /**
+     * Adds a node to the user as if it were added with a command, so that
+     * cached data is updated (rather than bypassed).
+     *
+     * @param node the node
+     */
+    public void addUserNode(Node node) {
+        this.user.setNode(DataType.NORMAL, node, false);
+    }
+
+    public void removeUserNode(Node node) {
+        this.user.unsetNode(DataType.NORMAL, node);
+    }
+}
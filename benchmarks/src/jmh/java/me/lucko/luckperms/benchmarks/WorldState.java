@@ -0,0 +1,74 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Shared benchmark state holding a {@link SyntheticWorld}.
+ */
+@State(Scope.Benchmark)
+public class WorldState {
+
+    /** The number of groups */
+    @Param({"10", "50"})
+    public int groups;
+
+    /** The length of each inheritance chain */
+    @Param({"1", "5"})
+    public int depth;
+
+    /** The number of permission nodes per holder */
+    @Param({"25", "250"})
+    public int nodes;
+
+    /** The number of distinct server contexts nodes are spread over */
+    @Param({"0", "4"})
+    public int contexts;
+
+    public SyntheticWorld world;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.world = new SyntheticWorld(this.groups, this.depth, this.nodes, this.contexts);
+    }
+
+    /**
+     * A per-thread position in the world's sample of permissions.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int index;
+
+        public String next(SyntheticWorld world) {
+            return world.samplePermission(this.index++);
+        }
+    }
+}
@@ -35,17 +35,25 @@ import java.util.Objects;
 
 public class LogPage {
     public static LogPage of(List<LoggedAction> content, @Nullable PageParameters params, int totalEntries) {
-        return new LogPage(content, params, totalEntries);
+        return new LogPage(content, params, totalEntries, false, null);
+    }
+
+    public static LogPage of(List<LoggedAction> content, @Nullable PageParameters params, int totalEntries, boolean totalEstimated, PageParameters.@Nullable Cursor nextCursor) {
+        return new LogPage(content, params, totalEntries, totalEstimated, nextCursor);
     }
 
     private final List<LoggedAction> content;
     private final @Nullable PageParameters params;
     private final int totalEntries;
+    private final boolean totalEstimated;
+    private final PageParameters.@Nullable Cursor nextCursor;
 
-    LogPage(List<LoggedAction> content, @Nullable PageParameters params, int totalEntries) {
+    LogPage(List<LoggedAction> content, @Nullable PageParameters params, int totalEntries, boolean totalEstimated, PageParameters.@Nullable Cursor nextCursor) {
         this.content = ImmutableList.copyOf(content);
         this.params = params;
         this.totalEntries = totalEntries;
+        this.totalEstimated = totalEstimated;
+        this.nextCursor = nextCursor;
     }
 
     public List<LoggedAction> getContent() {
@@ -69,6 +77,25 @@ public class LogPage {
         return this.totalEntries;
     }
 
+    /**
+     * Gets if {@link #getTotalEntries()} is an estimate.
+     *
+     * @return true if the total is estimated
+     */
+    public boolean isTotalEstimated() {
+        return this.totalEstimated;
+    }
+
+    /**
+     * Gets a cursor which can be used to request the page after this one, if
+     * supported by the storage implementation.
+     *
+     * @return the cursor, or null
+     */
+    public PageParameters.@Nullable Cursor getNextCursor() {
+        return this.nextCursor;
+    }
+
     public static final class Entry<T> {
         private final int position;
         private final T value;
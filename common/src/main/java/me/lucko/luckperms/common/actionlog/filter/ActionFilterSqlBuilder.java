@@ -27,8 +27,11 @@ package me.lucko.luckperms.common.actionlog.filter;
 
 import me.lucko.luckperms.common.actionlog.LoggedAction;
 import me.lucko.luckperms.common.filter.FilterField;
+import me.lucko.luckperms.common.filter.FilterList;
+import me.lucko.luckperms.common.filter.PageParameters;
 import me.lucko.luckperms.common.filter.sql.FilterSqlBuilder;
 import net.luckperms.api.actionlog.Action;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.util.UUID;
 
@@ -53,6 +56,30 @@ public class ActionFilterSqlBuilder extends FilterSqlBuilder<Action> {
         }
     }
 
+    /**
+     * Appends the given filters, restricted to the actions which come after the
+     * cursor when ordered by {@code time DESC, id DESC}.
+     *
+     * @param filters the filters
+     * @param cursor the cursor, or null to not restrict the results
+     */
+    public void visit(FilterList<Action> filters, PageParameters.@Nullable Cursor cursor) {
+        if (cursor == null) {
+            visit(filters);
+            return;
+        }
+
+        long time = cursor.timestamp();
+        long id = Long.parseLong(cursor.id());
+        this.builder.append(" WHERE (time < " + time + " OR (time = " + time + " AND id < " + id + "))");
+
+        if (!filters.isEmpty()) {
+            this.builder.append(" AND (");
+            visitConditions(filters.operator(), filters);
+            this.builder.append(")");
+        }
+    }
+
     @Override
     public void visitConstraintValue(Object value) {
         if (value instanceof String) {
@@ -25,7 +25,10 @@
 
 package me.lucko.luckperms.common.backup;
 
+import com.google.gson.Gson;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.http.AbstractHttpClient;
 import me.lucko.luckperms.common.http.UnsuccessfulRequestException;
 import me.lucko.luckperms.common.locale.Message;
@@ -37,7 +40,6 @@ import me.lucko.luckperms.common.node.utils.NodeJsonSerializer;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.sender.Sender;
 import me.lucko.luckperms.common.storage.Storage;
-import me.lucko.luckperms.common.util.CompletableFutures;
 import me.lucko.luckperms.common.util.gson.GsonProvider;
 import me.lucko.luckperms.common.util.gson.JArray;
 import me.lucko.luckperms.common.util.gson.JObject;
@@ -46,29 +48,23 @@ import net.kyori.adventure.text.Component;
 import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.zip.GZIPOutputStream;
 
@@ -97,29 +93,70 @@ public abstract class Exporter implements Runnable {
 
     @Override
     public void run() {
-        JsonObject json = new JsonObject();
-        json.add("metadata", new JObject()
-                .add("generatedBy", this.executor.getNameWithLocation())
-                .add("generatedAt", DATE_FORMAT.format(new Date(System.currentTimeMillis())))
-                .toJson());
-
-        if (this.includeGroups) {
-            this.log.log("Gathering group data...");
-            json.add("groups", exportGroups());
-
-            this.log.log("Gathering track data...");
-            json.add("tracks", exportTracks());
+        try (OutputStream output = openOutput()) {
+            write(output);
+        } catch (Exception e) {
+            this.plugin.getLogger().severe("Error whilst exporting data", e);
+            processFailure();
+            return;
         }
 
-        if (this.includeUsers) {
-            this.log.log("Gathering user data...");
-            json.add("users", exportUsers());
-        }
+        processOutput();
+    }
 
-        processOutput(json);
+    /**
+     * Opens the stream which the (compressed) export should be written to.
+     *
+     * @return the output stream
+     * @throws IOException if an error occurs
+     */
+    protected abstract OutputStream openOutput() throws IOException;
+
+    /**
+     * Called once the export has been written to the {@link #openOutput() output}.
+     */
+    protected abstract void processOutput();
+
+    /**
+     * Called if the export could not be completed, in place of {@link #processOutput()}.
+     */
+    protected void processFailure() {
+        this.log.getListeners().forEach(Message.EXPORT_FAILURE::send);
     }
 
-    protected abstract void processOutput(JsonObject json);
+    private void write(OutputStream output) throws IOException {
+        Gson gson = GsonProvider.normal();
+
+        // entries are serialized straight into the output as they are gathered,
+        // so only one batch of users needs to be held in memory at a time
+        try (JsonWriter writer = gson.newJsonWriter(new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(output), StandardCharsets.UTF_8)))) {
+            writer.beginObject();
+
+            writer.name("metadata");
+            gson.toJson(new JObject()
+                    .add("generatedBy", this.executor.getNameWithLocation())
+                    .add("generatedAt", DATE_FORMAT.format(new Date(System.currentTimeMillis())))
+                    .toJson(), writer);
+
+            if (this.includeGroups) {
+                this.log.log("Gathering group data...");
+                writer.name("groups");
+                gson.toJson(exportGroups(), writer);
+
+                this.log.log("Gathering track data...");
+                writer.name("tracks");
+                gson.toJson(exportTracks(), writer);
+            }
+
+            if (this.includeUsers) {
+                this.log.log("Gathering user data...");
+                writer.name("users");
+                exportUsers(gson, writer);
+            }
+
+            writer.endObject();
+        }
+    }
 
     private JsonObject exportGroups() {
         JsonObject out = new JsonObject();
@@ -151,73 +188,64 @@ public abstract class Exporter implements Runnable {
         return out;
     }
 
-    private JsonObject exportUsers() {
-        // Users are migrated in separate threads.
-        // This is because there are likely to be a lot of them, and because we can.
-        // It's a big speed improvement, since the database/files are split up and can handle concurrent reads.
-
+    private void exportUsers(Gson gson, JsonWriter writer) throws IOException {
         this.log.log("Finding a list of unique users to export.");
 
         // Find all of the unique users we need to export
-        Storage ds = this.plugin.getStorage();
-        Set<UUID> users = ds.getUniqueUsers().join();
-        this.log.log("Found " + users.size() + " unique users to export.");
-
-        // create a threadpool to process the users concurrently
-        ExecutorService executor = Executors.newFixedThreadPool(32);
-
-        // A set of futures, which are really just the processes we need to wait for.
-        Set<CompletableFuture<Void>> futures = new HashSet<>();
-
-        AtomicInteger userCount = new AtomicInteger(0);
-        Map<UUID, JsonObject> out = Collections.synchronizedMap(new TreeMap<>());
-
-        // iterate through each user.
-        for (UUID uuid : users) {
-            // register a task for the user, and schedule it's execution with the pool
-            futures.add(CompletableFuture.runAsync(() -> {
-                User user = this.plugin.getStorage().loadUser(uuid, null).join();
-                out.put(user.getUniqueId(), new JObject()
-                        .consume(obj -> {
-                            user.getUsername().ifPresent(username -> obj.add("username", username));
-                            if (!user.getPrimaryGroup().getStoredValue().orElse(GroupManager.DEFAULT_GROUP_NAME).equalsIgnoreCase(GroupManager.DEFAULT_GROUP_NAME)) {
-                                obj.add("primaryGroup", user.getPrimaryGroup().getStoredValue().get());
-                            }
-                        })
-                        .add("nodes", NodeJsonSerializer.serializeNodes(user.normalData().asSet()))
-                        .toJson());
-                this.plugin.getUserManager().getHouseKeeper().cleanup(user.getUniqueId());
-                userCount.incrementAndGet();
-            }, executor));
-        }
+        Storage storage = this.plugin.getStorage();
+        UUID[] users = storage.getUniqueUsers().join().toArray(new UUID[0]);
+        Arrays.sort(users);
+        this.log.log("Found " + users.length + " unique users to export.");
 
-        // all of the threads have been scheduled now and are running. we just need to wait for them all to complete
-        CompletableFuture<Void> overallFuture = CompletableFutures.allOf(futures);
+        int batchSize = Math.max(1, this.plugin.getConfiguration().get(ConfigKeys.USER_LOAD_BATCH_SIZE));
+        long lastProgress = System.currentTimeMillis();
 
-        while (true) {
-            try {
-                overallFuture.get(5, TimeUnit.SECONDS);
-            } catch (InterruptedException | ExecutionException e) {
-                // abnormal error - just break
-                e.printStackTrace();
-                break;
-            } catch (TimeoutException e) {
-                // still executing - send a progress report and continue waiting
-                this.log.logProgress("Exported " + userCount.get() + " users so far.");
-                continue;
+        writer.beginObject();
+
+        // the next batch is loaded from storage whilst the current one is written
+        CompletableFuture<Map<UUID, User>> next = users.length == 0 ? null : loadBatch(storage, users, 0, batchSize);
+        for (int start = 0; start < users.length; start += batchSize) {
+            Map<UUID, User> batch = next.join();
+
+            int end = Math.min(users.length, start + batchSize);
+            next = end < users.length ? loadBatch(storage, users, end, batchSize) : null;
+
+            for (int i = start; i < end; i++) {
+                User user = batch.get(users[i]);
+                if (user == null) {
+                    continue;
+                }
+
+                writer.name(user.getUniqueId().toString());
+                gson.toJson(serializeUser(user), writer);
+                this.plugin.getUserManager().getHouseKeeper().cleanup(user.getUniqueId());
             }
 
-            // process is complete
-            break;
+            long now = System.currentTimeMillis();
+            if (now - lastProgress >= TimeUnit.SECONDS.toMillis(5)) {
+                lastProgress = now;
+                this.log.logProgress("Exported " + end + " users so far.");
+            }
         }
 
-        executor.shutdown();
+        writer.endObject();
+    }
 
-        JsonObject outJson = new JsonObject();
-        for (Map.Entry<UUID, JsonObject> entry : out.entrySet()) {
-            outJson.add(entry.getKey().toString(), entry.getValue());
-        }
-        return outJson;
+    private static CompletableFuture<Map<UUID, User>> loadBatch(Storage storage, UUID[] users, int start, int batchSize) {
+        int end = Math.min(users.length, start + batchSize);
+        return storage.loadUsers(new HashSet<>(Arrays.asList(users).subList(start, end)));
+    }
+
+    private static JsonObject serializeUser(User user) {
+        return new JObject()
+                .consume(obj -> {
+                    user.getUsername().ifPresent(username -> obj.add("username", username));
+                    if (!user.getPrimaryGroup().getStoredValue().orElse(GroupManager.DEFAULT_GROUP_NAME).equalsIgnoreCase(GroupManager.DEFAULT_GROUP_NAME)) {
+                        obj.add("primaryGroup", user.getPrimaryGroup().getStoredValue().get());
+                    }
+                })
+                .add("nodes", NodeJsonSerializer.serializeNodes(user.normalData().asSet()))
+                .toJson();
     }
 
     public static final class SaveFile extends Exporter {
@@ -229,21 +257,30 @@ public abstract class Exporter implements Runnable {
         }
 
         @Override
-        protected void processOutput(JsonObject json) {
-            this.log.log("Finished gathering data, writing file...");
+        protected OutputStream openOutput() throws IOException {
+            return Files.newOutputStream(this.filePath);
+        }
+
+        @Override
+        protected void processOutput() {
+            this.log.getListeners().forEach(l -> Message.EXPORT_FILE_SUCCESS.send(l, this.filePath.toFile().getAbsolutePath()));
+        }
 
-            try (BufferedWriter out = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(this.filePath)), StandardCharsets.UTF_8))) {
-                GsonProvider.normal().toJson(json, out);
+        @Override
+        protected void processFailure() {
+            // don't leave a truncated export behind which looks like a valid one
+            try {
+                Files.deleteIfExists(this.filePath);
             } catch (IOException e) {
-                e.printStackTrace();
+                this.plugin.getLogger().warn("Unable to delete incomplete export file " + this.filePath, e);
             }
-
-            this.log.getListeners().forEach(l -> Message.EXPORT_FILE_SUCCESS.send(l, this.filePath.toFile().getAbsolutePath()));
+            super.processFailure();
         }
     }
 
     public static final class WebUpload extends Exporter {
         private final String label;
+        private final ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
 
         public WebUpload(LuckPermsPlugin plugin, Sender executor, boolean includeUsers, boolean includeGroups, String label) {
             super(plugin, executor, includeUsers, includeGroups);
@@ -251,18 +288,17 @@ public abstract class Exporter implements Runnable {
         }
 
         @Override
-        protected void processOutput(JsonObject json) {
-            this.log.log("Finished gathering data, uploading data...");
+        protected OutputStream openOutput() {
+            // only the compressed data is buffered
+            return this.bytesOut;
+        }
 
-            ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
-            try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(bytesOut), StandardCharsets.UTF_8)) {
-                GsonProvider.normal().toJson(json, writer);
-            } catch (IOException e) {
-                this.plugin.getLogger().severe("Error compressing data", e);
-            }
+        @Override
+        protected void processOutput() {
+            this.log.log("Finished gathering data, uploading data...");
 
             try {
-                String pasteId = this.plugin.getBytebin().postContent(bytesOut.toByteArray(), AbstractHttpClient.JSON_TYPE).key();
+                String pasteId = this.plugin.getBytebin().postContent(this.bytesOut.toByteArray(), AbstractHttpClient.JSON_TYPE).key();
                 this.log.getListeners().forEach(l -> Message.EXPORT_WEB_SUCCESS.send(l, pasteId, this.label));
             } catch (UnsuccessfulRequestException e) {
                 this.log.getListeners().forEach(l -> Message.HTTP_REQUEST_FAILURE.send(l, e.getResponse().code(), e.getResponse().message()));
@@ -26,10 +26,12 @@
 package me.lucko.luckperms.common.backup;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.locale.Message;
 import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.HolderType;
@@ -48,6 +50,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -113,6 +116,35 @@ public class Importer implements Runnable {
 
     private void processUser(UUID uuid, UserData userData) {
         User user = this.plugin.getStorage().loadUser(uuid, userData.username).join();
+        applyUserData(user, userData);
+        this.plugin.getStorage().saveUser(user).join();
+        this.plugin.getUserManager().getHouseKeeper().cleanup(user.getUniqueId());
+    }
+
+    private void processUsers(Map<UUID, UserData> batch) {
+        try {
+            Map<UUID, User> users = this.plugin.getStorage().loadUsers(batch.keySet()).join();
+            for (Map.Entry<UUID, UserData> ent : batch.entrySet()) {
+                User user = users.get(ent.getKey());
+                if (ent.getValue().username != null) {
+                    user.setUsername(ent.getValue().username, false);
+                }
+                applyUserData(user, ent.getValue());
+            }
+            this.plugin.getStorage().saveUsers(users.values()).join();
+        } catch (Exception e) {
+            // fallback to importing the users in the batch one at a time
+            this.plugin.getLogger().warn("Unable to import a batch of " + batch.size() + " users in bulk - falling back to importing them individually", e);
+            batch.forEach(this::processUser);
+            return;
+        }
+
+        for (UUID uuid : batch.keySet()) {
+            this.plugin.getUserManager().getHouseKeeper().cleanup(uuid);
+        }
+    }
+
+    private void applyUserData(User user, UserData userData) {
         if (userData.primaryGroup != null) {
             user.getPrimaryGroup().setStoredValue(userData.primaryGroup);
         }
@@ -121,8 +153,6 @@ public class Importer implements Runnable {
         } else {
             user.setNodes(DataType.NORMAL, userData.nodes, false);
         }
-        this.plugin.getStorage().saveUser(user).join();
-        this.plugin.getUserManager().getHouseKeeper().cleanup(user.getUniqueId());
     }
 
     private Set<Map.Entry<String, JsonElement>> getDataSection(String id) {
@@ -250,12 +280,20 @@ public class Importer implements Runnable {
             }, executor));
             total++;
         }
-        for (Map.Entry<UUID, UserData> user : users.entrySet()) {
-            futures.add(CompletableFuture.completedFuture(user).thenAcceptAsync(ent -> {
-                processUser(ent.getKey(), ent.getValue());
-                processedCount.incrementAndGet();
+
+        // users are loaded and saved in batches, to avoid a storage round trip for each one
+        int batchSize = Math.max(1, this.plugin.getConfiguration().get(ConfigKeys.USER_LOAD_BATCH_SIZE));
+        for (List<Map.Entry<UUID, UserData>> batch : Iterables.partition(users.entrySet(), batchSize)) {
+            Map<UUID, UserData> batchMap = new LinkedHashMap<>();
+            for (Map.Entry<UUID, UserData> ent : batch) {
+                batchMap.put(ent.getKey(), ent.getValue());
+            }
+
+            futures.add(CompletableFuture.completedFuture(batchMap).thenAcceptAsync(b -> {
+                processUsers(b);
+                processedCount.addAndGet(b.size());
             }, executor));
-            total++;
+            total += batchMap.size();
         }
 
         // all of the threads have been scheduled now and are running. we just need to wait for them all to complete
@@ -57,6 +57,18 @@ public class LoadingMap<K, V> extends ForwardingMap<K, V> implements Map<K, V> {
         return this.map.get(key);
     }
 
+    // ForwardingMap doesn't forward these, and the default implementations aren't atomic
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        return this.map.putIfAbsent(key, value);
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        return this.map.replace(key, oldValue, newValue);
+    }
+
     @Override
     public V get(Object key) {
         V value = this.map.get(key);
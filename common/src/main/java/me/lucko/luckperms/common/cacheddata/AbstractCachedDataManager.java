@@ -34,6 +34,7 @@ import me.lucko.luckperms.common.calculator.PermissionCalculator;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.util.CaffeineFactory;
 import me.lucko.luckperms.common.util.CompletableFutures;
+import me.lucko.luckperms.common.util.Difference;
 import net.luckperms.api.cacheddata.CachedData;
 import net.luckperms.api.cacheddata.CachedDataManager;
 import net.luckperms.api.cacheddata.CachedMetaData;
@@ -41,15 +42,20 @@ import net.luckperms.api.cacheddata.CachedPermissionData;
 import net.luckperms.api.metastacking.MetaStackDefinition;
 import net.luckperms.api.node.ChatMetaType;
 import net.luckperms.api.node.Node;
+import net.luckperms.api.node.types.InheritanceNode;
 import net.luckperms.api.query.QueryOptions;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.IntFunction;
 
@@ -61,10 +67,15 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
     private final AbstractContainer<PermissionCache, CachedPermissionData> permission;
     private final AbstractContainer<MonitoredMetaCache, CachedMetaData> meta;
 
+    /**
+     * The names of the groups which the cached data for each {@link QueryOptions} was calculated from
+     */
+    private final Map<QueryOptions, Set<String>> dependencies = new ConcurrentHashMap<>();
+
     protected AbstractCachedDataManager(LuckPermsPlugin plugin) {
         this.plugin = plugin;
-        this.permission = new AbstractContainer<>(this::calculatePermissions);
-        this.meta = new AbstractContainer<>(this::calculateMeta);
+        this.permission = new AbstractContainer<>(this::calculatePermissions, this::preload);
+        this.meta = new AbstractContainer<>(this::calculateMeta, this::preload);
     }
 
     public LuckPermsPlugin getPlugin() {
@@ -141,6 +152,23 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
      */
     protected abstract <M extends Map<String, Node>> M resolvePermissions(IntFunction<M> mapFactory, QueryOptions queryOptions);
 
+    /**
+     * Resolves the entries in a previously resolved permissions map which are
+     * affected by the given changes to the owners own data.
+     *
+     * <p>Implementations should return false if the updated entries cannot be
+     * determined without resolving the permissions data again in full.</p>
+     *
+     * @param accumulator the map to add the updated entries to
+     * @param permissions the previously resolved permissions
+     * @param changes the changes made to the owners own data
+     * @param queryOptions the query options
+     * @return true if the updated entries were resolved
+     */
+    protected boolean resolvePermissionChanges(Map<String, Node> accumulator, Map<String, Node> permissions, Difference<Node> changes, QueryOptions queryOptions) {
+        return false;
+    }
+
     /**
      * Resolves the owners meta data for the given {@link QueryOptions}.
      *
@@ -148,10 +176,53 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
      * @param queryOptions the query options
      */
     protected abstract void resolveMeta(MetaAccumulator accumulator, QueryOptions queryOptions);
+
+    /**
+     * Resolves the owners permissions and meta data for the given {@link QueryOptions}
+     * at the same time.
+     *
+     * <p>This is used when neither is cached, so implementations which can resolve
+     * both in a single pass should override this method.</p>
+     *
+     * @param mapFactory a function to create a map instance to return the permissions in
+     * @param accumulator the accumulator to add resolved meta to
+     * @param queryOptions the query options
+     * @param <M> the map type
+     * @return the resolved permissions
+     */
+    protected <M extends Map<String, Node>> M resolvePermissionsAndMeta(IntFunction<M> mapFactory, MetaAccumulator accumulator, QueryOptions queryOptions) {
+        resolveMeta(accumulator, queryOptions);
+        return resolvePermissions(mapFactory, queryOptions);
+    }
+
+    /**
+     * Resolves the names of the groups the owners data depends on for the given {@link QueryOptions}.
+     *
+     * <p>Cached data is only invalidated by changes to these groups (see
+     * {@link CacheDependencyIndex}), so the returned set must include every
+     * group which could affect the result.</p>
+     *
+     * @param queryOptions the query options
+     * @return the group names
+     */
+    protected Set<String> resolveDependencies(QueryOptions queryOptions) {
+        return Collections.emptySet();
+    }
+
+    private void recordDependencies(QueryOptions queryOptions) {
+        this.dependencies.computeIfAbsent(queryOptions, q -> {
+            Set<String> groups = resolveDependencies(q);
+            if (!groups.isEmpty()) {
+                this.plugin.getCacheDependencyIndex().register(this, groups);
+            }
+            return groups;
+        });
+    }
     
     private PermissionCache calculatePermissions(QueryOptions queryOptions) {
         Objects.requireNonNull(queryOptions, "queryOptions");
         CacheMetadata metadata = getMetadataForQueryOptions(queryOptions);
+        recordDependencies(queryOptions);
 
         ConcurrentHashMap<String, Node> sourcePermissions = resolvePermissions(ConcurrentHashMap::new, queryOptions);
         return new PermissionCache(queryOptions, metadata, getCalculatorFactory(), sourcePermissions);
@@ -160,17 +231,115 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
     private MonitoredMetaCache calculateMeta(QueryOptions queryOptions) {
         Objects.requireNonNull(queryOptions, "queryOptions");
         CacheMetadata metadata = getMetadataForQueryOptions(queryOptions);
+        recordDependencies(queryOptions);
 
         MetaAccumulator accumulator = newAccumulator(queryOptions);
         resolveMeta(accumulator, queryOptions);
-
         return new MonitoredMetaCache(this.plugin, queryOptions, metadata, accumulator);
     }
 
+    /**
+     * Calculates and caches both the permission and meta data for the given
+     * {@link QueryOptions} in a single pass, if neither is cached already.
+     *
+     * <p>This is called before a container falls back to its loader, and must
+     * not be called from within a loader: the results are published to both
+     * caches, which would otherwise risk a deadlock with a concurrent load of
+     * the other container.</p>
+     *
+     * @param queryOptions the query options
+     */
+    private void preload(QueryOptions queryOptions) {
+        if (this.permission.cache.containsKey(queryOptions) || this.meta.cache.containsKey(queryOptions)) {
+            return;
+        }
+
+        int permissionGeneration = this.permission.generation();
+        int metaGeneration = this.meta.generation();
+        CacheMetadata metadata = getMetadataForQueryOptions(queryOptions);
+        recordDependencies(queryOptions);
+
+        MetaAccumulator accumulator = newAccumulator(queryOptions);
+        ConcurrentHashMap<String, Node> sourcePermissions = resolvePermissionsAndMeta(ConcurrentHashMap::new, accumulator, queryOptions);
+
+        this.permission.offer(queryOptions, new PermissionCache(queryOptions, metadata, getCalculatorFactory(), sourcePermissions), permissionGeneration);
+        this.meta.offer(queryOptions, new MonitoredMetaCache(this.plugin, queryOptions, metadata, accumulator), metaGeneration);
+    }
+
     @Override
     public final void invalidate() {
         this.permission.invalidate();
         this.meta.invalidate();
+        this.dependencies.clear();
+    }
+
+    /**
+     * Invalidates the cached data following the given changes to the owners
+     * own data.
+     *
+     * <p>Where possible, the cached permission data is updated using the
+     * previously resolved permissions instead of being recalculated from scratch.</p>
+     *
+     * @param changes the changes made to the owners own data
+     */
+    public final void invalidate(Difference<Node> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        // changes to inheritance nodes affect the whole inheritance tree
+        for (Node node : changes.getAdded()) {
+            if (node instanceof InheritanceNode) {
+                invalidate();
+                return;
+            }
+        }
+        for (Node node : changes.getRemoved()) {
+            if (node instanceof InheritanceNode) {
+                invalidate();
+                return;
+            }
+        }
+
+        // reject any values calculated before the change which are still being offered
+        this.permission.advanceGeneration();
+
+        for (PermissionCache cache : this.permission.cache.values()) {
+            QueryOptions queryOptions = cache.getQueryOptions();
+            Map<String, Node> updates = new HashMap<>();
+            if (!resolvePermissionChanges(updates, cache.getSourcePermissions(), changes, queryOptions)) {
+                this.permission.invalidate(queryOptions);
+            } else if (!updates.isEmpty()) {
+                // build the updated cache separately and then swap it in, so that concurrent
+                // permission checks see either the old or the new data, never a mixture
+                ConcurrentHashMap<String, Node> sourcePermissions = new ConcurrentHashMap<>(cache.getSourcePermissions());
+                sourcePermissions.putAll(updates);
+
+                PermissionCache updated = new PermissionCache(queryOptions, getMetadataForQueryOptions(queryOptions), getCalculatorFactory(), sourcePermissions);
+                if (!this.permission.cache.replace(queryOptions, cache, updated)) {
+                    // the entry was reloaded or swapped in the meantime, so start again from scratch
+                    this.permission.invalidate(queryOptions);
+                }
+            }
+        }
+        this.meta.invalidate();
+    }
+
+    /**
+     * Invalidates the cached data for any {@link QueryOptions} which was
+     * calculated by inheriting from the given group.
+     *
+     * @param group the name of the group which has changed
+     */
+    final void invalidateDependents(String group) {
+        this.dependencies.entrySet().removeIf(e -> {
+            if (!e.getValue().contains(group)) {
+                return false;
+            }
+            this.permission.invalidate(e.getKey());
+            this.meta.invalidate(e.getKey());
+            return true;
+        });
     }
 
     @Override
@@ -178,20 +347,68 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
         this.permission.cache.values().forEach(PermissionCache::invalidateCache);
     }
 
+    /**
+     * Gets the combined statistics for the lookup caches of every cached permission calculator.
+     *
+     * @return the cache statistics
+     */
+    public final PermissionCalculator.LookupCacheStats getLookupCacheStats() {
+        PermissionCalculator.LookupCacheStats stats = PermissionCalculator.LookupCacheStats.EMPTY;
+        for (PermissionCache cache : this.permission.cache.values()) {
+            stats = stats.plus(cache.getCalculator().getLookupCacheStats());
+        }
+        return stats;
+    }
+
     public final void performCacheCleanup() {
         this.permission.cleanup();
         this.meta.cleanup();
+        this.dependencies.keySet().removeIf(queryOptions -> !this.permission.cache.containsKey(queryOptions) && !this.meta.cache.containsKey(queryOptions));
     }
 
     private static final class AbstractContainer<C extends I, I extends CachedData> implements Container<I> {
         private final Function<QueryOptions, C> cacheLoader;
+        private final Consumer<QueryOptions> preloader;
         private final LoadingMap<QueryOptions, C> cache;
 
-        public AbstractContainer(Function<QueryOptions, C> cacheLoader) {
+        /** Incremented whenever the container is invalidated */
+        private final AtomicInteger generation = new AtomicInteger();
+
+        public AbstractContainer(Function<QueryOptions, C> cacheLoader, Consumer<QueryOptions> preloader) {
             this.cacheLoader = cacheLoader;
+            this.preloader = preloader;
             this.cache = LoadingMap.of(this.cacheLoader);
         }
 
+        int generation() {
+            return this.generation.get();
+        }
+
+        void advanceGeneration() {
+            this.generation.incrementAndGet();
+        }
+
+        /**
+         * Caches a value which was calculated alongside another container's, unless
+         * this container has been invalidated since the calculation started.
+         *
+         * @param queryOptions the query options
+         * @param value the value
+         * @param generation the generation when the calculation started
+         */
+        void offer(QueryOptions queryOptions, C value, int generation) {
+            if (this.generation.get() != generation) {
+                return;
+            }
+
+            this.cache.putIfAbsent(queryOptions, value);
+
+            // the container may have been invalidated whilst the value was being added
+            if (this.generation.get() != generation) {
+                this.cache.remove(queryOptions, value);
+            }
+        }
+
         public void cleanup() {
             this.cache.values().removeIf(value -> !((UsageTracked) value).usedInTheLast(2, TimeUnit.MINUTES));
         }
@@ -200,7 +417,13 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
         public @NonNull C get(@NonNull QueryOptions queryOptions) {
             Objects.requireNonNull(queryOptions, "queryOptions");
 
-            C data = this.cache.get(queryOptions);
+            C data = this.cache.getIfPresent(queryOptions);
+            if (data == null) {
+                // give the manager a chance to load this and the other container's data
+                // together, outside of the cache's compute
+                this.preloader.accept(queryOptions);
+                data = this.cache.get(queryOptions);
+            }
             ((UsageTracked) data).recordUsage();
             return data;
         }
@@ -246,11 +469,13 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
         @Override
         public void invalidate(@NonNull QueryOptions queryOptions) {
             Objects.requireNonNull(queryOptions, "queryOptions");
+            this.generation.incrementAndGet();
             this.cache.remove(queryOptions);
         }
 
         @Override
         public void invalidate() {
+            this.generation.incrementAndGet();
             this.cache.clear();
         }
     }
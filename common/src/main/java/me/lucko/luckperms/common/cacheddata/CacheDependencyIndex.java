@@ -0,0 +1,110 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.cacheddata;
+
+import com.google.common.collect.MapMaker;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A reverse index from group names to the {@link AbstractCachedDataManager}s
+ * which hold cached data calculated by inheriting from that group.
+ *
+ * <p>Used to invalidate only the caches which are actually affected by a change
+ * to a group, instead of every loaded user and group cache.</p>
+ */
+public class CacheDependencyIndex {
+
+    /**
+     * Group name to the managers with at least one cache entry that depends on the group.
+     *
+     * <p>Managers are weakly referenced, so entries for unloaded holders are dropped
+     * automatically.</p>
+     */
+    private final Map<String, Set<AbstractCachedDataManager>> dependents = new ConcurrentHashMap<>();
+
+    /**
+     * Records that the given manager holds cached data which depends on the given groups.
+     *
+     * @param manager the manager
+     * @param groups the names of the groups the data depends on
+     */
+    void register(AbstractCachedDataManager manager, Set<String> groups) {
+        for (String group : groups) {
+            this.dependents.compute(group, (k, managers) -> {
+                if (managers == null) {
+                    managers = newWeakSet();
+                }
+                managers.add(manager);
+                return managers;
+            });
+        }
+    }
+
+    /**
+     * Invalidates the cached data of all holders which inherit from the given group.
+     *
+     * @param group the name of the group which has changed
+     */
+    public void invalidateDependents(String group) {
+        Set<AbstractCachedDataManager> managers = this.dependents.get(group);
+        if (managers == null) {
+            return;
+        }
+
+        for (AbstractCachedDataManager manager : managers) {
+            manager.invalidateDependents(group);
+        }
+    }
+
+    /**
+     * Invalidates the cached data of all holders which inherit from any of the given groups.
+     *
+     * @param groups the names of the groups which have changed
+     */
+    public void invalidateDependents(Iterable<String> groups) {
+        for (String group : groups) {
+            invalidateDependents(group);
+        }
+    }
+
+    /**
+     * Removes index entries which no longer have any dependents.
+     */
+    public void cleanup() {
+        for (String group : this.dependents.keySet()) {
+            this.dependents.computeIfPresent(group, (k, managers) -> managers.isEmpty() ? null : managers);
+        }
+    }
+
+    private static Set<AbstractCachedDataManager> newWeakSet() {
+        return Collections.newSetFromMap(new MapMaker().weakKeys().<AbstractCachedDataManager, Boolean>makeMap());
+    }
+
+}
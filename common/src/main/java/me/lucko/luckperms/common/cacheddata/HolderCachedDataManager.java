@@ -29,12 +29,14 @@ import me.lucko.luckperms.common.cacheddata.type.MetaAccumulator;
 import me.lucko.luckperms.common.calculator.CalculatorFactory;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.model.PermissionHolder;
+import me.lucko.luckperms.common.util.Difference;
 import net.luckperms.api.metastacking.MetaStackDefinition;
 import net.luckperms.api.node.ChatMetaType;
 import net.luckperms.api.node.Node;
 import net.luckperms.api.query.QueryOptions;
 
 import java.util.Map;
+import java.util.Set;
 import java.util.function.IntFunction;
 
 /**
@@ -79,8 +81,23 @@ public abstract class HolderCachedDataManager<T extends PermissionHolder> extend
         return this.holder.exportPermissions(mapFactory, queryOptions, true, getPlugin().getConfiguration().get(ConfigKeys.APPLYING_SHORTHAND));
     }
 
+    @Override
+    protected boolean resolvePermissionChanges(Map<String, Node> accumulator, Map<String, Node> permissions, Difference<Node> changes, QueryOptions queryOptions) {
+        return this.holder.exportPermissionChanges(accumulator, permissions, changes, queryOptions, getPlugin().getConfiguration().get(ConfigKeys.APPLYING_SHORTHAND));
+    }
+
+    @Override
+    protected <M extends Map<String, Node>> M resolvePermissionsAndMeta(IntFunction<M> mapFactory, MetaAccumulator accumulator, QueryOptions queryOptions) {
+        return this.holder.exportPermissionsAndMeta(mapFactory, accumulator, queryOptions, true, getPlugin().getConfiguration().get(ConfigKeys.APPLYING_SHORTHAND));
+    }
+
     @Override
     protected void resolveMeta(MetaAccumulator accumulator, QueryOptions queryOptions) {
         this.holder.accumulateMeta(accumulator, queryOptions);
     }
+
+    @Override
+    protected Set<String> resolveDependencies(QueryOptions queryOptions) {
+        return this.holder.resolveInheritanceDependencies(queryOptions);
+    }
 }
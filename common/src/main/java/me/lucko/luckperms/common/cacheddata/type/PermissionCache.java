@@ -84,6 +84,10 @@ public class PermissionCache extends UsageTracked implements CachedPermissionDat
         this.calculator.invalidateCache();
     }
 
+    public Map<String, Node> getSourcePermissions() {
+        return Collections.unmodifiableMap(this.permissions);
+    }
+
     public PermissionCalculator getCalculator() {
         return this.calculator;
     }
@@ -25,11 +25,14 @@
 
 package me.lucko.luckperms.common.calculator;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import me.lucko.luckperms.common.cache.LoadingMap;
 import me.lucko.luckperms.common.cacheddata.CacheMetadata;
 import me.lucko.luckperms.common.cacheddata.result.TristateResult;
 import me.lucko.luckperms.common.calculator.processor.PermissionProcessor;
+import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.util.CaffeineFactory;
 import me.lucko.luckperms.common.verbose.event.CheckOrigin;
 import net.luckperms.api.node.Node;
 import org.checkerframework.checker.nullness.qual.NonNull;
@@ -37,6 +40,7 @@ import org.checkerframework.checker.nullness.qual.NonNull;
 import java.util.Collection;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 
 /**
@@ -54,12 +58,35 @@ public class PermissionCalculator implements Function<String, TristateResult> {
     private final PermissionProcessor[] processors;
 
     /** Loading cache for permission checks */
-    private final LoadingMap<String, TristateResult> lookupCache = LoadingMap.of(this);
+    private final LoadingMap<String, TristateResult> lookupCache;
+
+    /** Counters for the lookup cache */
+    private final LongAdder lookupCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
 
     public PermissionCalculator(LuckPermsPlugin plugin, CacheMetadata metadata, Collection<PermissionProcessor> processors) {
+        this(plugin, metadata, processors, plugin.getConfiguration().get(ConfigKeys.PERMISSION_LOOKUP_CACHE_SIZE));
+    }
+
+    public PermissionCalculator(LuckPermsPlugin plugin, CacheMetadata metadata, Collection<PermissionProcessor> processors, int maxCacheSize) {
         this.plugin = plugin;
         this.metadata = metadata;
         this.processors = processors.toArray(new PermissionProcessor[0]);
+
+        if (maxCacheSize > 0) {
+            Cache<String, TristateResult> cache = CaffeineFactory.newBuilder()
+                    .maximumSize(maxCacheSize)
+                    .<String, TristateResult>removalListener((key, value, cause) -> {
+                        if (cause.wasEvicted()) {
+                            this.evictionCount.increment();
+                        }
+                    })
+                    .build();
+            this.lookupCache = LoadingMap.of(cache.asMap(), this);
+        } else {
+            this.lookupCache = LoadingMap.of(this);
+        }
     }
 
     /**
@@ -73,6 +100,7 @@ public class PermissionCalculator implements Function<String, TristateResult> {
      */
     public TristateResult checkPermission(String permission, CheckOrigin origin) {
         // get the result
+        this.lookupCount.increment();
         TristateResult result = this.lookupCache.get(permission);
 
         // log this permission lookup to the verbose handler
@@ -87,6 +115,7 @@ public class PermissionCalculator implements Function<String, TristateResult> {
         // convert the permission to lowercase, as all values in the backing map are also lowercase.
         // this allows fast case insensitive lookups
         permission = permission.toLowerCase(Locale.ROOT);
+        this.missCount.increment();
 
         // offer the permission to the permission vault
         // we only need to do this once per permission, so it doesn't matter
@@ -119,4 +148,77 @@ public class PermissionCalculator implements Function<String, TristateResult> {
         }
         this.lookupCache.clear();
     }
+
+    public CacheMetadata getMetadata() {
+        return this.metadata;
+    }
+
+    /**
+     * Gets a snapshot of the statistics for the lookup cache.
+     *
+     * @return the cache statistics
+     */
+    public LookupCacheStats getLookupCacheStats() {
+        long lookups = this.lookupCount.sum();
+        long misses = this.missCount.sum();
+        return new LookupCacheStats(Math.max(0, lookups - misses), misses, this.evictionCount.sum(), this.lookupCache.size());
+    }
+
+    /**
+     * Statistics about the lookup cache of a {@link PermissionCalculator}.
+     */
+    public static final class LookupCacheStats {
+        public static final LookupCacheStats EMPTY = new LookupCacheStats(0, 0, 0, 0);
+
+        private final long hitCount;
+        private final long missCount;
+        private final long evictionCount;
+        private final int size;
+
+        LookupCacheStats(long hitCount, long missCount, long evictionCount, int size) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+            this.size = size;
+        }
+
+        public long hitCount() {
+            return this.hitCount;
+        }
+
+        public long missCount() {
+            return this.missCount;
+        }
+
+        public long evictionCount() {
+            return this.evictionCount;
+        }
+
+        public int size() {
+            return this.size;
+        }
+
+        public double hitRate() {
+            long total = this.hitCount + this.missCount;
+            return total == 0 ? 1.0 : (double) this.hitCount / total;
+        }
+
+        public LookupCacheStats plus(LookupCacheStats other) {
+            return new LookupCacheStats(
+                    this.hitCount + other.hitCount,
+                    this.missCount + other.missCount,
+                    this.evictionCount + other.evictionCount,
+                    this.size + other.size
+            );
+        }
+
+        @Override
+        public String toString() {
+            return "LookupCacheStats(" +
+                    "hitCount=" + this.hitCount + ", " +
+                    "missCount=" + this.missCount + ", " +
+                    "evictionCount=" + this.evictionCount + ", " +
+                    "size=" + this.size + ")";
+        }
+    }
 }
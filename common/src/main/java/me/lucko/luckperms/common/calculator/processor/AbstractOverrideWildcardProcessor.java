@@ -37,7 +37,9 @@ public abstract class AbstractOverrideWildcardProcessor extends AbstractPermissi
 
     private boolean canOverrideWildcard(TristateResult prev) {
         return this.overrideWildcards &&
-                (prev.processorClass() == WildcardProcessor.class || prev.processorClass() == SpongeWildcardProcessor.class) &&
+                (prev.processorClass() == WildcardProcessor.class ||
+                        prev.processorClass() == TrieWildcardProcessor.class ||
+                        prev.processorClass() == SpongeWildcardProcessor.class) &&
                 prev.result() == Tristate.TRUE;
     }
 
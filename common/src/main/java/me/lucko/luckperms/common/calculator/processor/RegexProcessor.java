@@ -25,27 +25,43 @@
 
 package me.lucko.luckperms.common.calculator.processor;
 
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Maps;
 import me.lucko.luckperms.common.cacheddata.result.TristateResult;
 import me.lucko.luckperms.common.node.types.RegexPermission;
 import net.luckperms.api.node.Node;
 
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
 
 public class RegexProcessor extends AbstractSourceBasedProcessor implements PermissionProcessor {
     private static final TristateResult.Factory RESULT_FACTORY = new TristateResult.Factory(RegexProcessor.class);
+    private static final RegexEntry[] EMPTY = new RegexEntry[0];
 
-    private List<Map.Entry<Pattern, TristateResult>> regexPermissions = Collections.emptyList();
+    /**
+     * If patterns should only be evaluated when the permission starts with
+     * the literal prefix of the pattern.
+     */
+    private final boolean prefixFiltering;
+
+    private RegexEntry[] regexPermissions = EMPTY;
+
+    public RegexProcessor() {
+        this(false);
+    }
+
+    public RegexProcessor(boolean prefixFiltering) {
+        this.prefixFiltering = prefixFiltering;
+    }
 
     @Override
     public TristateResult hasPermission(String permission) {
-        for (Map.Entry<Pattern, TristateResult> e : this.regexPermissions) {
-            if (e.getKey().matcher(permission).matches()) {
-                return e.getValue();
+        for (RegexEntry e : this.regexPermissions) {
+            if (this.prefixFiltering && !permission.startsWith(e.prefix)) {
+                continue;
+            }
+            if (e.pattern.matcher(permission).matches()) {
+                return e.result;
             }
         }
         return TristateResult.UNDEFINED;
@@ -53,7 +69,7 @@ public class RegexProcessor extends AbstractSourceBasedProcessor implements Perm
 
     @Override
     public void refresh() {
-        ImmutableList.Builder<Map.Entry<Pattern, TristateResult>> builder = ImmutableList.builder();
+        List<RegexEntry> entries = new ArrayList<>();
         for (Map.Entry<String, Node> e : this.sourceMap.entrySet()) {
             RegexPermission.Builder regexPerm = RegexPermission.parse(e.getKey());
             if (regexPerm == null) {
@@ -66,8 +82,159 @@ public class RegexProcessor extends AbstractSourceBasedProcessor implements Perm
             }
 
             TristateResult value = RESULT_FACTORY.result(e.getValue());
-            builder.add(Maps.immutableEntry(pattern, value));
+            entries.add(new RegexEntry(pattern, literalPrefix(pattern.pattern()), value));
+        }
+        this.regexPermissions = entries.isEmpty() ? EMPTY : entries.toArray(EMPTY);
+    }
+
+    /**
+     * Gets the literal prefix which any string matching the given regex must start with.
+     *
+     * <p>The result is conservative: if the prefix cannot be determined with certainty,
+     * a shorter (possibly empty) prefix is returned.</p>
+     *
+     * @param regex the regex
+     * @return the literal prefix
+     */
+    public static String literalPrefix(String regex) {
+        // a top-level alternation means there is no common prefix,
+        // and comments mode changes the meaning of whitespace and '#'
+        if (hasTopLevelAlternation(regex) || hasCommentsFlag(regex)) {
+            return "";
+        }
+
+        int len = regex.length();
+        int start = 0;
+        if (len != 0 && regex.charAt(0) == '^') {
+            start = 1;
+        }
+
+        int end = start;
+        while (end < len && !isMetaCharacter(regex.charAt(end))) {
+            end++;
+        }
+
+        // the last literal character is optional or repeated if followed by a quantifier,
+        // possibly after an (empty) quoted section
+        if (end < len && end > start) {
+            char next = regex.charAt(end);
+            if (next == '?' || next == '*' || next == '+' || next == '{' || isQuoteMarker(regex, end)) {
+                end--;
+            }
+        }
+
+        return end <= start ? "" : regex.substring(start, end);
+    }
+
+    private static boolean hasTopLevelAlternation(String regex) {
+        int len = regex.length();
+        int groupDepth = 0;
+        int classDepth = 0;
+
+        for (int i = 0; i < len; i++) {
+            char c = regex.charAt(i);
+
+            if (c == '\\') {
+                if (i + 1 < len && regex.charAt(i + 1) == 'Q') {
+                    // skip over the quoted section
+                    int quoteEnd = regex.indexOf("\\E", i + 2);
+                    if (quoteEnd == -1) {
+                        return false;
+                    }
+                    i = quoteEnd + 1;
+                } else {
+                    i++;
+                }
+                continue;
+            }
+
+            if (c == '[') {
+                classDepth++;
+
+                // a ']' immediately after the opening bracket (or negation) is a literal
+                if (i + 1 < len && regex.charAt(i + 1) == '^') {
+                    i++;
+                }
+                if (i + 1 < len && regex.charAt(i + 1) == ']') {
+                    i++;
+                }
+                continue;
+            }
+
+            if (classDepth != 0) {
+                if (c == ']') {
+                    classDepth--;
+                }
+                continue;
+            }
+
+            if (c == '(') {
+                groupDepth++;
+            } else if (c == ')') {
+                groupDepth--;
+            } else if (c == '|' && groupDepth <= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasCommentsFlag(String regex) {
+        int i = regex.indexOf("(?");
+        while (i != -1) {
+            for (int j = i + 2; j < regex.length(); j++) {
+                char c = regex.charAt(j);
+                if (c == 'x') {
+                    return true;
+                }
+                if (!Character.isLetter(c) && c != '-') {
+                    break;
+                }
+            }
+            i = regex.indexOf("(?", i + 2);
+        }
+        return false;
+    }
+
+    private static boolean isQuoteMarker(String regex, int index) {
+        if (regex.charAt(index) != '\\' || index + 1 >= regex.length()) {
+            return false;
+        }
+        char c = regex.charAt(index + 1);
+        return c == 'Q' || c == 'E';
+    }
+
+    private static boolean isMetaCharacter(char c) {
+        switch (c) {
+            case '\\':
+            case '[':
+            case ']':
+            case '(':
+            case ')':
+            case '{':
+            case '}':
+            case '.':
+            case '*':
+            case '+':
+            case '?':
+            case '^':
+            case '$':
+            case '|':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static final class RegexEntry {
+        private final Pattern pattern;
+        private final String prefix;
+        private final TristateResult result;
+
+        RegexEntry(Pattern pattern, String prefix, TristateResult result) {
+            this.pattern = pattern;
+            this.prefix = prefix;
+            this.result = result;
         }
-        this.regexPermissions = builder.build();
     }
 }
@@ -0,0 +1,167 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.calculator.processor;
+
+import me.lucko.luckperms.common.cacheddata.result.TristateResult;
+import me.lucko.luckperms.common.node.AbstractNode;
+import net.luckperms.api.node.Node;
+import net.luckperms.api.util.Tristate;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Alternative implementation of {@link WildcardProcessor} which resolves wildcard
+ * permissions using a character trie.
+ *
+ * <p>Instead of repeatedly truncating the permission and performing a map lookup
+ * for each prefix, the permission is walked once from left to right. The most specific
+ * matching wildcard is the last one encountered before a separator. No objects are
+ * allocated during a lookup.</p>
+ */
+public class TrieWildcardProcessor extends AbstractSourceBasedProcessor implements PermissionProcessor {
+    private static final TristateResult.Factory RESULT_FACTORY = new TristateResult.Factory(TrieWildcardProcessor.class);
+
+    private TrieNode root = TrieNode.EMPTY;
+    private TristateResult rootWildcardState = TristateResult.UNDEFINED;
+
+    @Override
+    public TristateResult hasPermission(String permission) {
+        TristateResult match = this.rootWildcardState;
+
+        TrieNode node = this.root;
+        int len = permission.length();
+        for (int i = 0; i < len; i++) {
+            char c = permission.charAt(i);
+
+            // "a.b.*" is stored under the key "a.b", so a match is only valid once
+            // the walk reaches a separator (an empty prefix never matches)
+            if (c == AbstractNode.NODE_SEPARATOR && i != 0 && node.value != null) {
+                match = node.value;
+            }
+
+            node = node.child(c);
+            if (node == null) {
+                break;
+            }
+        }
+
+        return match;
+    }
+
+    @Override
+    public void refresh() {
+        MutableTrieNode root = new MutableTrieNode();
+        for (Map.Entry<String, Node> e : this.sourceMap.entrySet()) {
+            String key = e.getKey();
+            if (!key.endsWith(WildcardProcessor.WILDCARD_SUFFIX) || key.length() <= 2) {
+                continue;
+            }
+
+            TristateResult value = RESULT_FACTORY.result(e.getValue());
+            if (value.result() == Tristate.UNDEFINED) {
+                continue;
+            }
+
+            MutableTrieNode node = root;
+            for (int i = 0, end = key.length() - 2; i < end; i++) {
+                node = node.getOrCreateChild(key.charAt(i));
+            }
+            node.value = value;
+        }
+        this.root = root.freeze();
+
+        Node rootWildcard = this.sourceMap.get(WildcardProcessor.ROOT_WILDCARD);
+        if (rootWildcard == null) {
+            rootWildcard = this.sourceMap.get(WildcardProcessor.ROOT_WILDCARD_WITH_QUOTES);
+        }
+        this.rootWildcardState = rootWildcard == null ? TristateResult.UNDEFINED : RESULT_FACTORY.result(rootWildcard);
+    }
+
+    /**
+     * An immutable trie node. Children are stored in parallel arrays, sorted by key.
+     */
+    private static final class TrieNode {
+        static final TrieNode EMPTY = new TrieNode(new char[0], new TrieNode[0], null);
+
+        private final char[] keys;
+        private final TrieNode[] children;
+        private final TristateResult value;
+
+        TrieNode(char[] keys, TrieNode[] children, TristateResult value) {
+            this.keys = keys;
+            this.children = children;
+            this.value = value;
+        }
+
+        TrieNode child(char c) {
+            int idx = Arrays.binarySearch(this.keys, c);
+            return idx < 0 ? null : this.children[idx];
+        }
+    }
+
+    /**
+     * A mutable trie node, used to build a {@link TrieNode} tree.
+     */
+    private static final class MutableTrieNode {
+        private char[] keys = new char[0];
+        private MutableTrieNode[] children = new MutableTrieNode[0];
+        private TristateResult value;
+
+        MutableTrieNode getOrCreateChild(char c) {
+            int idx = Arrays.binarySearch(this.keys, c);
+            if (idx >= 0) {
+                return this.children[idx];
+            }
+
+            int insert = -(idx + 1);
+            int size = this.keys.length;
+
+            char[] keys = new char[size + 1];
+            MutableTrieNode[] children = new MutableTrieNode[size + 1];
+            System.arraycopy(this.keys, 0, keys, 0, insert);
+            System.arraycopy(this.children, 0, children, 0, insert);
+            System.arraycopy(this.keys, insert, keys, insert + 1, size - insert);
+            System.arraycopy(this.children, insert, children, insert + 1, size - insert);
+
+            MutableTrieNode child = new MutableTrieNode();
+            keys[insert] = c;
+            children[insert] = child;
+
+            this.keys = keys;
+            this.children = children;
+            return child;
+        }
+
+        TrieNode freeze() {
+            TrieNode[] children = new TrieNode[this.children.length];
+            for (int i = 0; i < children.length; i++) {
+                children[i] = this.children[i].freeze();
+            }
+            return new TrieNode(this.keys, children, this.value);
+        }
+    }
+}
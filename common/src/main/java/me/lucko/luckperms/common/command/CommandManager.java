@@ -84,9 +84,14 @@ import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -96,18 +101,34 @@ import java.util.stream.Collectors;
 public class CommandManager {
 
     private final LuckPermsPlugin plugin;
-    private final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
-            .setDaemon(true)
-            .setNameFormat("luckperms-command-executor")
-            .build()
-    );
-    private final AtomicBoolean executingCommand = new AtomicBoolean(false);
+    private final ExecutorService executor;
+    private final boolean concurrentExecution;
+    private final ReadWriteLock exclusiveLock = new ReentrantReadWriteLock(true);
+    private final AtomicInteger executingCommands = new AtomicInteger(0);
     private final Set<UUID> playerRateLimit = ExpiringSet.newExpiringSet(500, TimeUnit.MILLISECONDS);
     private final TabCompletions tabCompletions;
     private final Map<String, Command<?>> mainCommands;
 
     public CommandManager(LuckPermsPlugin plugin) {
         this.plugin = plugin;
+        this.concurrentExecution = plugin.getConfiguration().get(ConfigKeys.COMMANDS_CONCURRENT_EXECUTION);
+        if (this.concurrentExecution) {
+            // commands beyond the thread limit are queued, and run in order as threads become free
+            int threads = plugin.getConfiguration().get(ConfigKeys.COMMANDS_CONCURRENT_EXECUTION_THREADS);
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("luckperms-command-executor-%d")
+                    .build()
+            );
+            executor.allowCoreThreadTimeOut(true);
+            this.executor = executor;
+        } else {
+            this.executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("luckperms-command-executor")
+                    .build()
+            );
+        }
         this.tabCompletions = new TabCompletions(plugin);
         this.mainCommands = ImmutableList.<Command<?>>builder()
                 .add(new UserParentCommand())
@@ -163,21 +184,35 @@ public class CommandManager {
         SchedulerAdapter scheduler = this.plugin.getBootstrap().getScheduler();
         List<String> argsCopy = new ArrayList<>(args);
 
-        // if the executingCommand flag is set, there is another command executing at the moment
-        if (this.executingCommand.get()) {
+        // commands which must not run alongside any others (e.g. bulkupdate, import) take the
+        // write lock, everything else shares the read lock. commands acting on the same
+        // user/group/track are further serialised by the per-target locks in ParentCommand
+        boolean exclusive = isExclusive(argsCopy);
+        Lock lock = exclusive ? this.exclusiveLock.writeLock() : this.exclusiveLock.readLock();
+
+        // if there are commands executing that this one will have to wait for, let the sender know
+        boolean mustWait = this.concurrentExecution
+                ? this.exclusiveLock.isWriteLocked() || (exclusive && this.executingCommands.get() != 0)
+                : this.executingCommands.get() != 0;
+        if (mustWait) {
             Message.ALREADY_EXECUTING_COMMAND.send(sender);
         }
 
         // a reference to the thread being used to execute the command
         AtomicReference<Thread> executorThread = new AtomicReference<>();
-        // a reference to the timeout task scheduled to catch if this command takes too long to execute
-        AtomicReference<SchedulerTask> timeoutTask = new AtomicReference<>();
 
         // schedule the actual execution of the command using the command executor service
         CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
             // set flags
             executorThread.set(Thread.currentThread());
-            this.executingCommand.set(true);
+            this.executingCommands.incrementAndGet();
+
+            // wait for any commands this one can't run alongside
+            lock.lock();
+
+            // schedule another task to catch if the command doesn't complete after 10 seconds,
+            // not counting the time spent waiting for the lock
+            SchedulerTask timeoutTask = scheduler.asyncLater(() -> handleCommandTimeout(executorThread, argsCopy), 10, TimeUnit.SECONDS);
 
             // actually try to execute the command
             try {
@@ -186,28 +221,32 @@ public class CommandManager {
                 // catch any exception
                 this.plugin.getLogger().severe("Exception whilst executing command: " + args, e);
             } finally {
+                // cancel the timeout task
+                timeoutTask.cancel();
+
+                lock.unlock();
+
                 // unset flags
-                this.executingCommand.set(false);
+                this.executingCommands.decrementAndGet();
                 executorThread.set(null);
-
-                // cancel the timeout task
-                SchedulerTask timeout;
-                if ((timeout = timeoutTask.get()) != null) {
-                    timeout.cancel();
-                }
             }
         }, this.executor);
 
-        // schedule another task to catch if the command doesn't complete after 10 seconds
-        timeoutTask.set(scheduler.asyncLater(() -> {
-            if (!future.isDone()) {
-                handleCommandTimeout(executorThread, argsCopy);
-            }
-        }, 10, TimeUnit.SECONDS));
-
         return future;
     }
 
+    private boolean isExclusive(List<String> args) {
+        if (!this.concurrentExecution || args.isEmpty()) {
+            return false;
+        }
+
+        List<String> arguments = new ArrayList<>(args);
+        applyConvenienceAliases(arguments, true);
+
+        Command<?> main = this.mainCommands.get(arguments.get(0).toLowerCase(Locale.ROOT));
+        return main != null && main.isExclusive(arguments.subList(1, arguments.size()));
+    }
+
     private void handleCommandTimeout(AtomicReference<Thread> thread, List<String> args) {
         Thread executorThread = thread.get();
         if (executorThread == null) {
@@ -193,4 +193,25 @@ public abstract class Command<T> {
         return true;
     }
 
+    /**
+     * Gets if this command must not be executed at the same time as any other
+     * command, when commands are being executed concurrently.
+     *
+     * @return if the command should be executed exclusively
+     */
+    public boolean isExclusive() {
+        return false;
+    }
+
+    /**
+     * Gets if this command, when executed with the given arguments, must not be
+     * executed at the same time as any other command.
+     *
+     * @param args the arguments the command will be executed with
+     * @return if the command should be executed exclusively
+     */
+    public boolean isExclusive(List<String> args) {
+        return isExclusive();
+    }
+
 }
@@ -183,6 +183,22 @@ public abstract class ParentCommand<T, I> extends Command<Void> {
         return getChildren().stream().anyMatch(sc -> sc.isAuthorized(sender));
     }
 
+    @Override
+    public boolean isExclusive(List<String> args) {
+        // sub commands which act on more than one target (e.g. rename, clone) are only
+        // covered by the lock for the first, so must run exclusively instead
+        if (args.size() < this.type.minArgs) {
+            return false;
+        }
+
+        String name = args.get(this.type.cmdIndex);
+        return getChildren().stream()
+                .filter(s -> s.getName().equalsIgnoreCase(name))
+                .findFirst()
+                .map(Command::isExclusive)
+                .orElse(false);
+    }
+
     protected List<String> getTargets(LuckPermsPlugin plugin) {
         throw new UnsupportedOperationException();
     }
@@ -98,7 +98,7 @@ public final class StorageAssistant {
             return failedFuture(e);
         }
 
-        return invalidateCachesAndPushUpdates(plugin);
+        return invalidateCachesAndPushUpdates(plugin, group);
     }
 
     public static CompletableFuture<Void> save(Track track, Sender sender, LuckPermsPlugin plugin) {
@@ -110,7 +110,7 @@ public final class StorageAssistant {
             return failedFuture(e);
         }
 
-        return invalidateCachesAndPushUpdates(plugin);
+        return invalidateCachesAndPushUpdates(plugin, track);
     }
 
     public static void save(PermissionHolder holder, Sender sender, LuckPermsPlugin plugin) {
@@ -125,13 +125,25 @@ public final class StorageAssistant {
         }
     }
 
-    public static CompletableFuture<Void> invalidateCachesAndPushUpdates(LuckPermsPlugin plugin) {
+    public static CompletableFuture<Void> invalidateCachesAndPushUpdates(LuckPermsPlugin plugin, Group group) {
+        // only invalidate the caches which were calculated by inheriting from the group
+        plugin.getCacheDependencyIndex().invalidateDependents(group.getName());
+
+        Optional<InternalMessagingService> messagingService = plugin.getMessagingService();
+        if (messagingService.isPresent() && plugin.getConfiguration().get(ConfigKeys.AUTO_PUSH_UPDATES)) {
+            return messagingService.get().requestGroupUpdate(group);
+        } else {
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    public static CompletableFuture<Void> invalidateCachesAndPushUpdates(LuckPermsPlugin plugin, Track track) {
         plugin.getGroupManager().invalidateAllGroupCaches();
         plugin.getUserManager().invalidateAllUserCaches();
 
         Optional<InternalMessagingService> messagingService = plugin.getMessagingService();
         if (messagingService.isPresent() && plugin.getConfiguration().get(ConfigKeys.AUTO_PUSH_UPDATES)) {
-            return messagingService.get().getUpdateBuffer().request();
+            return messagingService.get().requestTrackUpdate(track);
         } else {
             return CompletableFuture.completedFuture(null);
         }
@@ -136,4 +136,10 @@ public class DeleteGroup extends SingleCommand {
                 .at(1, CompletionSupplier.startsWith("--update-parent-lists"))
                 .complete(args);
     }
+
+    @Override
+    public boolean isExclusive() {
+        return true;
+    }
+
 }
@@ -82,4 +82,9 @@ public class GroupClone extends ChildCommand<Group> {
 
         StorageAssistant.save(newGroup, sender, plugin);
     }
+
+    @Override
+    public boolean isExclusive() {
+        return true;
+    }
 }
@@ -132,4 +132,9 @@ public class GroupRename extends ChildCommand<Group> {
                 .at(1, CompletionSupplier.startsWith("--update-parent-lists"))
                 .complete(args);
     }
+
+    @Override
+    public boolean isExclusive() {
+        return true;
+    }
 }
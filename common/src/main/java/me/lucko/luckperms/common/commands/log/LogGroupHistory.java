@@ -34,12 +34,14 @@ import me.lucko.luckperms.common.command.spec.CommandSpec;
 import me.lucko.luckperms.common.command.tabcomplete.TabCompleter;
 import me.lucko.luckperms.common.command.tabcomplete.TabCompletions;
 import me.lucko.luckperms.common.command.utils.ArgumentList;
+import me.lucko.luckperms.common.filter.FilterList;
 import me.lucko.luckperms.common.filter.PageParameters;
 import me.lucko.luckperms.common.locale.Message;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.sender.Sender;
 import me.lucko.luckperms.common.storage.misc.DataConstraints;
 import me.lucko.luckperms.common.util.Predicates;
+import net.luckperms.api.actionlog.Action;
 
 import java.util.List;
 import java.util.Locale;
@@ -47,8 +49,11 @@ import java.util.Locale;
 public class LogGroupHistory extends ChildCommand<Void> {
     private static final int ENTRIES_PER_PAGE = 10;
 
-    public LogGroupHistory() {
+    private final LogPageCursors cursors;
+
+    public LogGroupHistory(LogPageCursors cursors) {
         super(CommandSpec.LOG_GROUP_HISTORY, "grouphistory", CommandPermission.LOG_GROUP_HISTORY, Predicates.notInRange(1, 2));
+        this.cursors = cursors;
     }
 
     @Override
@@ -59,8 +64,10 @@ public class LogGroupHistory extends ChildCommand<Void> {
             return;
         }
 
-        PageParameters pageParams = new PageParameters(ENTRIES_PER_PAGE, args.getIntOrDefault(1, 1));
-        LogPage log = plugin.getStorage().getLogPage(ActionFilters.group(group), pageParams).join();
+        FilterList<Action> filters = ActionFilters.group(group);
+        PageParameters pageParams = this.cursors.getPageParameters(sender, filters, new PageParameters(ENTRIES_PER_PAGE, args.getIntOrDefault(1, 1)));
+        LogPage log = plugin.getStorage().getLogPage(filters, pageParams).join();
+        this.cursors.remember(sender, filters, pageParams, log);
 
         int page = pageParams.pageNumber();
         int maxPage = pageParams.getMaxPage(log.getTotalEntries());
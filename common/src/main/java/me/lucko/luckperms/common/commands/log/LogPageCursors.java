@@ -0,0 +1,112 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.commands.log;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import me.lucko.luckperms.common.actionlog.LogPage;
+import me.lucko.luckperms.common.filter.FilterList;
+import me.lucko.luckperms.common.filter.PageParameters;
+import me.lucko.luckperms.common.sender.Sender;
+import me.lucko.luckperms.common.util.CaffeineFactory;
+import net.luckperms.api.actionlog.Action;
+
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers where the last page of the log viewed by each sender ended.
+ *
+ * <p>When the sender then asks for the following page, the query can continue
+ * from there (see {@link PageParameters#cursor()}), instead of the storage
+ * skipping over every entry on the pages before it.</p>
+ */
+final class LogPageCursors {
+    private final Cache<Key, PageParameters> nextPages = CaffeineFactory.newBuilder()
+            .expireAfterWrite(5, TimeUnit.MINUTES)
+            .maximumSize(1000)
+            .build();
+
+    /**
+     * Gets the parameters to fetch a page of the log with, continuing from the
+     * end of the previous page if the sender has just viewed it.
+     *
+     * @param sender the sender
+     * @param filters the filters being applied to the log
+     * @param params the page being requested
+     * @return the parameters to use
+     */
+    PageParameters getPageParameters(Sender sender, FilterList<Action> filters, PageParameters params) {
+        PageParameters next = this.nextPages.getIfPresent(new Key(sender.getUniqueId(), filters, params));
+        return next != null && next.exactTotal() == params.exactTotal() ? next : params;
+    }
+
+    /**
+     * Records the end of a page of the log which has been viewed by the sender.
+     *
+     * @param sender the sender
+     * @param filters the filters applied to the log
+     * @param params the parameters the page was fetched with
+     * @param page the page
+     */
+    void remember(Sender sender, FilterList<Action> filters, PageParameters params, LogPage page) {
+        PageParameters.Cursor cursor = page.getNextCursor();
+        if (cursor != null) {
+            PageParameters next = params.next(cursor);
+            this.nextPages.put(new Key(sender.getUniqueId(), filters, next), next);
+        }
+    }
+
+    private static final class Key {
+        private final UUID sender;
+        private final String filters;
+        private final int pageSize;
+        private final int pageNumber;
+
+        Key(UUID sender, FilterList<Action> filters, PageParameters params) {
+            this.sender = sender;
+            this.filters = filters.toString();
+            this.pageSize = params.pageSize();
+            this.pageNumber = params.pageNumber();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return this.sender.equals(other.sender) &&
+                    this.filters.equals(other.filters) &&
+                    this.pageSize == other.pageSize &&
+                    this.pageNumber == other.pageNumber;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.sender, this.filters, this.pageSize, this.pageNumber);
+        }
+    }
+}
@@ -32,13 +32,17 @@ import me.lucko.luckperms.common.command.spec.CommandSpec;
 
 public class LogParentCommand extends ParentCommand<Void, Void> {
     public LogParentCommand() {
+        this(new LogPageCursors());
+    }
+
+    private LogParentCommand(LogPageCursors cursors) {
         super(CommandSpec.LOG, "Log", Type.NOT_TARGETED, ImmutableList.<Command<Void>>builder()
-                .add(new LogRecent())
-                .add(new LogSearch())
+                .add(new LogRecent(cursors))
+                .add(new LogSearch(cursors))
                 .add(new LogNotify())
-                .add(new LogUserHistory())
-                .add(new LogGroupHistory())
-                .add(new LogTrackHistory())
+                .add(new LogUserHistory(cursors))
+                .add(new LogGroupHistory(cursors))
+                .add(new LogTrackHistory(cursors))
                 .build()
         );
     }
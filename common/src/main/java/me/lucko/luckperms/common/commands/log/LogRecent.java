@@ -32,11 +32,13 @@ import me.lucko.luckperms.common.command.abstraction.ChildCommand;
 import me.lucko.luckperms.common.command.access.CommandPermission;
 import me.lucko.luckperms.common.command.spec.CommandSpec;
 import me.lucko.luckperms.common.command.utils.ArgumentList;
+import me.lucko.luckperms.common.filter.FilterList;
 import me.lucko.luckperms.common.filter.PageParameters;
 import me.lucko.luckperms.common.locale.Message;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.sender.Sender;
 import me.lucko.luckperms.common.util.Predicates;
+import net.luckperms.api.actionlog.Action;
 
 import java.util.List;
 import java.util.UUID;
@@ -44,8 +46,11 @@ import java.util.UUID;
 public class LogRecent extends ChildCommand<Void> {
     private static final int ENTRIES_PER_PAGE = 10;
     
-    public LogRecent() {
+    private final LogPageCursors cursors;
+
+    public LogRecent(LogPageCursors cursors) {
         super(CommandSpec.LOG_RECENT, "recent", CommandPermission.LOG_RECENT, Predicates.notInRange(0, 2));
+        this.cursors = cursors;
     }
 
     @Override
@@ -71,7 +76,14 @@ public class LogRecent extends ChildCommand<Void> {
         }
 
         PageParameters pageParams = new PageParameters(ENTRIES_PER_PAGE, page);
-        LogPage log = plugin.getStorage().getLogPage(uuid == null ? ActionFilters.all() : ActionFilters.source(uuid), pageParams).join();
+        if (uuid == null) {
+            // the total for the whole log doesn't need to be exact, and is expensive to count
+            pageParams = pageParams.withEstimatedTotal();
+        }
+        FilterList<Action> filters = uuid == null ? ActionFilters.all() : ActionFilters.source(uuid);
+        pageParams = this.cursors.getPageParameters(sender, filters, pageParams);
+        LogPage log = plugin.getStorage().getLogPage(filters, pageParams).join();
+        this.cursors.remember(sender, filters, pageParams, log);
 
         int maxPage = pageParams.getMaxPage(log.getTotalEntries());
         if (log.getTotalEntries() == 0) {
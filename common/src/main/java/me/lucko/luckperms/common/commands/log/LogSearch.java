@@ -32,19 +32,24 @@ import me.lucko.luckperms.common.command.abstraction.ChildCommand;
 import me.lucko.luckperms.common.command.access.CommandPermission;
 import me.lucko.luckperms.common.command.spec.CommandSpec;
 import me.lucko.luckperms.common.command.utils.ArgumentList;
+import me.lucko.luckperms.common.filter.FilterList;
 import me.lucko.luckperms.common.filter.PageParameters;
 import me.lucko.luckperms.common.locale.Message;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.sender.Sender;
 import me.lucko.luckperms.common.util.Predicates;
+import net.luckperms.api.actionlog.Action;
 
 import java.util.List;
 
 public class LogSearch extends ChildCommand<Void> {
     private static final int ENTRIES_PER_PAGE = 10;
 
-    public LogSearch() {
+    private final LogPageCursors cursors;
+
+    public LogSearch(LogPageCursors cursors) {
         super(CommandSpec.LOG_SEARCH, "search", CommandPermission.LOG_SEARCH, Predicates.is(0));
+        this.cursors = cursors;
     }
 
     @Override
@@ -60,8 +65,10 @@ public class LogSearch extends ChildCommand<Void> {
         }
 
         final String query = String.join(" ", args);
-        PageParameters pageParams = new PageParameters(ENTRIES_PER_PAGE, page);
-        LogPage log = plugin.getStorage().getLogPage(ActionFilters.search(query), pageParams).join();
+        FilterList<Action> filters = ActionFilters.search(query);
+        PageParameters pageParams = this.cursors.getPageParameters(sender, filters, new PageParameters(ENTRIES_PER_PAGE, page));
+        LogPage log = plugin.getStorage().getLogPage(filters, pageParams).join();
+        this.cursors.remember(sender, filters, pageParams, log);
 
         int maxPage = pageParams.getMaxPage(log.getTotalEntries());
         if (log.getTotalEntries() == 0) {
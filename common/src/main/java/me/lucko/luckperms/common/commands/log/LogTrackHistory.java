@@ -34,12 +34,14 @@ import me.lucko.luckperms.common.command.spec.CommandSpec;
 import me.lucko.luckperms.common.command.tabcomplete.TabCompleter;
 import me.lucko.luckperms.common.command.tabcomplete.TabCompletions;
 import me.lucko.luckperms.common.command.utils.ArgumentList;
+import me.lucko.luckperms.common.filter.FilterList;
 import me.lucko.luckperms.common.filter.PageParameters;
 import me.lucko.luckperms.common.locale.Message;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.sender.Sender;
 import me.lucko.luckperms.common.storage.misc.DataConstraints;
 import me.lucko.luckperms.common.util.Predicates;
+import net.luckperms.api.actionlog.Action;
 
 import java.util.List;
 import java.util.Locale;
@@ -47,8 +49,11 @@ import java.util.Locale;
 public class LogTrackHistory extends ChildCommand<Void> {
     private static final int ENTRIES_PER_PAGE = 10;
 
-    public LogTrackHistory() {
+    private final LogPageCursors cursors;
+
+    public LogTrackHistory(LogPageCursors cursors) {
         super(CommandSpec.LOG_TRACK_HISTORY, "trackhistory", CommandPermission.LOG_TRACK_HISTORY, Predicates.notInRange(1, 2));
+        this.cursors = cursors;
     }
 
     @Override
@@ -58,8 +63,10 @@ public class LogTrackHistory extends ChildCommand<Void> {
             Message.TRACK_INVALID_ENTRY.send(sender, track);
             return;
         }
-        PageParameters pageParams = new PageParameters(ENTRIES_PER_PAGE, args.getIntOrDefault(1, 1));
-        LogPage log = plugin.getStorage().getLogPage(ActionFilters.track(track), pageParams).join();
+        FilterList<Action> filters = ActionFilters.track(track);
+        PageParameters pageParams = this.cursors.getPageParameters(sender, filters, new PageParameters(ENTRIES_PER_PAGE, args.getIntOrDefault(1, 1)));
+        LogPage log = plugin.getStorage().getLogPage(filters, pageParams).join();
+        this.cursors.remember(sender, filters, pageParams, log);
 
         int page = pageParams.pageNumber();
         int maxPage = pageParams.getMaxPage(log.getTotalEntries());
@@ -32,11 +32,13 @@ import me.lucko.luckperms.common.command.abstraction.ChildCommand;
 import me.lucko.luckperms.common.command.access.CommandPermission;
 import me.lucko.luckperms.common.command.spec.CommandSpec;
 import me.lucko.luckperms.common.command.utils.ArgumentList;
+import me.lucko.luckperms.common.filter.FilterList;
 import me.lucko.luckperms.common.filter.PageParameters;
 import me.lucko.luckperms.common.locale.Message;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.sender.Sender;
 import me.lucko.luckperms.common.util.Predicates;
+import net.luckperms.api.actionlog.Action;
 
 import java.util.List;
 import java.util.UUID;
@@ -44,8 +46,11 @@ import java.util.UUID;
 public class LogUserHistory extends ChildCommand<Void> {
     private static final int ENTRIES_PER_PAGE = 10;
 
-    public LogUserHistory() {
+    private final LogPageCursors cursors;
+
+    public LogUserHistory(LogPageCursors cursors) {
         super(CommandSpec.LOG_USER_HISTORY, "userhistory", CommandPermission.LOG_USER_HISTORY, Predicates.notInRange(1, 2));
+        this.cursors = cursors;
     }
 
     @Override
@@ -55,8 +60,10 @@ public class LogUserHistory extends ChildCommand<Void> {
             return;
         }
 
-        PageParameters pageParams = new PageParameters(ENTRIES_PER_PAGE, args.getIntOrDefault(1, 1));
-        LogPage log = plugin.getStorage().getLogPage(ActionFilters.user(uuid), pageParams).join();
+        FilterList<Action> filters = ActionFilters.user(uuid);
+        PageParameters pageParams = this.cursors.getPageParameters(sender, filters, new PageParameters(ENTRIES_PER_PAGE, args.getIntOrDefault(1, 1)));
+        LogPage log = plugin.getStorage().getLogPage(filters, pageParams).join();
+        this.cursors.remember(sender, filters, pageParams, log);
 
         int page = pageParams.pageNumber();
         int maxPage = pageParams.getMaxPage(log.getTotalEntries());
@@ -79,4 +79,10 @@ public class ApplyEditsCommand extends SingleCommand {
     public boolean shouldDisplay() {
         return false;
     }
+
+    @Override
+    public boolean isExclusive() {
+        return true;
+    }
+
 }
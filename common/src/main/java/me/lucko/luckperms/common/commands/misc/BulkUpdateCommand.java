@@ -178,4 +178,10 @@ public class BulkUpdateCommand extends SingleCommand {
             }
         }, plugin.getBootstrap().getScheduler().async());
     }
+
+    @Override
+    public boolean isExclusive() {
+        return true;
+    }
+
 }
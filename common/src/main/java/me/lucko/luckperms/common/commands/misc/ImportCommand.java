@@ -146,4 +146,9 @@ public class ImportCommand extends SingleCommand {
         return this.running.get();
     }
 
+    @Override
+    public boolean isExclusive() {
+        return true;
+    }
+
 }
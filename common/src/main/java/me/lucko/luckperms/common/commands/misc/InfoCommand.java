@@ -25,6 +25,7 @@
 
 package me.lucko.luckperms.common.commands.misc;
 
+import me.lucko.luckperms.common.calculator.PermissionCalculator;
 import me.lucko.luckperms.common.command.abstraction.SingleCommand;
 import me.lucko.luckperms.common.command.access.CommandPermission;
 import me.lucko.luckperms.common.command.spec.CommandSpec;
@@ -34,6 +35,8 @@ import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.sender.Sender;
 import me.lucko.luckperms.common.util.Predicates;
 
+import java.util.stream.Stream;
+
 public class InfoCommand extends SingleCommand {
     public InfoCommand() {
         super(CommandSpec.INFO, "Info", CommandPermission.INFO, Predicates.alwaysFalse());
@@ -41,7 +44,13 @@ public class InfoCommand extends SingleCommand {
 
     @Override
     public void execute(LuckPermsPlugin plugin, Sender sender, ArgumentList args, String label) {
-        Message.INFO.send(sender, plugin, plugin.getStorage().getMeta());
+        // combine the lookup cache statistics for every loaded holder
+        PermissionCalculator.LookupCacheStats lookupStats = Stream.concat(
+                plugin.getUserManager().getAll().values().stream(),
+                plugin.getGroupManager().getAll().values().stream()
+        ).map(holder -> holder.getCachedData().getLookupCacheStats()).reduce(PermissionCalculator.LookupCacheStats.EMPTY, PermissionCalculator.LookupCacheStats::plus);
+
+        Message.INFO.send(sender, plugin, plugin.getStorage().getMeta(), lookupStats);
     }
 
 }
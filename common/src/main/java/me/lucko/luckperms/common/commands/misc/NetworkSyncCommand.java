@@ -62,4 +62,10 @@ public class NetworkSyncCommand extends SingleCommand {
             Message.UPDATE_TASK_PUSH_FAILURE.send(sender);
         }
     }
+
+    @Override
+    public boolean isExclusive() {
+        return true;
+    }
+
 }
@@ -45,4 +45,10 @@ public class SyncCommand extends SingleCommand {
         plugin.getSyncTaskBuffer().request().join();
         Message.UPDATE_TASK_COMPLETE.send(sender);
     }
+
+    @Override
+    public boolean isExclusive() {
+        return true;
+    }
+
 }
@@ -90,4 +90,10 @@ public class DeleteTrack extends SingleCommand {
                 .at(0, TabCompletions.tracks(plugin))
                 .complete(args);
     }
+
+    @Override
+    public boolean isExclusive() {
+        return true;
+    }
+
 }
@@ -82,4 +82,9 @@ public class TrackClone extends ChildCommand<Track> {
 
         StorageAssistant.save(newTrack, sender, plugin);
     }
+
+    @Override
+    public boolean isExclusive() {
+        return true;
+    }
 }
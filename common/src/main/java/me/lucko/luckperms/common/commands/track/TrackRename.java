@@ -94,4 +94,9 @@ public class TrackRename extends ChildCommand<Track> {
 
         StorageAssistant.save(newTrack, sender, plugin);
     }
+
+    @Override
+    public boolean isExclusive() {
+        return true;
+    }
 }
@@ -80,4 +80,9 @@ public class UserClone extends ChildCommand<User> {
         StorageAssistant.save(otherUser, sender, plugin);
         plugin.getUserManager().getHouseKeeper().cleanup(otherUser.getUniqueId());
     }
+
+    @Override
+    public boolean isExclusive() {
+        return true;
+    }
 }
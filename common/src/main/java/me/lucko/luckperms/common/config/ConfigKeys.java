@@ -100,6 +100,17 @@ public final class ConfigKeys {
         return val;
     }));
 
+    /**
+     * The maximum number of users to load from storage in a single batch, when
+     * loading or saving users in bulk (e.g. during a sync, an export or an import)
+     */
+    public static final ConfigKey<Integer> USER_LOAD_BATCH_SIZE = key(c -> c.getInteger("user-load-batch-size", 500));
+
+    /**
+     * The maximum number of user batches to load from storage concurrently
+     */
+    public static final ConfigKey<Integer> USER_LOAD_PARALLELISM = key(c -> c.getInteger("user-load-parallelism", 2));
+
     /**
      * The default global contexts instance
      */
@@ -251,6 +262,11 @@ public final class ConfigKeys {
      */
     public static final ConfigKey<Boolean> APPLYING_WILDCARDS = notReloadable(booleanKey("apply-wildcards", true));
 
+    /**
+     * If wildcards should be resolved using a trie instead of repeated prefix lookups
+     */
+    public static final ConfigKey<Boolean> TRIE_WILDCARD_RESOLUTION = notReloadable(booleanKey("trie-wildcard-resolution", false));
+
     /**
      * If Sponge's implicit permission inheritance system should be applied
      */
@@ -269,6 +285,16 @@ public final class ConfigKeys {
      */
     public static final ConfigKey<Boolean> APPLYING_REGEX = notReloadable(booleanKey("apply-regex", true));
 
+    /**
+     * If regex permissions should be prefiltered by their literal prefix
+     */
+    public static final ConfigKey<Boolean> REGEX_PREFIX_FILTERING = notReloadable(booleanKey("regex-prefix-filtering", false));
+
+    /**
+     * The maximum number of permission check results to cache per calculator. A value <= 0 means no limit.
+     */
+    public static final ConfigKey<Integer> PERMISSION_LOOKUP_CACHE_SIZE = key(c -> c.getInteger("permission-lookup-cache-size", -1));
+
     /**
      * If shorthand permissions are being applied
      */
@@ -473,6 +499,17 @@ public final class ConfigKeys {
      */
     public static final ConfigKey<Boolean> COMMANDS_RATE_LIMIT = booleanKey("commands-rate-limit", true);
 
+    /**
+     * If LuckPerms should execute commands concurrently, rather than one at a time.
+     */
+    public static final ConfigKey<Boolean> COMMANDS_CONCURRENT_EXECUTION = notReloadable(booleanKey("commands-concurrent-execution", false));
+
+    /**
+     * The maximum number of commands to execute at the same time, if concurrent execution is enabled.
+     * Further commands are queued until a thread becomes free.
+     */
+    public static final ConfigKey<Integer> COMMANDS_CONCURRENT_EXECUTION_THREADS = notReloadable(key(c -> Math.max(1, c.getInteger("commands-concurrent-execution-threads", 4))));
+
     /**
      * If Vault lookups for offline players on the main server thread should be enabled
      */
@@ -625,6 +662,11 @@ public final class ConfigKeys {
      */
     public static final ConfigKey<Boolean> AUTO_PUSH_UPDATES = notReloadable(booleanKey("auto-push-updates", true));
 
+    /**
+     * If updates for specific groups/tracks should be pushed instead of requesting a full sync
+     */
+    public static final ConfigKey<Boolean> PUSH_TARGETED_UPDATES = notReloadable(booleanKey("push-targeted-updates", true));
+
     /**
      * If LuckPerms should push logging entries to connected servers via the messaging service
      */
@@ -635,6 +677,16 @@ public final class ConfigKeys {
      */
     public static final ConfigKey<Boolean> BROADCAST_RECEIVED_LOG_ENTRIES = notReloadable(booleanKey("broadcast-received-log-entries", false));
 
+    /**
+     * The shortest interval in milliseconds between polls by the sql messaging service, used after activity
+     */
+    public static final ConfigKey<Integer> SQL_MESSENGER_MIN_POLL_INTERVAL = notReloadable(key(c -> c.getInteger("sql-messenger.min-poll-interval", 50)));
+
+    /**
+     * The longest interval in milliseconds between polls by the sql messaging service, used whilst idle
+     */
+    public static final ConfigKey<Integer> SQL_MESSENGER_MAX_POLL_INTERVAL = notReloadable(key(c -> c.getInteger("sql-messenger.max-poll-interval", 5000)));
+
     /**
      * If redis messaging is enabled
      */
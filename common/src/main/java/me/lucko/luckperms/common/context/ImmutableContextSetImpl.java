@@ -28,6 +28,8 @@ package me.lucko.luckperms.common.context;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Multimaps;
 import me.lucko.luckperms.common.context.comparator.ContextComparator;
@@ -61,16 +63,64 @@ public final class ImmutableContextSetImpl extends AbstractContextSet implements
         return new ImmutableContextSetImpl(new Context[]{new ContextImpl(key, value)});
     }
 
+    /**
+     * Pool of canonical instances. Most subjects share a small number of distinct
+     * context sets, so interning lets equality checks & map lookups hit on identity.
+     */
+    private static final Interner<ImmutableContextSet> INTERNER = Interners.newWeakInterner();
+
+    /**
+     * Gets the canonical instance of the given context set.
+     *
+     * <p>Instances are held weakly, and will be removed from the pool once
+     * they are no longer referenced elsewhere.</p>
+     *
+     * @param contextSet the context set
+     * @return the canonical instance equal to the context set
+     */
+    public static ImmutableContextSet intern(ImmutableContextSet contextSet) {
+        if (contextSet.isEmpty()) {
+            return EMPTY;
+        }
+        return INTERNER.intern(contextSet);
+    }
+
     private final Context[] array;
     private final int size;
     private final int hashCode;
 
+    /*
+     * Bloom-style summaries of the keys and key=value pairs in the set, one bit per element.
+     * They can only give false positives, so are used to rule out satisfaction checks
+     * (which happen a lot when caches are rebuilt) without searching the array.
+     */
+    private final long keySummary;
+    private final long pairSummary;
+
     private ImmutableSetMultimap<String, String> cachedMap;
 
     ImmutableContextSetImpl(Context[] contexts) {
         this.array = contexts; // always sorted
         this.size = this.array.length;
         this.hashCode = Arrays.hashCode(this.array);
+
+        long keySummary = 0;
+        long pairSummary = 0;
+        for (Context context : contexts) {
+            keySummary |= summaryBit(context.getKey().hashCode());
+            pairSummary |= summaryBit(pairHash(context.getKey(), context.getValue()));
+        }
+        this.keySummary = keySummary;
+        this.pairSummary = pairSummary;
+    }
+
+    private static int pairHash(String key, String value) {
+        return key.hashCode() * 31 + value.hashCode();
+    }
+
+    private static long summaryBit(int hash) {
+        // use the top 6 bits of a fibonacci hash to pick one of 64 bits
+        return 1L << ((hash * 0x9E3779B9) >>> 26);
     }
 
     @Override
@@ -126,6 +176,10 @@ public final class ImmutableContextSetImpl extends AbstractContextSet implements
 
     @Override
     protected boolean otherContainsAll(ContextSet other, ContextSatisfyMode mode) {
+        if (other instanceof ImmutableContextSetImpl && !summaryMaySatisfy((ImmutableContextSetImpl) other, mode)) {
+            return false;
+        }
+
         switch (mode) {
             // Use other.contains
             case ALL_VALUES_PER_KEY: {
@@ -166,6 +220,64 @@ public final class ImmutableContextSetImpl extends AbstractContextSet implements
         }
     }
 
+    /**
+     * Tests, using the summaries, whether this set could be satisfied by the other set.
+     *
+     * <p>A return value of false is definite, true means that the sets need to be
+     * checked properly.</p>
+     *
+     * @param other the other set
+     * @param mode the satisfy mode
+     * @return false if this set definitely isn't satisfied by the other
+     */
+    private boolean summaryMaySatisfy(ImmutableContextSetImpl other, ContextSatisfyMode mode) {
+        switch (mode) {
+            case ALL_VALUES_PER_KEY:
+                // every pair must be present in the other set
+                return (this.pairSummary & ~other.pairSummary) == 0;
+            case AT_LEAST_ONE_VALUE_PER_KEY:
+                // every key must be present in the other set, and this set isn't empty
+                // so at least one pair must be shared
+                return (this.keySummary & ~other.keySummary) == 0 && (this.pairSummary & other.pairSummary) != 0;
+            default:
+                return true;
+        }
+    }
+
+    private int indexOf(String key, String value) {
+        int low = 0;
+        int high = this.size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = ContextComparator.INSTANCE.compare(this.array[mid], key, value);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private int indexOfKey(String key) {
+        int low = 0;
+        int high = this.size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = this.array[mid].getKey().compareTo(key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == this) return true;
@@ -195,7 +307,10 @@ public final class ImmutableContextSetImpl extends AbstractContextSet implements
     @Override
     public boolean containsKey(@NonNull String key) {
         Objects.requireNonNull(key, "key");
-        return Arrays.binarySearch(this.array, new ContextImpl(key, null), ContextComparator.ONLY_KEY) >= 0;
+        if ((this.keySummary & summaryBit(key.hashCode())) == 0) {
+            return false;
+        }
+        return indexOfKey(key) >= 0;
     }
 
     @Override
@@ -207,14 +322,17 @@ public final class ImmutableContextSetImpl extends AbstractContextSet implements
     @Override
     public boolean contains(@NonNull Context entry) {
         Objects.requireNonNull(entry, "entry");
-        return Arrays.binarySearch(this.array, entry) >= 0;
+        return contains(entry.getKey(), entry.getValue());
     }
 
     @Override
     public boolean contains(@NonNull String key, @NonNull String value) {
         Objects.requireNonNull(key, "key");
         Objects.requireNonNull(value, "value");
-        return contains(new ContextImpl(key, value));
+        if ((this.pairSummary & summaryBit(pairHash(key, value))) == 0) {
+            return false;
+        }
+        return indexOf(key, value) >= 0;
     }
 
     @Override
@@ -35,7 +35,7 @@ import net.luckperms.api.context.ImmutableContextSet;
 import net.luckperms.api.context.StaticContextCalculator;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
-public class ConfigurationContextCalculator implements StaticContextCalculator {
+public class ConfigurationContextCalculator implements StaticContextCalculator, EventDrivenContextCalculator<Object> {
     private final LuckPermsConfiguration config;
 
     public ConfigurationContextCalculator(LuckPermsConfiguration config) {
@@ -51,6 +51,12 @@ public class ConfigurationContextCalculator implements StaticContextCalculator {
         consumer.accept(this.config.getContextsFile().getStaticContexts());
     }
 
+    @Override
+    public boolean isEventDriven() {
+        // only changes when the configuration is reloaded, which invalidates all contexts
+        return true;
+    }
+
     @Override
     public @NonNull ContextSet estimatePotentialContexts() {
         ImmutableContextSet.Builder builder = new ImmutableContextSetImpl.BuilderImpl();
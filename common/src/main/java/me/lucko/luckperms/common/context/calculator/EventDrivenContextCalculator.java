@@ -0,0 +1,50 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.context.calculator;
+
+import net.luckperms.api.context.ContextCalculator;
+
+/**
+ * Represents a {@link ContextCalculator} which signals when the contexts it
+ * provides for a subject change.
+ *
+ * <p>The results of event-driven calculators are cached until the subject's
+ * context is explicitly invalidated (via {@code signalContextUpdate}), instead
+ * of being recalculated every time the cache expires.</p>
+ */
+public interface EventDrivenContextCalculator<T> extends ContextCalculator<T> {
+
+    /**
+     * Gets if this calculator is event-driven.
+     *
+     * <p>If true, the calculator <b>must</b> signal a context update whenever
+     * the contexts it provides for a subject change.</p>
+     *
+     * @return if the calculator is event-driven
+     */
+    boolean isEventDriven();
+
+}
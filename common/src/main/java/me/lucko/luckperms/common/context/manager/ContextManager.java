@@ -28,8 +28,10 @@ package me.lucko.luckperms.common.context.manager;
 import me.lucko.luckperms.common.cache.ExpiringCache;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.context.ImmutableContextSetImpl;
+import me.lucko.luckperms.common.context.calculator.EventDrivenContextCalculator;
 import me.lucko.luckperms.common.context.calculator.ForwardingContextCalculator;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.query.QueryOptionsImpl;
 import net.luckperms.api.context.ContextCalculator;
 import net.luckperms.api.context.ContextConsumer;
 import net.luckperms.api.context.ContextSet;
@@ -39,10 +41,15 @@ import net.luckperms.api.query.QueryOptions;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Predicate;
 
 /**
@@ -62,6 +69,9 @@ public abstract class ContextManager<S, P extends S> {
     // caches static context lookups
     private final StaticLookupCache staticLookupCache = new StaticLookupCache();
 
+    // incremented to invalidate all cached contexts
+    private final AtomicInteger invalidationGeneration = new AtomicInteger();
+
     protected ContextManager(LuckPermsPlugin plugin, Class<S> subjectClass, Class<P> playerClass) {
         this.plugin = plugin;
         this.subjectClass = subjectClass;
@@ -109,6 +119,7 @@ public abstract class ContextManager<S, P extends S> {
 
         // invalidate their cache
         invalidateCache(subject);
+        this.staticLookupCache.invalidate();
 
         // call event
         this.plugin.getEventDispatcher().dispatchContextUpdate(subject);
@@ -116,6 +127,50 @@ public abstract class ContextManager<S, P extends S> {
 
     protected abstract void invalidateCache(S subject);
 
+    /**
+     * Invalidates all cached contexts, including those provided by event-driven calculators.
+     */
+    public void invalidateAll() {
+        this.invalidationGeneration.incrementAndGet();
+        this.staticLookupCache.invalidate();
+    }
+
+    /**
+     * Gets the current invalidation generation. This value changes whenever all cached
+     * contexts should be invalidated, e.g. when calculators are registered or unregistered.
+     *
+     * @return the generation
+     */
+    public int getInvalidationGeneration() {
+        return this.invalidationGeneration.get();
+    }
+
+    /**
+     * Gets if any of the registered calculators require polling, meaning that cached
+     * contexts must be periodically recalculated.
+     *
+     * @return if polling is required
+     */
+    public boolean isPollingRequired() {
+        return this.calculators.polling().length != 0;
+    }
+
+    /**
+     * Gets a snapshot of the time spent in each registered calculator.
+     *
+     * @return the timings, keyed by calculator class name
+     */
+    public Map<String, CalculatorTiming> getCalculatorTimings() {
+        Map<String, CalculatorTiming> timings = new LinkedHashMap<>();
+        for (Registration<? super S> registration : this.calculators.calculators()) {
+            timings.merge(getCalculatorClass(registration.calculator), registration.timing, CalculatorTiming::combine);
+        }
+        for (Registration<Object> registration : this.calculators.staticCalculators()) {
+            timings.putIfAbsent(getCalculatorClass(registration.calculator), registration.timing);
+        }
+        return timings;
+    }
+
     public void registerCalculator(ContextCalculator<? super S> calculator) {
         String calculatorClass = calculator.getClass().getName();
 
@@ -128,10 +183,12 @@ public abstract class ContextManager<S, P extends S> {
         }
 
         this.calculators.add(calculator);
+        invalidateAll();
     }
 
     public void unregisterCalculator(ContextCalculator<? super S> calculator) {
         this.calculators.remove(calculator);
+        invalidateAll();
     }
 
     protected void callContextCalculator(ContextCalculator<? super S> calculator, S subject, ContextConsumer consumer) {
@@ -150,37 +207,85 @@ public abstract class ContextManager<S, P extends S> {
         }
     }
 
+    private void callContextCalculator(Registration<? super S> registration, S subject, ContextConsumer consumer) {
+        long start = System.nanoTime();
+        callContextCalculator(registration.calculator, subject, consumer);
+        registration.timing.record(System.nanoTime() - start);
+    }
+
     protected QueryOptions calculate(S subject) {
         ImmutableContextSet.Builder accumulator = new ImmutableContextSetImpl.BuilderImpl();
         ContextConsumer consumer = accumulator::add;
 
-        for (ContextCalculator<? super S> calculator : this.calculators.calculators()) {
-            callContextCalculator(calculator, subject, consumer);
+        for (Registration<? super S> registration : this.calculators.calculators()) {
+            callContextCalculator(registration, subject, consumer);
         }
 
-        return formQueryOptions(subject, accumulator.build());
+        ImmutableContextSet contextSet = ImmutableContextSetImpl.intern(accumulator.build());
+        return QueryOptionsImpl.intern(formQueryOptions(subject, contextSet));
+    }
+
+    /**
+     * Calculates the contexts provided by event-driven calculators for the given subject.
+     *
+     * @param subject the subject
+     * @return the contexts
+     */
+    protected ImmutableContextSet calculateEventDriven(S subject) {
+        ImmutableContextSet.Builder accumulator = new ImmutableContextSetImpl.BuilderImpl();
+        ContextConsumer consumer = accumulator::add;
+
+        for (Registration<? super S> registration : this.calculators.eventDriven()) {
+            callContextCalculator(registration, subject, consumer);
+        }
+
+        return accumulator.build();
+    }
+
+    /**
+     * Calculates the query options for the given subject, reusing previously calculated
+     * contexts from event-driven calculators and only calling those which need polling.
+     *
+     * @param subject the subject
+     * @param eventDrivenContext the contexts from {@link #calculateEventDriven(Object)}
+     * @return the query options
+     */
+    protected QueryOptions calculate(S subject, ImmutableContextSet eventDrivenContext) {
+        ImmutableContextSet.Builder accumulator = new ImmutableContextSetImpl.BuilderImpl();
+        accumulator.addAll(eventDrivenContext);
+        ContextConsumer consumer = accumulator::add;
+
+        for (Registration<? super S> registration : this.calculators.polling()) {
+            callContextCalculator(registration, subject, consumer);
+        }
+
+        ImmutableContextSet contextSet = ImmutableContextSetImpl.intern(accumulator.build());
+        return QueryOptionsImpl.intern(formQueryOptions(subject, contextSet));
     }
 
     private QueryOptions calculateStatic() {
         ImmutableContextSet.Builder accumulator = new ImmutableContextSetImpl.BuilderImpl();
         ContextConsumer consumer = accumulator::add;
 
-        for (StaticContextCalculator calculator : this.calculators.staticCalculators()) {
-            callStaticContextCalculator(calculator, consumer);
+        for (Registration<Object> registration : this.calculators.staticCalculators()) {
+            long start = System.nanoTime();
+            callStaticContextCalculator((StaticContextCalculator) registration.calculator, consumer);
+            registration.timing.record(System.nanoTime() - start);
         }
 
-        return formQueryOptions(accumulator.build());
+        ImmutableContextSet contextSet = ImmutableContextSetImpl.intern(accumulator.build());
+        return QueryOptionsImpl.intern(formQueryOptions(contextSet));
     }
 
     public ImmutableContextSet getPotentialContexts() {
         ImmutableContextSet.Builder builder = new ImmutableContextSetImpl.BuilderImpl();
 
-        for (ContextCalculator<? super S> calculator : this.calculators.calculators()) {
+        for (Registration<? super S> registration : this.calculators.calculators()) {
             ContextSet potentialContexts;
             try {
-                potentialContexts = calculator.estimatePotentialContexts();
+                potentialContexts = registration.calculator.estimatePotentialContexts();
             } catch (Throwable e) {
-                this.plugin.getLogger().warn("An exception was thrown by " + getCalculatorClass(calculator) + " whilst estimating potential contexts", e);
+                this.plugin.getLogger().warn("An exception was thrown by " + getCalculatorClass(registration.calculator) + " whilst estimating potential contexts", e);
                 continue;
             }
             builder.addAll(potentialContexts);
@@ -198,6 +303,15 @@ public abstract class ContextManager<S, P extends S> {
         public @NonNull QueryOptions supply() {
             return calculateStatic();
         }
+
+        @Override
+        protected boolean expireAfterDuration() {
+            return ContextManager.this.calculators.staticPollingRequired();
+        }
+    }
+
+    private static boolean isEventDriven(ContextCalculator<?> calculator) {
+        return calculator instanceof EventDrivenContextCalculator && ((EventDrivenContextCalculator<?>) calculator).isEventDriven();
     }
 
     private static String getCalculatorClass(ContextCalculator<?> calculator) {
@@ -211,32 +325,60 @@ public abstract class ContextManager<S, P extends S> {
     }
 
     private final class CalculatorList {
-        private final List<ContextCalculator<? super S>> calculators;
-        private final List<StaticContextCalculator> staticCalculators;
+        private final List<Registration<? super S>> calculators;
+        private final List<Registration<Object>> staticCalculators;
+        private final Map<ContextCalculator<?>, CalculatorTiming> timings;
 
-        private volatile ContextCalculator<? super S>[] calculatorsArray;
-        private volatile StaticContextCalculator[] staticCalculatorsArray;
+        private volatile Registration<? super S>[] calculatorsArray;
+        private volatile Registration<? super S>[] eventDrivenArray;
+        private volatile Registration<? super S>[] pollingArray;
+        private volatile Registration<Object>[] staticCalculatorsArray;
+        private volatile boolean staticPollingRequired;
 
         CalculatorList() {
             this.calculators = new ArrayList<>();
             this.staticCalculators = new ArrayList<>();
+            this.timings = new IdentityHashMap<>();
             bake();
         }
 
         @SuppressWarnings("unchecked")
         private void bake() {
-            this.calculatorsArray = this.calculators.toArray(new ContextCalculator[0]);
-            this.staticCalculatorsArray = this.staticCalculators.toArray(new StaticContextCalculator[0]);
+            List<Registration<? super S>> eventDriven = new ArrayList<>();
+            List<Registration<? super S>> polling = new ArrayList<>();
+            for (Registration<? super S> registration : this.calculators) {
+                if (isEventDriven(registration.calculator)) {
+                    eventDriven.add(registration);
+                } else {
+                    polling.add(registration);
+                }
+            }
+
+            boolean staticPollingRequired = false;
+            for (Registration<Object> registration : this.staticCalculators) {
+                if (!isEventDriven(registration.calculator)) {
+                    staticPollingRequired = true;
+                    break;
+                }
+            }
+
+            this.calculatorsArray = this.calculators.toArray(new Registration[0]);
+            this.eventDrivenArray = eventDriven.toArray(new Registration[0]);
+            this.pollingArray = polling.toArray(new Registration[0]);
+            this.staticCalculatorsArray = this.staticCalculators.toArray(new Registration[0]);
+            this.staticPollingRequired = staticPollingRequired;
         }
 
         public void add(ContextCalculator<? super S> calculator) {
             synchronized (this) {
+                CalculatorTiming timing = this.timings.computeIfAbsent(calculator, c -> new CalculatorTiming());
+
                 // calculators registered first should have priority (and be checked last.)
-                this.calculators.add(0, calculator);
+                this.calculators.add(0, new Registration<>(calculator, timing));
 
                 if (calculator instanceof StaticContextCalculator) {
                     StaticContextCalculator staticCalculator = (StaticContextCalculator) calculator;
-                    this.staticCalculators.add(0, staticCalculator);
+                    this.staticCalculators.add(0, new Registration<>(staticCalculator, timing));
                 }
 
                 bake();
@@ -245,22 +387,74 @@ public abstract class ContextManager<S, P extends S> {
 
         public void remove(ContextCalculator<? super S> calculator) {
             synchronized (this) {
-                this.calculators.remove(calculator);
-                if (calculator instanceof StaticContextCalculator) {
-                    this.staticCalculators.remove(calculator);
-                }
+                this.calculators.removeIf(r -> r.calculator == calculator);
+                this.staticCalculators.removeIf(r -> r.calculator == calculator);
+                this.timings.remove(calculator);
 
                 bake();
             }
         }
 
-        public ContextCalculator<? super S>[] calculators() {
+        public Registration<? super S>[] calculators() {
             return this.calculatorsArray;
         }
 
-        public StaticContextCalculator[] staticCalculators() {
+        public Registration<? super S>[] eventDriven() {
+            return this.eventDrivenArray;
+        }
+
+        public Registration<? super S>[] polling() {
+            return this.pollingArray;
+        }
+
+        public Registration<Object>[] staticCalculators() {
             return this.staticCalculatorsArray;
         }
+
+        public boolean staticPollingRequired() {
+            return this.staticPollingRequired;
+        }
+    }
+
+    private static final class Registration<T> {
+        private final ContextCalculator<? super T> calculator;
+        private final CalculatorTiming timing;
+
+        Registration(ContextCalculator<? super T> calculator, CalculatorTiming timing) {
+            this.calculator = calculator;
+            this.timing = timing;
+        }
+    }
+
+    /**
+     * Counts the calls made to a calculator, and the time spent in them.
+     */
+    public static final class CalculatorTiming {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        void record(long nanos) {
+            this.calls.increment();
+            this.nanos.add(nanos);
+        }
+
+        public long calls() {
+            return this.calls.sum();
+        }
+
+        public long totalNanos() {
+            return this.nanos.sum();
+        }
+
+        static CalculatorTiming combine(CalculatorTiming a, CalculatorTiming b) {
+            if (a == b) {
+                return a;
+            }
+            CalculatorTiming combined = new CalculatorTiming();
+            combined.calls.add(a.calls() + b.calls());
+            combined.nanos.add(a.totalNanos() + b.totalNanos());
+            return combined;
+        }
     }
 
 }
@@ -35,21 +35,58 @@ import java.util.concurrent.TimeUnit;
 /**
  * Implementation of {@link QueryOptionsSupplier} that caches results.
  *
+ * <p>Contexts from event-driven calculators are kept until the cache is invalidated,
+ * and the result only expires after a duration if some calculators require polling.</p>
+ *
  * @param <T> the player type
  */
 public final class QueryOptionsCache<T> extends ExpiringCache<QueryOptions> implements QueryOptionsSupplier {
     private final T subject;
     private final ContextManager<T, ?> contextManager;
 
+    // the contexts provided by event-driven calculators, or null if they need to be calculated
+    private ImmutableContextSet eventDrivenContext = null;
+    private volatile int generation;
+
     public QueryOptionsCache(T subject, ContextManager<T, ?> contextManager) {
         super(50L, TimeUnit.MILLISECONDS); // expire roughly every tick
         this.subject = subject;
         this.contextManager = contextManager;
+        this.generation = contextManager.getInvalidationGeneration();
     }
 
     @Override
     protected @NonNull QueryOptions supply() {
-        return this.contextManager.calculate(this.subject);
+        int generation = this.contextManager.getInvalidationGeneration();
+
+        ImmutableContextSet eventDrivenContext = this.eventDrivenContext;
+        if (eventDrivenContext == null || generation != this.generation) {
+            eventDrivenContext = this.contextManager.calculateEventDriven(this.subject);
+            this.eventDrivenContext = eventDrivenContext;
+            this.generation = generation;
+        }
+
+        return this.contextManager.calculate(this.subject, eventDrivenContext);
+    }
+
+    @Override
+    protected boolean expireAfterDuration() {
+        return this.contextManager.isPollingRequired();
+    }
+
+    @Override
+    public QueryOptions get() {
+        if (this.generation != this.contextManager.getInvalidationGeneration()) {
+            invalidate();
+        }
+        return super.get();
+    }
+
+    @Override
+    public synchronized void invalidate() {
+        // synchronized with supply, so an invalidation can't be lost to a calculation in progress
+        this.eventDrivenContext = null;
+        super.invalidate();
     }
 
     @Override
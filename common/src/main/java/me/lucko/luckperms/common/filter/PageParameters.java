@@ -25,8 +25,11 @@
 
 package me.lucko.luckperms.common.filter;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
+
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Stream;
 
 public class PageParameters {
@@ -34,7 +37,26 @@ public class PageParameters {
     private final int pageSize;
     private final int pageNumber;
 
+    /**
+     * The position of the last entry on the previous page, if known.
+     *
+     * <p>Implementations which support it can use this to seek directly to the
+     * start of the page (keyset pagination), instead of skipping over all of the
+     * entries on previous pages. Those which don't fall back to the page number.</p>
+     */
+    private final @Nullable Cursor cursor;
+
+    /**
+     * If an exact count of the total number of entries is required, as opposed to
+     * an estimate which may be cheaper to obtain.
+     */
+    private final boolean exactTotal;
+
     public PageParameters(int pageSize, int pageNumber) {
+        this(pageSize, pageNumber, null, true);
+    }
+
+    private PageParameters(int pageSize, int pageNumber, @Nullable Cursor cursor, boolean exactTotal) {
         if (pageSize < 1) {
             throw new IllegalArgumentException("pageSize cannot be less than 1: " + pageSize);
         }
@@ -44,6 +66,28 @@ public class PageParameters {
 
         this.pageSize = pageSize;
         this.pageNumber = pageNumber;
+        this.cursor = cursor;
+        this.exactTotal = exactTotal;
+    }
+
+    /**
+     * Gets the parameters for the page after this one, continuing from the given cursor.
+     *
+     * @param cursor the position of the last entry on this page
+     * @return the parameters for the next page
+     */
+    public PageParameters next(@Nullable Cursor cursor) {
+        return new PageParameters(this.pageSize, this.pageNumber + 1, cursor, this.exactTotal);
+    }
+
+    /**
+     * Gets a copy of these parameters which allow the total number of entries
+     * to be estimated.
+     *
+     * @return the parameters
+     */
+    public PageParameters withEstimatedTotal() {
+        return new PageParameters(this.pageSize, this.pageNumber, this.cursor, false);
     }
 
     public int pageSize() {
@@ -54,6 +98,14 @@ public class PageParameters {
         return this.pageNumber;
     }
 
+    public @Nullable Cursor cursor() {
+        return this.cursor;
+    }
+
+    public boolean exactTotal() {
+        return this.exactTotal;
+    }
+
     public <T> List<T> paginate(List<T> input) {
         int fromIndex = this.pageSize * (this.pageNumber - 1);
         if (fromIndex >= input.size()) {
@@ -76,4 +128,44 @@ public class PageParameters {
         return (totalEntries + this.pageSize - 1) / this.pageSize;
     }
 
+    /**
+     * A position in a list of entries sorted by timestamp (newest first), and then
+     * by an implementation specific id.
+     */
+    public static final class Cursor {
+        private final long timestamp;
+        private final String id;
+
+        public Cursor(long timestamp, String id) {
+            this.timestamp = timestamp;
+            this.id = Objects.requireNonNull(id, "id");
+        }
+
+        public long timestamp() {
+            return this.timestamp;
+        }
+
+        public String id() {
+            return this.id;
+        }
+
+        @Override
+        public String toString() {
+            return this.timestamp + ":" + this.id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Cursor)) return false;
+            Cursor other = (Cursor) o;
+            return this.timestamp == other.timestamp && this.id.equals(other.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.timestamp, this.id);
+        }
+    }
+
 }
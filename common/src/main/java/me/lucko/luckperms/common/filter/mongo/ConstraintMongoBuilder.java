@@ -81,6 +81,10 @@ public class ConstraintMongoBuilder {
 
         int pageSize = params.pageSize();
         int pageNumber = params.pageNumber();
+        if (params.cursor() != null) {
+            // the query is expected to seek past the cursor itself
+            return iterable.limit(pageSize);
+        }
         return iterable.limit(pageSize).skip((pageNumber - 1) * pageSize);
     }
 
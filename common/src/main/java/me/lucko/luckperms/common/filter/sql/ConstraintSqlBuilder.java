@@ -78,7 +78,12 @@ public class ConstraintSqlBuilder extends AbstractSqlBuilder {
 
         int pageSize = params.pageSize();
         int pageNumber = params.pageNumber();
-        this.builder.append(" LIMIT " + pageSize + " OFFSET " + (pageNumber - 1) * pageSize);
+        if (params.cursor() != null) {
+            // the query is expected to seek past the cursor itself
+            this.builder.append(" LIMIT " + pageSize);
+        } else {
+            this.builder.append(" LIMIT " + pageSize + " OFFSET " + (pageNumber - 1) * pageSize);
+        }
     }
 
 }
@@ -51,6 +51,18 @@ public abstract class FilterSqlBuilder<T> extends ConstraintSqlBuilder {
             return;
         }
 
+        this.builder.append(" WHERE");
+        visitConditions(combineOperator, filters);
+    }
+
+    /**
+     * Appends the given filters, combined using the operator, without a
+     * preceding {@code WHERE}.
+     *
+     * @param combineOperator the operator to combine the filters with
+     * @param filters the filters
+     */
+    protected void visitConditions(FilterList.LogicalOperator combineOperator, List<? extends Filter<T, ?>> filters) {
         String combineString;
         switch (combineOperator) {
             case AND:
@@ -63,7 +75,6 @@ public abstract class FilterSqlBuilder<T> extends ConstraintSqlBuilder {
                 throw new AssertionError(combineOperator);
         }
 
-        this.builder.append(" WHERE");
         for (int i = 0; i < filters.size(); i++) {
             Filter<T, ?> filter = filters.get(i);
             this.builder.append(" ");
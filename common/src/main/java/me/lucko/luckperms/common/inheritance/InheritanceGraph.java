@@ -33,10 +33,12 @@ import me.lucko.luckperms.common.model.PermissionHolder;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import net.luckperms.api.node.types.InheritanceNode;
 import net.luckperms.api.query.QueryOptions;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -50,17 +52,37 @@ public class InheritanceGraph implements Graph<PermissionHolder> {
      */
     private final QueryOptions queryOptions;
 
+    /**
+     * If present, the data version of each holder when it was first seen by the graph
+     */
+    private final @Nullable Map<PermissionHolder, Integer> observedVersions;
+
     public InheritanceGraph(LuckPermsPlugin plugin, QueryOptions queryOptions) {
+        this(plugin, queryOptions, null);
+    }
+
+    InheritanceGraph(LuckPermsPlugin plugin, QueryOptions queryOptions, @Nullable Map<PermissionHolder, Integer> observedVersions) {
         this.plugin = plugin;
         this.queryOptions = queryOptions;
+        this.observedVersions = observedVersions;
+    }
+
+    private void observe(PermissionHolder holder) {
+        if (this.observedVersions != null) {
+            // record the version before any of the holders data is read
+            this.observedVersions.putIfAbsent(holder, holder.getDataVersion());
+        }
     }
 
     @Override
     public Iterable<? extends PermissionHolder> successors(PermissionHolder holder) {
+        observe(holder);
+
         Set<Group> successors = new LinkedHashSet<>();
         for (InheritanceNode n : holder.getOwnInheritanceNodes(this.queryOptions)) {
             Group g = this.plugin.getGroupManager().getIfLoaded(n.getGroupName());
             if (g != null) {
+                observe(g);
                 successors.add(g);
             }
         }
@@ -25,19 +25,49 @@
 
 package me.lucko.luckperms.common.inheritance;
 
+import com.google.common.collect.ImmutableList;
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.graph.TraversalAlgorithm;
+import me.lucko.luckperms.common.model.PermissionHolder;
+import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.query.QueryOptionsImpl;
+import me.lucko.luckperms.common.util.CaffeineFactory;
 import net.luckperms.api.query.QueryOptions;
 
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
- * Provides {@link InheritanceGraph}s.
+ * Provides {@link InheritanceGraph}s, and caches the results of traversing them.
  */
 public class InheritanceGraphFactory {
+
+    /**
+     * The maximum number of traversal results to cache for each holder
+     */
+    private static final int MAXIMUM_CACHED_TRAVERSALS = 32;
+
     private final LuckPermsPlugin plugin;
 
     private final InheritanceGraph nonContextualGraph;
     private final InheritanceGraph defaultContextualGraph;
 
+    /**
+     * Graphs for interned query options, keyed (weakly) by identity.
+     *
+     * <p>Each graph references its query options, so the values must be weak too,
+     * otherwise the keys would never be collected.</p>
+     */
+    private final Map<QueryOptions, InheritanceGraph> internedGraphs = CaffeineFactory.newBuilder()
+            .weakKeys()
+            .weakValues()
+            .<QueryOptions, InheritanceGraph>build()
+            .asMap();
+
     public InheritanceGraphFactory(LuckPermsPlugin plugin) {
         this.plugin = plugin;
         this.nonContextualGraph = new InheritanceGraph(plugin, QueryOptionsImpl.DEFAULT_NON_CONTEXTUAL);
@@ -49,9 +79,157 @@ public class InheritanceGraphFactory {
             return this.nonContextualGraph;
         } else if (queryOptions == QueryOptionsImpl.DEFAULT_CONTEXTUAL) {
             return this.defaultContextualGraph;
+        } else if (QueryOptionsImpl.isInterned(queryOptions)) {
+            return this.internedGraphs.computeIfAbsent(queryOptions, q -> new InheritanceGraph(this.plugin, q));
         } else {
             return new InheritanceGraph(this.plugin, queryOptions);
         }
     }
 
+    /**
+     * Gets the result of traversing the inheritance graph from the given
+     * start node, according to the rules defined in the configuration.
+     *
+     * @param startNode the start node in the inheritance graph
+     * @param queryOptions the query options to resolve inheritance in
+     * @return the holders in the inheritance tree, in order
+     * @see InheritanceGraph#traverse(PermissionHolder)
+     */
+    public List<PermissionHolder> traverse(PermissionHolder startNode, QueryOptions queryOptions) {
+        return traverse(
+                this.plugin.getConfiguration().get(ConfigKeys.INHERITANCE_TRAVERSAL_ALGORITHM),
+                this.plugin.getConfiguration().get(ConfigKeys.POST_TRAVERSAL_INHERITANCE_SORT),
+                startNode,
+                queryOptions
+        );
+    }
+
+    /**
+     * Gets the result of traversing the inheritance graph from the given
+     * start node using the specified algorithm.
+     *
+     * <p>Results are cached until the data of any holder in the tree changes,
+     * the start node's primary group changes, or a group is loaded/unloaded.</p>
+     *
+     * @param algorithm the algorithm to use when traversing
+     * @param postTraversalSort if a final sort according to inheritance (weight, primary group) rules
+     *                          should be performed after the traversal algorithm has completed
+     * @param startNode the start node in the inheritance graph
+     * @param queryOptions the query options to resolve inheritance in
+     * @return the holders in the inheritance tree, in order
+     * @see InheritanceGraph#traverse(TraversalAlgorithm, boolean, PermissionHolder)
+     */
+    public List<PermissionHolder> traverse(TraversalAlgorithm algorithm, boolean postTraversalSort, PermissionHolder startNode, QueryOptions queryOptions) {
+        TraversalKey key = new TraversalKey(queryOptions, algorithm, postTraversalSort);
+        int loadGeneration = this.plugin.getGroupManager().getLoadGeneration();
+        String primaryGroup = storedPrimaryGroup(startNode);
+
+        Map<TraversalKey, Traversal> traversals = startNode.getTraversalCache().traversals;
+        Traversal cached = traversals.get(key);
+        if (cached != null && cached.isCurrent(loadGeneration, primaryGroup)) {
+            return cached.holders;
+        }
+
+        Map<PermissionHolder, Integer> observedVersions = new IdentityHashMap<>();
+        InheritanceGraph graph = new InheritanceGraph(this.plugin, queryOptions, observedVersions);
+        List<PermissionHolder> holders = ImmutableList.copyOf(graph.traverse(algorithm, postTraversalSort, startNode));
+
+        // the number of distinct query options a holder is queried with is usually small,
+        // but don't let the cache grow without limit if they are not interned
+        if (traversals.size() >= MAXIMUM_CACHED_TRAVERSALS) {
+            traversals.clear();
+        }
+        traversals.put(key, new Traversal(holders, observedVersions, loadGeneration, primaryGroup));
+        return holders;
+    }
+
+    /**
+     * Gets the stored primary group of the given holder, which affects the
+     * order of inheritance if the holder is a user.
+     *
+     * @param holder the holder
+     * @return the stored primary group, or null
+     */
+    private static String storedPrimaryGroup(PermissionHolder holder) {
+        return holder instanceof User ? ((User) holder).getPrimaryGroup().getStoredValue().orElse(null) : null;
+    }
+
+    /**
+     * Holds the cached traversal results for a single {@link PermissionHolder}.
+     *
+     * <p>An instance is held by each holder (rather than in a cache in this
+     * class), so the results are released with the holder when it is unloaded.</p>
+     */
+    public static final class TraversalCache {
+        private final Map<TraversalKey, Traversal> traversals = new ConcurrentHashMap<>();
+    }
+
+    private static final class TraversalKey {
+        private final QueryOptions queryOptions;
+        private final TraversalAlgorithm algorithm;
+        private final boolean postTraversalSort;
+        private final int hashCode;
+
+        TraversalKey(QueryOptions queryOptions, TraversalAlgorithm algorithm, boolean postTraversalSort) {
+            this.queryOptions = queryOptions;
+            this.algorithm = algorithm;
+            this.postTraversalSort = postTraversalSort;
+
+            int result = queryOptions.hashCode();
+            result = 31 * result + algorithm.hashCode();
+            result = 31 * result + (postTraversalSort ? 1 : 0);
+            this.hashCode = result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof TraversalKey)) return false;
+            TraversalKey other = (TraversalKey) o;
+            return this.algorithm == other.algorithm &&
+                    this.postTraversalSort == other.postTraversalSort &&
+                    this.queryOptions.equals(other.queryOptions);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hashCode;
+        }
+    }
+
+    private static final class Traversal {
+        private final List<PermissionHolder> holders;
+        private final PermissionHolder[] observedHolders;
+        private final int[] observedVersions;
+        private final int loadGeneration;
+        private final String primaryGroup;
+
+        Traversal(List<PermissionHolder> holders, Map<PermissionHolder, Integer> observedVersions, int loadGeneration, String primaryGroup) {
+            this.holders = holders;
+            this.observedHolders = new PermissionHolder[observedVersions.size()];
+            this.observedVersions = new int[observedVersions.size()];
+            this.loadGeneration = loadGeneration;
+            this.primaryGroup = primaryGroup;
+
+            int i = 0;
+            for (Map.Entry<PermissionHolder, Integer> e : observedVersions.entrySet()) {
+                this.observedHolders[i] = e.getKey();
+                this.observedVersions[i] = e.getValue();
+                i++;
+            }
+        }
+
+        boolean isCurrent(int loadGeneration, String primaryGroup) {
+            if (this.loadGeneration != loadGeneration || !Objects.equals(this.primaryGroup, primaryGroup)) {
+                return false;
+            }
+            for (int i = 0; i < this.observedHolders.length; i++) {
+                if (this.observedHolders[i].getDataVersion() != this.observedVersions[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
 }
@@ -27,6 +27,8 @@ package me.lucko.luckperms.common.locale;
 
 import com.google.common.collect.Maps;
 import me.lucko.luckperms.common.actionlog.LoggedAction;
+import me.lucko.luckperms.common.calculator.PermissionCalculator;
+import me.lucko.luckperms.common.context.manager.ContextManager;
 import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.HolderType;
 import me.lucko.luckperms.common.model.PermissionHolder;
@@ -1537,7 +1539,7 @@ public interface Message {
             )
     );
 
-    Args2<LuckPermsPlugin, StorageMetadata> INFO = (plugin, storageMeta) -> joinNewline(
+    Args3<LuckPermsPlugin, StorageMetadata, PermissionCalculator.LookupCacheStats> INFO = (plugin, storageMeta, lookupStats) -> joinNewline(
             // "&2Running &bLuckPerms v{}&2 by &bLuck&2."
             // "&f-  &3Platform: &f{}"
             // "&f-  &3Server Brand: &f{}"
@@ -1554,6 +1556,9 @@ public interface Message {
             // "     &3Online Players: &a{} &7(&a{}&7 unique)"
             // "     &3Uptime: &7{}"
             // "     &3Local Data: &a{} &7users, &a{} &7groups, &a{} &7tracks",
+            // "     &3Permission Lookups: &a{} &7cached, &a{}% &7hit rate, &a{} &7evictions",
+            // "     &3Context Calculators:"
+            // "       &f{}: &a{} &7calls, &a{}µs &7average",
             prefixed(translatable()
                     .key("luckperms.command.info.running-plugin")
                     .color(DARK_GREEN)
@@ -1699,7 +1704,49 @@ public interface Message {
                                     text(plugin.getGroupManager().getAll().size(), GREEN),
                                     text(plugin.getTrackManager().getAll().size(), GREEN)
                             )
-                    ))
+                    )),
+            prefixed(text()
+                    .color(DARK_AQUA)
+                    .append(text("     "))
+                    .append(translatable("luckperms.command.info.permission-lookups-key"))
+                    .append(text(": "))
+                    .append(translatable()
+                            .key("luckperms.command.info.permission-lookups")
+                            .color(GRAY)
+                            .args(
+                                    text(lookupStats.size(), GREEN),
+                                    text(new DecimalFormat("#.#").format(lookupStats.hitRate() * 100), GREEN),
+                                    text(lookupStats.evictionCount(), GREEN)
+                            )
+                    )),
+            prefixed(text()
+                    .color(DARK_AQUA)
+                    .append(text("     "))
+                    .append(translatable("luckperms.command.info.context-calculators-key"))
+                    .append(text(':'))
+                    .apply(builder -> {
+                        DecimalFormat format = new DecimalFormat("#.##");
+                        for (Map.Entry<String, ContextManager.CalculatorTiming> entry : plugin.getContextManager().getCalculatorTimings().entrySet()) {
+                            String name = entry.getKey().substring(entry.getKey().lastIndexOf('.') + 1);
+                            long calls = entry.getValue().calls();
+                            double averageMicros = calls == 0 ? 0 : entry.getValue().totalNanos() / (calls * 1000D);
+
+                            builder.append(newline());
+                            builder.append(prefixed(text()
+                                    .append(text("       "))
+                                    .append(text(name, WHITE))
+                                    .append(text(": "))
+                                    .append(translatable()
+                                            .key("luckperms.command.info.context-calculator-timing")
+                                            .color(GRAY)
+                                            .args(
+                                                    text(calls, GREEN),
+                                                    text(format.format(averageMicros) + "\u00B5s", GREEN)
+                                            )
+                                    )
+                            ));
+                        }
+                    }))
     );
 
     Args1<Component> CREATE_ERROR = name -> prefixed(translatable()
@@ -4003,6 +4050,13 @@ public interface Message {
             .append(FULL_STOP)
     );
 
+    Args0 EXPORT_FAILURE = () -> prefixed(translatable()
+            // "&cAn unexpected error occurred whilst exporting data, see the console for details."
+            .key("luckperms.command.export.unexpected-error")
+            .color(RED)
+            .append(FULL_STOP)
+    );
+
     Args1<String> EXPORT_FILE_SUCCESS = file -> prefixed(translatable()
             // "&aSuccessfully exported to &b{}&a."
             .key("luckperms.command.export.file.success")
@@ -26,11 +26,14 @@
 package me.lucko.luckperms.common.messaging;
 
 import me.lucko.luckperms.common.cache.BufferedRequest;
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.Track;
 import me.lucko.luckperms.common.model.User;
 import net.luckperms.api.actionlog.Action;
 import net.luckperms.api.messenger.Messenger;
 import net.luckperms.api.messenger.MessengerProvider;
 
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 
 public interface InternalMessagingService {
@@ -58,6 +61,28 @@ public interface InternalMessagingService {
      */
     BufferedRequest<Void> getUpdateBuffer();
 
+    /**
+     * Requests that an update for a specific group is pushed to other servers.
+     *
+     * <p>Requests are buffered and combined into a single targeted update. If
+     * targeted updates are disabled, a general update is requested instead.</p>
+     *
+     * @param group the group
+     * @return a future
+     */
+    CompletableFuture<Void> requestGroupUpdate(Group group);
+
+    /**
+     * Requests that an update for a specific track is pushed to other servers.
+     *
+     * <p>Requests are buffered and combined into a single targeted update. If
+     * targeted updates are disabled, a general update is requested instead.</p>
+     *
+     * @param track the track
+     * @return a future
+     */
+    CompletableFuture<Void> requestTrackUpdate(Track track);
+
     /**
      * Uses the messaging service to inform other servers about a general
      * change.
@@ -71,6 +96,14 @@ public interface InternalMessagingService {
      */
     CompletableFuture<Void> pushUserUpdate(User user);
 
+    /**
+     * Pushes an update for specific groups and tracks.
+     *
+     * @param groups the names of the groups which have changed
+     * @param tracks the names of the tracks which have changed
+     */
+    CompletableFuture<Void> pushTargetedUpdate(Set<String> groups, Set<String> tracks);
+
     /**
      * Pushes a log entry to connected servers.
      *
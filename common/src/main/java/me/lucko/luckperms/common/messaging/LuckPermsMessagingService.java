@@ -25,6 +25,7 @@
 
 package me.lucko.luckperms.common.messaging;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import me.lucko.luckperms.common.actionlog.LoggedAction;
@@ -32,11 +33,15 @@ import me.lucko.luckperms.common.cache.BufferedRequest;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.messaging.message.ActionLogMessageImpl;
 import me.lucko.luckperms.common.messaging.message.CustomMessageImpl;
+import me.lucko.luckperms.common.messaging.message.TargetedUpdateMessageImpl;
 import me.lucko.luckperms.common.messaging.message.UpdateMessageImpl;
 import me.lucko.luckperms.common.messaging.message.UserUpdateMessageImpl;
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.Track;
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.util.AsyncInterface;
+import me.lucko.luckperms.common.util.CompletableFutures;
 import me.lucko.luckperms.common.util.ExpiringSet;
 import me.lucko.luckperms.common.util.gson.GsonProvider;
 import me.lucko.luckperms.common.util.gson.JObject;
@@ -53,6 +58,9 @@ import net.luckperms.api.messenger.message.type.UserUpdateMessage;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
@@ -63,6 +71,7 @@ public class LuckPermsMessagingService extends AsyncInterface implements Interna
     private final LuckPermsPlugin plugin;
     private final Set<UUID> receivedMessages;
     private final PushUpdateBuffer updateBuffer;
+    private final PushTargetedUpdateBuffer targetedUpdateBuffer;
 
     private final MessengerProvider messengerProvider;
     private final Messenger messenger;
@@ -77,6 +86,7 @@ public class LuckPermsMessagingService extends AsyncInterface implements Interna
 
         this.receivedMessages = ExpiringSet.newExpiringSet(5, TimeUnit.MINUTES);
         this.updateBuffer = new PushUpdateBuffer(plugin);
+        this.targetedUpdateBuffer = new PushTargetedUpdateBuffer(plugin);
     }
 
     @Override
@@ -104,6 +114,22 @@ public class LuckPermsMessagingService extends AsyncInterface implements Interna
         return this.updateBuffer;
     }
 
+    @Override
+    public CompletableFuture<Void> requestGroupUpdate(Group group) {
+        if (!this.plugin.getConfiguration().get(ConfigKeys.PUSH_TARGETED_UPDATES)) {
+            return this.updateBuffer.request();
+        }
+        return this.targetedUpdateBuffer.request(group.getName(), null);
+    }
+
+    @Override
+    public CompletableFuture<Void> requestTrackUpdate(Track track) {
+        if (!this.plugin.getConfiguration().get(ConfigKeys.PUSH_TARGETED_UPDATES)) {
+            return this.updateBuffer.request();
+        }
+        return this.targetedUpdateBuffer.request(null, track.getName());
+    }
+
     private UUID generatePingId() {
         UUID uuid = UUID.randomUUID();
         this.receivedMessages.add(uuid);
@@ -128,6 +154,15 @@ public class LuckPermsMessagingService extends AsyncInterface implements Interna
         });
     }
 
+    @Override
+    public CompletableFuture<Void> pushTargetedUpdate(Set<String> groups, Set<String> tracks) {
+        return future(() -> {
+            UUID requestId = generatePingId();
+            this.plugin.getLogger().info("[Messaging] Sending targeted update ping for groups " + groups + " and tracks " + tracks + " with id: " + requestId);
+            this.messenger.sendOutgoingMessage(new TargetedUpdateMessageImpl(requestId, groups, tracks));
+        });
+    }
+
     @Override
     public CompletableFuture<Void> pushLog(Action logEntry) {
         return future(() -> {
@@ -161,6 +196,7 @@ public class LuckPermsMessagingService extends AsyncInterface implements Interna
         // determine if the message can be handled by us
         boolean valid = message instanceof UpdateMessage ||
                 message instanceof UserUpdateMessage ||
+                message instanceof TargetedUpdateMessageImpl ||
                 message instanceof ActionLogMessage ||
                 message instanceof CustomMessage;
 
@@ -221,6 +257,9 @@ public class LuckPermsMessagingService extends AsyncInterface implements Interna
             case UserUpdateMessageImpl.TYPE:
                 decoded = UserUpdateMessageImpl.decode(content, id);
                 break;
+            case TargetedUpdateMessageImpl.TYPE:
+                decoded = TargetedUpdateMessageImpl.decode(content, id);
+                break;
             case ActionLogMessageImpl.TYPE:
                 decoded = ActionLogMessageImpl.decode(content, id);
                 break;
@@ -282,7 +321,48 @@ public class LuckPermsMessagingService extends AsyncInterface implements Interna
             this.plugin.getLogger().info("[Messaging] Received user update ping for '" + user.getPlainDisplayName() + "' with id: " + msgId);
             this.plugin.getStorage().loadUser(user.getUniqueId(), null)
                     .thenRunAsync(() -> this.plugin.getEventDispatcher().dispatchNetworkPostSync(msgId, SyncType.SPECIFIC_USER, true, userUniqueId));
-            
+
+        } else if (message instanceof TargetedUpdateMessageImpl) {
+            TargetedUpdateMessageImpl msg = (TargetedUpdateMessageImpl) message;
+            UUID msgId = msg.getId();
+
+            // there is no more specific sync type in the API, and listeners
+            // which cancel full syncs should be able to cancel these too
+            if (this.plugin.getEventDispatcher().dispatchNetworkPreSync(false, msgId, SyncType.FULL, null)) {
+                return;
+            }
+
+            this.plugin.getLogger().info("[Messaging] Received targeted update ping for groups " + msg.getGroups() + " and tracks " + msg.getTracks() + " with id: " + msgId);
+
+            List<CompletableFuture<?>> futures = new ArrayList<>();
+            for (String groupName : msg.getGroups()) {
+                futures.add(this.plugin.getStorage().loadGroup(groupName).thenAccept(group -> {
+                    if (!group.isPresent()) {
+                        this.plugin.getGroupManager().unload(groupName);
+                    }
+                }));
+            }
+            for (String trackName : msg.getTracks()) {
+                futures.add(this.plugin.getStorage().loadTrack(trackName).thenAccept(track -> {
+                    if (!track.isPresent()) {
+                        this.plugin.getTrackManager().unload(trackName);
+                    }
+                }));
+            }
+
+            CompletableFutures.allOf(futures).whenCompleteAsync((v, ex) -> {
+                if (ex != null) {
+                    // fallback to a full sync
+                    this.plugin.getLogger().warn("[Messaging] Unable to apply targeted update with id: " + msgId + ", performing a full sync instead", ex);
+                    this.plugin.getSyncTaskBuffer().request()
+                            .thenRunAsync(() -> this.plugin.getEventDispatcher().dispatchNetworkPostSync(msgId, SyncType.FULL, true, null));
+                    return;
+                }
+
+                this.plugin.getCacheDependencyIndex().invalidateDependents(msg.getGroups());
+                this.plugin.getEventDispatcher().dispatchNetworkPostSync(msgId, SyncType.FULL, true, null);
+            });
+
         } else if (message instanceof ActionLogMessage) {
             ActionLogMessage msg = (ActionLogMessage) message;
 
@@ -299,6 +379,44 @@ public class LuckPermsMessagingService extends AsyncInterface implements Interna
         }
     }
 
+    private final class PushTargetedUpdateBuffer extends BufferedRequest<Void> {
+        private final Set<String> groups = new HashSet<>();
+        private final Set<String> tracks = new HashSet<>();
+
+        PushTargetedUpdateBuffer(LuckPermsPlugin plugin) {
+            super(2, TimeUnit.SECONDS, plugin.getBootstrap().getScheduler());
+        }
+
+        CompletableFuture<Void> request(@Nullable String group, @Nullable String track) {
+            synchronized (this) {
+                if (group != null) {
+                    this.groups.add(group);
+                }
+                if (track != null) {
+                    this.tracks.add(track);
+                }
+            }
+            return request();
+        }
+
+        @Override
+        protected Void perform() {
+            Set<String> groups;
+            Set<String> tracks;
+            synchronized (this) {
+                groups = ImmutableSet.copyOf(this.groups);
+                tracks = ImmutableSet.copyOf(this.tracks);
+                this.groups.clear();
+                this.tracks.clear();
+            }
+
+            if (!groups.isEmpty() || !tracks.isEmpty()) {
+                pushTargetedUpdate(groups, tracks);
+            }
+            return null;
+        }
+    }
+
     private final class PushUpdateBuffer extends BufferedRequest<Void> {
         PushUpdateBuffer(LuckPermsPlugin plugin) {
             super(2, TimeUnit.SECONDS, plugin.getBootstrap().getScheduler());
@@ -0,0 +1,108 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.messaging.message;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import me.lucko.luckperms.common.messaging.LuckPermsMessagingService;
+import me.lucko.luckperms.common.util.gson.JArray;
+import me.lucko.luckperms.common.util.gson.JObject;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * A message informing other servers that specific groups and/or tracks have changed.
+ *
+ * <p>Receivers only need to reload the named groups and tracks, instead of
+ * performing a full sync.</p>
+ */
+public class TargetedUpdateMessageImpl extends AbstractMessage {
+    public static final String TYPE = "targetedupdate";
+
+    public static TargetedUpdateMessageImpl decode(@Nullable JsonElement content, UUID id) {
+        if (content == null) {
+            throw new IllegalStateException("Missing content");
+        }
+
+        JsonObject object = content.getAsJsonObject();
+        return new TargetedUpdateMessageImpl(id, decodeNames(object.get("groups")), decodeNames(object.get("tracks")));
+    }
+
+    private static Set<String> decodeNames(@Nullable JsonElement element) {
+        if (element == null) {
+            return ImmutableSet.of();
+        }
+
+        JsonArray array = element.getAsJsonArray();
+        ImmutableSet.Builder<String> names = ImmutableSet.builder();
+        for (JsonElement name : array) {
+            names.add(name.getAsString());
+        }
+        return names.build();
+    }
+
+    private final Set<String> groups;
+    private final Set<String> tracks;
+
+    public TargetedUpdateMessageImpl(UUID id, Set<String> groups, Set<String> tracks) {
+        super(id);
+        this.groups = ImmutableSet.copyOf(groups);
+        this.tracks = ImmutableSet.copyOf(tracks);
+    }
+
+    /**
+     * Gets the names of the groups which have changed.
+     *
+     * @return the group names
+     */
+    public @NonNull Set<String> getGroups() {
+        return this.groups;
+    }
+
+    /**
+     * Gets the names of the tracks which have changed.
+     *
+     * @return the track names
+     */
+    public @NonNull Set<String> getTracks() {
+        return this.tracks;
+    }
+
+    @Override
+    public @NonNull String asEncodedString() {
+        return LuckPermsMessagingService.encodeMessageAsString(
+                TYPE, getId(), new JObject()
+                        .add("groups", new JArray().addAll(this.groups))
+                        .add("tracks", new JArray().addAll(this.tracks))
+                        .toJson()
+        );
+    }
+}
@@ -25,9 +25,12 @@
 
 package me.lucko.luckperms.common.messaging.sql;
 
+import me.lucko.luckperms.common.messaging.message.TargetedUpdateMessageImpl;
 import net.luckperms.api.messenger.IncomingMessageConsumer;
 import net.luckperms.api.messenger.Messenger;
 import net.luckperms.api.messenger.message.OutgoingMessage;
+import net.luckperms.api.messenger.message.type.UpdateMessage;
+import net.luckperms.api.messenger.message.type.UserUpdateMessage;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
 import java.sql.Connection;
@@ -35,7 +38,16 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
@@ -43,9 +55,19 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  */
 public abstract class AbstractSqlMessenger implements Messenger {
 
+    /** The maximum number of messages read by a single poll query */
+    private static final int READ_BATCH_SIZE = 100;
+
+    /** The maximum number of messages written by a single insert statement */
+    private static final int WRITE_BATCH_SIZE = 100;
+
     private final IncomingMessageConsumer consumer;
     private long lastId = -1;
 
+    private final Queue<OutgoingMessage> outgoingMessages = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final ReentrantLock flushLock = new ReentrantLock();
+
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
     private boolean closed = false;
 
@@ -56,6 +78,11 @@ public abstract class AbstractSqlMessenger implements Messenger {
     protected abstract Connection getConnection() throws SQLException;
     protected abstract String getTableName();
 
+    /**
+     * Schedules a call to {@link #flushOutgoingMessages()} to run asynchronously.
+     */
+    protected abstract void scheduleFlush();
+
     public void init() throws SQLException {
         try (Connection c = getConnection()) {
             // init table
@@ -87,45 +114,151 @@ public abstract class AbstractSqlMessenger implements Messenger {
     @Override
     public void sendOutgoingMessage(@NonNull OutgoingMessage outgoingMessage) {
         this.lock.readLock().lock();
-        if (this.closed) {
-            this.lock.readLock().unlock();
-            return;
-        }
+        try {
+            if (this.closed) {
+                return;
+            }
 
-        try (Connection c = getConnection()) {
-            try (PreparedStatement ps = c.prepareStatement("INSERT INTO `" + getTableName() + "` (`time`, `msg`) VALUES(NOW(), ?)")) {
-                ps.setString(1, outgoingMessage.asEncodedString());
-                ps.execute();
+            // queue the message, it will be written together with any others sent in the meantime
+            this.outgoingMessages.add(outgoingMessage);
+            if (this.flushScheduled.compareAndSet(false, true)) {
+                scheduleFlush();
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
         } finally {
             this.lock.readLock().unlock();
         }
     }
 
-    public void pollMessages() {
+    /**
+     * Writes all queued outgoing messages to the database.
+     *
+     * @return true if any messages were written
+     */
+    public boolean flushOutgoingMessages() {
         this.lock.readLock().lock();
-        if (this.closed) {
+        this.flushLock.lock();
+        try {
+            this.flushScheduled.set(false);
+
+            List<OutgoingMessage> messages = new ArrayList<>();
+            OutgoingMessage message;
+            while ((message = this.outgoingMessages.poll()) != null) {
+                messages.add(message);
+            }
+
+            messages = coalesce(messages);
+            if (messages.isEmpty() || this.closed) {
+                return false;
+            }
+
+            try (Connection c = getConnection()) {
+                for (int i = 0; i < messages.size(); i += WRITE_BATCH_SIZE) {
+                    List<OutgoingMessage> batch = messages.subList(i, Math.min(i + WRITE_BATCH_SIZE, messages.size()));
+
+                    StringBuilder sql = new StringBuilder("INSERT INTO `" + getTableName() + "` (`time`, `msg`) VALUES(NOW(), ?)");
+                    for (int j = 1; j < batch.size(); j++) {
+                        sql.append(", (NOW(), ?)");
+                    }
+
+                    try (PreparedStatement ps = c.prepareStatement(sql.toString())) {
+                        for (int j = 0; j < batch.size(); j++) {
+                            ps.setString(j + 1, batch.get(j).asEncodedString());
+                        }
+                        ps.execute();
+                    }
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+            return true;
+        } finally {
+            this.flushLock.unlock();
             this.lock.readLock().unlock();
-            return;
         }
+    }
 
-        try (Connection c = getConnection()) {
-            try (PreparedStatement ps = c.prepareStatement("SELECT `id`, `msg` FROM `" + getTableName() + "` WHERE `id` > ? AND (NOW() - `time` < 30)")) {
-                ps.setLong(1, this.lastId);
-                try (ResultSet rs = ps.executeQuery()) {
-                    while (rs.next()) {
-                        long id = rs.getLong("id");
-                        this.lastId = Math.max(this.lastId, id);
+    /**
+     * Removes messages which are made redundant by others in the same batch.
+     *
+     * <p>A full update causes receivers to sync everything, so any other
+     * update messages sent alongside it can be dropped. Otherwise, repeated
+     * user updates for the same user are collapsed into one.</p>
+     *
+     * @param messages the messages to be sent, in order
+     * @return the messages which need to be sent
+     */
+    static List<OutgoingMessage> coalesce(List<OutgoingMessage> messages) {
+        if (messages.size() <= 1) {
+            return messages;
+        }
 
-                        String message = rs.getString("msg");
-                        this.consumer.consumeIncomingMessageAsString(message);
-                    }
+        boolean fullUpdate = false;
+        for (OutgoingMessage message : messages) {
+            if (message instanceof UpdateMessage) {
+                fullUpdate = true;
+                break;
+            }
+        }
+
+        List<OutgoingMessage> result = new ArrayList<>(messages.size());
+        Set<UUID> updatedUsers = new HashSet<>();
+        boolean sentFullUpdate = false;
+
+        for (OutgoingMessage message : messages) {
+            if (message instanceof UpdateMessage) {
+                if (sentFullUpdate) {
+                    continue;
+                }
+                sentFullUpdate = true;
+            } else if (message instanceof UserUpdateMessage) {
+                if (fullUpdate || !updatedUsers.add(((UserUpdateMessage) message).getUserUniqueId())) {
+                    continue;
                 }
+            } else if (message instanceof TargetedUpdateMessageImpl && fullUpdate) {
+                continue;
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
+            result.add(message);
+        }
+        return result;
+    }
+
+    /**
+     * Reads and handles any new messages from the database.
+     *
+     * @return true if any messages were received
+     */
+    public boolean pollMessages() {
+        this.lock.readLock().lock();
+        try {
+            if (this.closed) {
+                return false;
+            }
+
+            boolean received = false;
+            try (Connection c = getConnection()) {
+                try (PreparedStatement ps = c.prepareStatement("SELECT `id`, `msg` FROM `" + getTableName() + "` WHERE `id` > ? AND (NOW() - `time` < 30) ORDER BY `id` ASC LIMIT " + READ_BATCH_SIZE)) {
+                    // keep reading until we've caught up
+                    int count;
+                    do {
+                        count = 0;
+                        ps.setLong(1, this.lastId);
+                        try (ResultSet rs = ps.executeQuery()) {
+                            while (rs.next()) {
+                                count++;
+                                long id = rs.getLong("id");
+                                this.lastId = Math.max(this.lastId, id);
+
+                                String message = rs.getString("msg");
+                                this.consumer.consumeIncomingMessageAsString(message);
+                            }
+                        }
+                        received |= count != 0;
+                    } while (count == READ_BATCH_SIZE);
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+            return received;
         } finally {
             this.lock.readLock().unlock();
         }
@@ -151,6 +284,9 @@ public abstract class AbstractSqlMessenger implements Messenger {
 
     @Override
     public void close() {
+        // write anything still queued before closing
+        flushOutgoingMessages();
+
         this.lock.writeLock().lock();
         try {
             this.closed = true;
@@ -25,6 +25,7 @@
 
 package me.lucko.luckperms.common.messaging.sql;
 
+import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.plugin.scheduler.SchedulerAdapter;
 import me.lucko.luckperms.common.plugin.scheduler.SchedulerTask;
@@ -36,16 +37,30 @@ import java.sql.SQLException;
 import java.util.concurrent.TimeUnit;
 
 public class SqlMessenger extends AbstractSqlMessenger {
+    /**
+     * How long to keep polling at the minimum interval after any activity, in milliseconds
+     */
+    private static final long ACTIVE_PERIOD = TimeUnit.SECONDS.toMillis(10);
+
     private final LuckPermsPlugin plugin;
     private final SqlStorage sqlStorage;
 
-    private SchedulerTask pollTask;
+    private final long minPollInterval;
+    private final long maxPollInterval;
+
+    private volatile long pollInterval;
+    private volatile long lastActivity = 0L;
+    private volatile boolean polling = false;
+    private volatile SchedulerTask pollTask;
     private SchedulerTask housekeepingTask;
 
     public SqlMessenger(LuckPermsPlugin plugin, SqlStorage sqlStorage, IncomingMessageConsumer consumer) {
         super(consumer);
         this.plugin = plugin;
         this.sqlStorage = sqlStorage;
+        this.minPollInterval = Math.max(1, plugin.getConfiguration().get(ConfigKeys.SQL_MESSENGER_MIN_POLL_INTERVAL));
+        this.maxPollInterval = Math.max(this.minPollInterval, plugin.getConfiguration().get(ConfigKeys.SQL_MESSENGER_MAX_POLL_INTERVAL));
+        this.pollInterval = this.maxPollInterval;
     }
 
     @Override
@@ -58,12 +73,46 @@ public class SqlMessenger extends AbstractSqlMessenger {
 
         // schedule poll tasks
         SchedulerAdapter scheduler = this.plugin.getBootstrap().getScheduler();
-        this.pollTask = scheduler.asyncRepeating(this::pollMessages, 1, TimeUnit.SECONDS);
+        this.polling = true;
+        this.pollTask = scheduler.asyncLater(this::poll, this.pollInterval, TimeUnit.MILLISECONDS);
         this.housekeepingTask = scheduler.asyncRepeating(this::runHousekeeping, 30, TimeUnit.SECONDS);
     }
 
+    private void poll() {
+        boolean received = pollMessages();
+
+        long now = System.currentTimeMillis();
+        if (received) {
+            this.lastActivity = now;
+        }
+
+        // poll quickly for a while after any activity, and back off gradually whilst idle
+        if (now - this.lastActivity < ACTIVE_PERIOD) {
+            this.pollInterval = this.minPollInterval;
+        } else {
+            this.pollInterval = Math.min(this.pollInterval * 2, this.maxPollInterval);
+        }
+
+        if (this.polling) {
+            this.pollTask = this.plugin.getBootstrap().getScheduler().asyncLater(this::poll, this.pollInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    protected void scheduleFlush() {
+        this.plugin.getBootstrap().getScheduler().executeAsync(() -> {
+            if (flushOutgoingMessages()) {
+                // changes tend to come in bursts, so start polling quickly
+                this.lastActivity = System.currentTimeMillis();
+                this.pollInterval = this.minPollInterval;
+            }
+        });
+    }
+
     @Override
     public void close() {
+        this.polling = false;
+
         SchedulerTask task = this.pollTask;
         if (task != null) {
             task.cancel();
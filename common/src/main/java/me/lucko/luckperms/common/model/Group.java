@@ -32,13 +32,16 @@ import me.lucko.luckperms.common.cacheddata.result.IntegerResult;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.locale.Message;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.util.Difference;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
+import net.luckperms.api.node.Node;
 import net.luckperms.api.node.NodeType;
 import net.luckperms.api.node.types.DisplayNameNode;
 import net.luckperms.api.node.types.WeightNode;
 import net.luckperms.api.query.QueryOptions;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.util.Locale;
 import java.util.Optional;
@@ -75,8 +78,8 @@ public class Group extends PermissionHolder {
     }
 
     @Override
-    protected void invalidateCache() {
-        super.invalidateCache();
+    protected void invalidateCache(@Nullable Difference<Node> changes) {
+        super.invalidateCache(changes);
 
         // invalidate our caches
         this.weightCache.invalidate();
@@ -29,8 +29,10 @@ import com.google.common.collect.Iterables;
 import me.lucko.luckperms.common.cacheddata.HolderCachedDataManager;
 import me.lucko.luckperms.common.cacheddata.result.IntegerResult;
 import me.lucko.luckperms.common.cacheddata.type.MetaAccumulator;
+import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.inheritance.InheritanceComparator;
 import me.lucko.luckperms.common.inheritance.InheritanceGraph;
+import me.lucko.luckperms.common.inheritance.InheritanceGraphFactory;
 import me.lucko.luckperms.common.model.nodemap.NodeMap;
 import me.lucko.luckperms.common.model.nodemap.NodeMapMutable;
 import me.lucko.luckperms.common.model.nodemap.RecordedNodeMap;
@@ -38,6 +40,7 @@ import me.lucko.luckperms.common.node.NodeEquality;
 import me.lucko.luckperms.common.node.comparator.NodeWithContextComparator;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.query.DataSelector;
+import me.lucko.luckperms.common.treeview.PermissionPool;
 import me.lucko.luckperms.common.util.Difference;
 import net.kyori.adventure.text.Component;
 import net.luckperms.api.context.ContextSet;
@@ -60,10 +63,12 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.OptionalInt;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.function.IntFunction;
@@ -128,6 +133,11 @@ public abstract class PermissionHolder {
      */
     private final Comparator<? super PermissionHolder> inheritanceComparator;
 
+    /**
+     * Cached results of traversing the inheritance graph from this holder
+     */
+    private final InheritanceGraphFactory.TraversalCache traversalCache = new InheritanceGraphFactory.TraversalCache();
+
     /**
      * Creates a new instance
      *
@@ -151,6 +161,10 @@ public abstract class PermissionHolder {
         return this.inheritanceComparator;
     }
 
+    public InheritanceGraphFactory.TraversalCache getTraversalCache() {
+        return this.traversalCache;
+    }
+
     public NodeMap getData(DataType type) {
         switch (type) {
             case NORMAL:
@@ -174,6 +188,26 @@ public abstract class PermissionHolder {
         return this.identifier;
     }
 
+    /**
+     * Gets a number which changes whenever the holders nodes are mutated.
+     *
+     * @return the data version
+     */
+    public int getDataVersion() {
+        return this.normalNodes.modCount() + this.transientNodes.modCount();
+    }
+
+    /**
+     * Compacts the holders node data whilst it is not being used.
+     *
+     * <p>The data can still be read whilst frozen, and is restored automatically the
+     * next time it is modified.</p>
+     */
+    public void freeze() {
+        this.normalNodes.freeze();
+        this.transientNodes.freeze();
+    }
+
     /**
      * Gets the formatted display name of this permission holder
      * (for use in commands, etc)
@@ -210,8 +244,21 @@ public abstract class PermissionHolder {
      */
     public abstract HolderType getType();
 
-    protected void invalidateCache() {
-        getCachedData().invalidate();
+    protected final void invalidateCache() {
+        invalidateCache(null);
+    }
+
+    /**
+     * Invalidates the holders caches following a change to its own nodes.
+     *
+     * @param changes the changes which were made, or null if they are not known
+     */
+    protected void invalidateCache(@Nullable Difference<Node> changes) {
+        if (changes == null) {
+            getCachedData().invalidate();
+        } else {
+            getCachedData().invalidate(changes);
+        }
         getPlugin().getEventDispatcher().dispatchDataRecalculate(this);
     }
 
@@ -224,7 +271,7 @@ public abstract class PermissionHolder {
 
     public Difference<Node> setNodes(DataType type, Iterable<? extends Node> set, boolean callEvent) {
         Difference<Node> res = getData(type).setContent(set);
-        invalidateCache();
+        invalidateCache(res);
         if (callEvent) {
             getPlugin().getEventDispatcher().dispatchNodeChanges(this, type, res);
         }
@@ -233,7 +280,7 @@ public abstract class PermissionHolder {
 
     public Difference<Node> setNodes(DataType type, Difference<Node> changes, boolean callEvent) {
         Difference<Node> res = getData(type).applyChanges(changes);
-        invalidateCache();
+        invalidateCache(res);
         if (callEvent) {
             getPlugin().getEventDispatcher().dispatchNodeChanges(this, type, res);
         }
@@ -241,8 +288,8 @@ public abstract class PermissionHolder {
     }
 
     public void mergeNodes(DataType type, Iterable<? extends Node> set) {
-        getData(type).addAll(set);
-        invalidateCache();
+        Difference<Node> changes = getData(type).addAll(set);
+        invalidateCache(changes);
     }
 
     private DataType[] queryOrder(QueryOptions queryOptions) {
@@ -287,8 +334,7 @@ public abstract class PermissionHolder {
         }
 
         List<Node> nodes = new ArrayList<>();
-        InheritanceGraph graph = this.plugin.getInheritanceGraphFactory().getGraph(queryOptions);
-        for (PermissionHolder holder : graph.traverse(this)) {
+        for (PermissionHolder holder : this.plugin.getInheritanceGraphFactory().traverse(this, queryOptions)) {
             for (DataType dataType : holder.queryOrder(queryOptions)) {
                 holder.getData(dataType).copyTo(nodes, queryOptions);
             }
@@ -302,8 +348,7 @@ public abstract class PermissionHolder {
         }
 
         SortedSet<Node> nodes = new TreeSet<>(NodeWithContextComparator.reverse());
-        InheritanceGraph graph = this.plugin.getInheritanceGraphFactory().getGraph(queryOptions);
-        for (PermissionHolder holder : graph.traverse(this)) {
+        for (PermissionHolder holder : this.plugin.getInheritanceGraphFactory().traverse(this, queryOptions)) {
             for (DataType dataType : holder.queryOrder(queryOptions)) {
                 holder.getData(dataType).copyTo(nodes, queryOptions);
             }
@@ -317,8 +362,7 @@ public abstract class PermissionHolder {
         }
 
         List<T> nodes = new ArrayList<>();
-        InheritanceGraph graph = this.plugin.getInheritanceGraphFactory().getGraph(queryOptions);
-        for (PermissionHolder holder : graph.traverse(this)) {
+        for (PermissionHolder holder : this.plugin.getInheritanceGraphFactory().traverse(this, queryOptions)) {
             for (DataType dataType : holder.queryOrder(queryOptions)) {
                 holder.getData(dataType).copyTo(nodes, type, queryOptions);
             }
@@ -328,15 +372,14 @@ public abstract class PermissionHolder {
 
     @SuppressWarnings({"unchecked", "rawtypes"})
     public List<Group> resolveInheritanceTree(QueryOptions queryOptions) {
-        InheritanceGraph graph = this.plugin.getInheritanceGraphFactory().getGraph(queryOptions);
-
         List<PermissionHolder> inheritanceTree = new ArrayList<>();
 
         if (queryOptions.flag(Flag.RESOLVE_INHERITANCE)) {
-            Iterables.addAll(inheritanceTree, graph.traverse(this));
+            inheritanceTree.addAll(this.plugin.getInheritanceGraphFactory().traverse(this, queryOptions));
             inheritanceTree.remove(this);
         } else {
             // if RESOLVE_INHERITANCE is not set, only go up by one level
+            InheritanceGraph graph = this.plugin.getInheritanceGraphFactory().getGraph(queryOptions);
             Iterables.addAll(inheritanceTree, graph.successors(this));
         }
 
@@ -352,17 +395,41 @@ public abstract class PermissionHolder {
         return (List) inheritanceTree;
     }
 
+    /**
+     * Resolves the names of all groups which could affect this holders
+     * inherited data in the given {@link QueryOptions}.
+     *
+     * <p>This includes every group traversed in the inheritance graph, as well
+     * as any group referenced by an inheritance node which is not currently
+     * loaded (so that loading or creating it later is also detected).</p>
+     *
+     * @param queryOptions the query options
+     * @return the names of the groups
+     */
+    public Set<String> resolveInheritanceDependencies(QueryOptions queryOptions) {
+        Set<String> dependencies = new HashSet<>();
+        for (PermissionHolder holder : this.plugin.getInheritanceGraphFactory().traverse(this, queryOptions)) {
+            if (holder.getType() == HolderType.GROUP) {
+                dependencies.add(holder.getIdentifier().getName());
+            }
+            for (InheritanceNode node : holder.getOwnInheritanceNodes(queryOptions)) {
+                dependencies.add(node.getGroupName());
+            }
+        }
+        return dependencies;
+    }
+
     public <M extends Map<String, Node>> M exportPermissions(IntFunction<M> mapFactory, QueryOptions queryOptions, boolean convertToLowercase, boolean resolveShorthand) {
         List<Node> entries = resolveInheritedNodes(queryOptions);
         M map = mapFactory.apply(entries.size());
-        processExportedPermissions(map, entries, convertToLowercase, resolveShorthand);
+        processExportedPermissions(map, entries, convertToLowercase ? this.plugin.getPermissionRegistry().getPool() : null, resolveShorthand);
         return map;
     }
 
-    private static void processExportedPermissions(Map<String, Node> accumulator, List<Node> entries, boolean convertToLowercase, boolean resolveShorthand) {
+    private static void processExportedPermissions(Map<String, Node> accumulator, List<Node> entries, @Nullable PermissionPool lowercasePool, boolean resolveShorthand) {
         for (Node node : entries) {
-            if (convertToLowercase) {
-                accumulator.putIfAbsent(node.getKey().toLowerCase(Locale.ROOT), node);
+            if (lowercasePool != null) {
+                accumulator.putIfAbsent(lowercasePool.intern(node.getKey()), node);
             } else {
                 accumulator.putIfAbsent(node.getKey(), node);
             }
@@ -372,8 +439,8 @@ public abstract class PermissionHolder {
             for (Node node : entries) {
                 Collection<String> shorthand = node.resolveShorthand();
                 for (String s : shorthand) {
-                    if (convertToLowercase) {
-                        accumulator.putIfAbsent(s.toLowerCase(Locale.ROOT), node);
+                    if (lowercasePool != null) {
+                        accumulator.putIfAbsent(lowercasePool.intern(s), node);
                     } else {
                         accumulator.putIfAbsent(s, node);
                     }
@@ -382,13 +449,79 @@ public abstract class PermissionHolder {
         }
     }
 
+    /**
+     * Resolves the entries in a previous {@link #exportPermissions} result which
+     * are affected by the given changes to the holders own nodes.
+     *
+     * <p>The holders own nodes take precedence over those it inherits, so any
+     * key which is still set directly can be resolved again without traversing
+     * the inheritance tree. If the entry for a key may instead depend on inherited
+     * nodes (e.g. because the node which provided it has been removed), this
+     * method returns false and the permissions should be exported again in
+     * full.</p>
+     *
+     * @param accumulator the map to add updated entries to
+     * @param exported the previous export result (with lowercase keys)
+     * @param changes the changes made to the holders own nodes
+     * @param queryOptions the query options
+     * @param resolveShorthand if shorthand permissions were resolved in the export
+     * @return true if the updated entries were resolved
+     */
+    public boolean exportPermissionChanges(Map<String, Node> accumulator, Map<String, Node> exported, Difference<Node> changes, QueryOptions queryOptions, boolean resolveShorthand) {
+        // groups are not necessarily first in the traversal if it is sorted afterwards
+        if (getType() != HolderType.USER && queryOptions.flag(Flag.RESOLVE_INHERITANCE) && this.plugin.getConfiguration().get(ConfigKeys.POST_TRAVERSAL_INHERITANCE_SORT)) {
+            return false;
+        }
+
+        Set<Node> added = changes.getAdded();
+        Set<Node> removed = changes.getRemoved();
+
+        Set<String> keys = new HashSet<>();
+        for (Node node : added) {
+            keys.add(node.getKey().toLowerCase(Locale.ROOT));
+        }
+        for (Node node : removed) {
+            keys.add(node.getKey().toLowerCase(Locale.ROOT));
+            if (resolveShorthand) {
+                for (String s : node.resolveShorthand()) {
+                    keys.add(s.toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+
+        PermissionPool pool = this.plugin.getPermissionRegistry().getPool();
+        for (Node node : getOwnNodes(queryOptions)) {
+            // shorthand entries are ordered after every direct entry in the inheritance tree
+            if (resolveShorthand && added.contains(node) && !node.resolveShorthand().isEmpty()) {
+                return false;
+            }
+
+            String key = node.getKey().toLowerCase(Locale.ROOT);
+            if (keys.contains(key) && !accumulator.containsKey(key)) {
+                accumulator.put(pool.intern(key), node);
+            }
+        }
+
+        for (String key : keys) {
+            if (!accumulator.containsKey(key)) {
+                // no longer set directly, so it now depends on what else is inherited
+                Node previous = exported.get(key);
+                if (previous != null && removed.contains(previous)) {
+                    return false;
+                }
+            }
+        }
+
+        accumulator.entrySet().removeIf(e -> e.getValue() == exported.get(e.getKey()));
+        return true;
+    }
+
     public MetaAccumulator accumulateMeta(QueryOptions queryOptions) {
         return accumulateMeta(MetaAccumulator.makeFromConfig(this.plugin), queryOptions);
     }
 
     public MetaAccumulator accumulateMeta(MetaAccumulator accumulator, QueryOptions queryOptions) {
-        InheritanceGraph graph = this.plugin.getInheritanceGraphFactory().getGraph(queryOptions);
-        for (PermissionHolder holder : graph.traverse(this)) {
+        for (PermissionHolder holder : this.plugin.getInheritanceGraphFactory().traverse(this, queryOptions)) {
             // accumulate nodes
             for (DataType dataType : holder.queryOrder(queryOptions)) {
                 holder.getData(dataType).forEach(queryOptions, node -> {
@@ -405,6 +538,56 @@ public abstract class PermissionHolder {
             }
         }
 
+        return completeMeta(accumulator, queryOptions);
+    }
+
+    /**
+     * Resolves the holders permissions and meta together, in a single pass
+     * over the nodes in the inheritance tree.
+     *
+     * <p>The results are the same as those from calling {@link #exportPermissions}
+     * and {@link #accumulateMeta(MetaAccumulator, QueryOptions)} separately.</p>
+     *
+     * @param mapFactory a function to create the map to return the permissions in
+     * @param accumulator the accumulator to add meta to
+     * @param queryOptions the query options
+     * @param convertToLowercase if permission keys should be converted to lowercase
+     * @param resolveShorthand if shorthand permissions should be resolved
+     * @param <M> the map type
+     * @return the permissions
+     */
+    public <M extends Map<String, Node>> M exportPermissionsAndMeta(IntFunction<M> mapFactory, MetaAccumulator accumulator, QueryOptions queryOptions, boolean convertToLowercase, boolean resolveShorthand) {
+        boolean resolveInheritance = queryOptions.flag(Flag.RESOLVE_INHERITANCE);
+
+        List<Node> entries = new ArrayList<>();
+        for (PermissionHolder holder : this.plugin.getInheritanceGraphFactory().traverse(this, queryOptions)) {
+            // meta is always inherited, permissions only if RESOLVE_INHERITANCE is set
+            boolean includePermissions = resolveInheritance || holder == this;
+
+            for (DataType dataType : holder.queryOrder(queryOptions)) {
+                holder.getData(dataType).forEach(queryOptions, node -> {
+                    if (includePermissions) {
+                        entries.add(node);
+                    }
+                    if (NodeType.META_OR_CHAT_META.matches(node)) {
+                        accumulator.accumulateNode(node);
+                    }
+                });
+            }
+
+            IntegerResult<WeightNode> weight = holder.getWeightResult();
+            if (!weight.isNull()) {
+                accumulator.accumulateWeight(weight);
+            }
+        }
+        completeMeta(accumulator, queryOptions);
+
+        M map = mapFactory.apply(entries.size());
+        processExportedPermissions(map, entries, convertToLowercase ? this.plugin.getPermissionRegistry().getPool() : null, resolveShorthand);
+        return map;
+    }
+
+    private MetaAccumulator completeMeta(MetaAccumulator accumulator, QueryOptions queryOptions) {
         // accumulate primary group
         if (this instanceof User) {
             String primaryGroup = ((User) this).getPrimaryGroup().calculateValue(queryOptions);
@@ -428,9 +611,9 @@ public abstract class PermissionHolder {
     }
 
     private boolean auditTemporaryNodes(DataType dataType) {
-        Difference<Node> result = getData(dataType).removeIf(Node::hasExpired);
+        Difference<Node> result = getData(dataType).removeExpired();
         if (!result.isEmpty()) {
-            invalidateCache();
+            invalidateCache(result);
         }
         this.plugin.getEventDispatcher().dispatchNodeChanges(this, dataType, result);
         return !result.isEmpty();
@@ -463,7 +646,7 @@ public abstract class PermissionHolder {
         }
 
         Difference<Node> changes = getData(dataType).add(node);
-        invalidateCache();
+        invalidateCache(changes);
         if (callEvent) {
             this.plugin.getEventDispatcher().dispatchNodeChanges(this, dataType, changes);
         }
@@ -500,7 +683,7 @@ public abstract class PermissionHolder {
                 if (newNode != null) {
                     // Remove the old Node & add the new one.
                     Difference<Node> changes = data.removeThenAdd(otherMatch, newNode);
-                    invalidateCache();
+                    invalidateCache(changes);
                     this.plugin.getEventDispatcher().dispatchNodeChanges(this, dataType, changes);
 
                     return new MergedNodeResult(DataMutateResult.SUCCESS, newNode);
@@ -518,7 +701,7 @@ public abstract class PermissionHolder {
         }
 
         Difference<Node> changes = getData(dataType).remove(node);
-        invalidateCache();
+        invalidateCache(changes);
         this.plugin.getEventDispatcher().dispatchNodeChanges(this, dataType, changes);
 
         return DataMutateResult.SUCCESS;
@@ -540,7 +723,7 @@ public abstract class PermissionHolder {
 
                     // Remove the old Node & add the new one.
                     Difference<Node> changes = data.removeThenAdd(otherMatch, newNode);
-                    invalidateCache();
+                    invalidateCache(changes);
                     this.plugin.getEventDispatcher().dispatchNodeChanges(this, dataType, changes);
 
                     return new MergedNodeResult(DataMutateResult.SUCCESS, newNode);
@@ -568,7 +751,7 @@ public abstract class PermissionHolder {
             getPlugin().getUserManager().giveDefaultIfNeeded((User) this);
         }
 
-        invalidateCache();
+        invalidateCache(changes);
         this.plugin.getEventDispatcher().dispatchNodeClear(this, dataType, changes);
         return true;
     }
@@ -585,7 +768,7 @@ public abstract class PermissionHolder {
             getPlugin().getUserManager().giveDefaultIfNeeded((User) this);
         }
 
-        invalidateCache();
+        invalidateCache(changes);
         this.plugin.getEventDispatcher().dispatchNodeClear(this, dataType, changes);
         return true;
     }
@@ -26,7 +26,6 @@
 package me.lucko.luckperms.common.model;
 
 import me.lucko.luckperms.common.config.ConfigKeys;
-import me.lucko.luckperms.common.inheritance.InheritanceGraph;
 import net.luckperms.api.node.types.InheritanceNode;
 import net.luckperms.api.query.QueryOptions;
 
@@ -103,10 +102,13 @@ public interface PrimaryGroupHolder {
 
         @Override
         public String calculateValue(QueryOptions queryOptions) {
-            InheritanceGraph graph = this.user.getPlugin().getInheritanceGraphFactory().getGraph(queryOptions);
-
             // fully traverse the graph, obtain a list of permission holders the user inherits from in weight order.
-            Iterable<PermissionHolder> traversal = graph.traverse(this.user.getPlugin().getConfiguration().get(ConfigKeys.INHERITANCE_TRAVERSAL_ALGORITHM), true, this.user);
+            Iterable<PermissionHolder> traversal = this.user.getPlugin().getInheritanceGraphFactory().traverse(
+                    this.user.getPlugin().getConfiguration().get(ConfigKeys.INHERITANCE_TRAVERSAL_ALGORITHM),
+                    true,
+                    this.user,
+                    queryOptions
+            );
 
             // return the name of the first found group
             for (PermissionHolder holder : traversal) {
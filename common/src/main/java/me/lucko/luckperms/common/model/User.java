@@ -28,6 +28,7 @@ package me.lucko.luckperms.common.model;
 import me.lucko.luckperms.common.api.implementation.ApiUser;
 import me.lucko.luckperms.common.cacheddata.UserCachedDataManager;
 import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.model.manager.user.UserManager;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import net.kyori.adventure.text.Component;
 import net.luckperms.api.query.QueryOptions;
@@ -116,6 +117,18 @@ public class User extends PermissionHolder {
      * @return true if a change was made
      */
     public boolean setUsername(String name, boolean weak) {
+        String previousUsername = this.username;
+        boolean changed = applyUsername(name, weak);
+
+        // keep the username index in the user manager up to date
+        UserManager<?> userManager = getPlugin().getUserManager();
+        if (changed && userManager != null) {
+            userManager.onUsernameChange(this, previousUsername);
+        }
+        return changed;
+    }
+
+    private boolean applyUsername(String name, boolean weak) {
         if (name != null && name.length() > 16) {
             return false; // nope
         }
@@ -30,8 +30,33 @@ import me.lucko.luckperms.common.model.manager.AbstractManager;
 
 import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public abstract class AbstractGroupManager<T extends Group> extends AbstractManager<String, Group, T> implements GroupManager<T> {
+    private final AtomicInteger loadGeneration = new AtomicInteger();
+
+    @Override
+    public T getOrMake(String id) {
+        T group = getIfLoaded(id);
+        if (group != null) {
+            return group;
+        }
+
+        group = super.getOrMake(id);
+        this.loadGeneration.incrementAndGet();
+        return group;
+    }
+
+    @Override
+    public void unload(String id) {
+        super.unload(id);
+        this.loadGeneration.incrementAndGet();
+    }
+
+    @Override
+    public int getLoadGeneration() {
+        return this.loadGeneration.get();
+    }
 
     @Override
     public T getByDisplayName(String name) {
@@ -44,6 +44,13 @@ public interface GroupManager<T extends Group> extends Manager<String, Group, T>
      */
     T getByDisplayName(String name);
 
+    /**
+     * Gets a number which changes whenever a group is loaded or unloaded.
+     *
+     * @return the load generation
+     */
+    int getLoadGeneration();
+
     /**
      * Invalidates the cached data for *loaded* groups.
      */
@@ -25,6 +25,7 @@
 
 package me.lucko.luckperms.common.model.manager.user;
 
+import com.google.common.collect.Lists;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.context.ImmutableContextSetImpl;
 import me.lucko.luckperms.common.model.User;
@@ -32,25 +33,31 @@ import me.lucko.luckperms.common.model.manager.AbstractManager;
 import me.lucko.luckperms.common.model.manager.group.GroupManager;
 import me.lucko.luckperms.common.node.types.Inheritance;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
-import me.lucko.luckperms.common.util.CompletableFutures;
 import me.lucko.luckperms.common.verbose.event.CheckOrigin;
 import net.luckperms.api.model.data.DataType;
 import net.luckperms.api.node.Node;
 import net.luckperms.api.node.types.InheritanceNode;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 public abstract class AbstractUserManager<T extends User> extends AbstractManager<UUID, User, T> implements UserManager<T> {
 
     private final LuckPermsPlugin plugin;
     private final UserHousekeeper housekeeper;
+    /** An index of loaded users, keyed by their lowercase username */
+    private final Map<String, T> usernameIndex = new ConcurrentHashMap<>();
 
     public AbstractUserManager(LuckPermsPlugin plugin, UserHousekeeper.TimeoutSettings timeoutSettings) {
         this.plugin = plugin;
@@ -69,15 +76,45 @@ public abstract class AbstractUserManager<T extends User> extends AbstractManage
 
     @Override
     public T getByUsername(String name) {
-        for (T user : getAll().values()) {
-            Optional<String> n = user.getUsername();
-            if (n.isPresent() && n.get().equalsIgnoreCase(name)) {
-                return user;
-            }
+        String key = name.toLowerCase(Locale.ROOT);
+        T user = this.usernameIndex.get(key);
+        if (user == null) {
+            return null;
+        }
+
+        // the index is updated after the user, so verify the entry is still current
+        Optional<String> n = user.getUsername();
+        if (n.isPresent() && n.get().equalsIgnoreCase(name) && getIfLoaded(user.getUniqueId()) == user) {
+            return user;
         }
+
+        this.usernameIndex.remove(key, user);
         return null;
     }
 
+    @Override
+    public void onUsernameChange(User user, @Nullable String previousUsername) {
+        if (previousUsername != null) {
+            this.usernameIndex.remove(previousUsername.toLowerCase(Locale.ROOT), user);
+        }
+
+        // only index the user if it is the instance held by this manager
+        T loaded = getIfLoaded(user.getUniqueId());
+        if (loaded == user) {
+            loaded.getUsername().ifPresent(name -> this.usernameIndex.put(name.toLowerCase(Locale.ROOT), loaded));
+        }
+    }
+
+    @Override
+    public void unload(UUID id) {
+        T user = id == null ? null : getIfLoaded(id);
+        super.unload(id);
+
+        if (user != null) {
+            user.getUsername().ifPresent(name -> this.usernameIndex.remove(name.toLowerCase(Locale.ROOT), user));
+        }
+    }
+
     @Override
     public boolean giveDefaultIfNeeded(User user) {
         boolean requireSave = false;
@@ -165,9 +202,29 @@ public abstract class AbstractUserManager<T extends User> extends AbstractManage
         Set<UUID> ids = new HashSet<>(getAll().keySet());
         ids.addAll(this.plugin.getBootstrap().getOnlinePlayers());
 
-        return ids.stream()
-                .map(id -> this.plugin.getStorage().loadUser(id, null))
-                .collect(CompletableFutures.collector());
+        int batchSize = Math.max(1, this.plugin.getConfiguration().get(ConfigKeys.USER_LOAD_BATCH_SIZE));
+        int parallelism = Math.max(1, this.plugin.getConfiguration().get(ConfigKeys.USER_LOAD_PARALLELISM));
+
+        // load the users in batches, spread over a fixed number of "lanes".
+        // each lane loads one batch at a time, so at most 'parallelism' batches are in flight
+        List<List<UUID>> batches = Lists.partition(new ArrayList<>(ids), batchSize);
+        CompletableFuture<?>[] lanes = new CompletableFuture<?>[Math.min(parallelism, batches.size())];
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[batches.size()];
+
+        for (int i = 0; i < batches.size(); i++) {
+            Set<UUID> batch = new HashSet<>(batches.get(i));
+            int lane = i % lanes.length;
+
+            CompletableFuture<?> previous = lanes[lane];
+            CompletableFuture<?> future = previous == null
+                    ? this.plugin.getStorage().loadUsers(batch)
+                    : previous.handle((result, ex) -> null).thenCompose(x -> this.plugin.getStorage().loadUsers(batch));
+
+            lanes[lane] = future;
+            futures[i] = future;
+        }
+
+        return CompletableFuture.allOf(futures);
     }
 
     @Override
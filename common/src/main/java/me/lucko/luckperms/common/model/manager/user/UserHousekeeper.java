@@ -32,6 +32,7 @@ import me.lucko.luckperms.common.util.ExpiringSet;
 
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -47,6 +48,9 @@ public class UserHousekeeper implements Runnable {
     // contains the uuids of users who have recently been retrieved from the API
     private final Set<UUID> recentlyUsedApi;
 
+    // contains the uuids of users who have been frozen since they were last used
+    private final Set<UUID> frozen = ConcurrentHashMap.newKeySet();
+
     public UserHousekeeper(LuckPermsPlugin plugin, UserManager<?> userManager, TimeoutSettings timeoutSettings) {
         this.plugin = plugin;
         this.userManager = userManager;
@@ -57,6 +61,7 @@ public class UserHousekeeper implements Runnable {
     // called when a player attempts a connection or logs out
     public void registerUsage(UUID uuid) {
         this.recentlyUsed.add(uuid);
+        this.frozen.remove(uuid);
     }
 
     public void registerApiUsage(UUID uuid) {
@@ -69,17 +74,29 @@ public class UserHousekeeper implements Runnable {
 
     @Override
     public void run() {
-        for (UUID entry : this.userManager.getAll().keySet()) {
+        Set<UUID> loaded = this.userManager.getAll().keySet();
+        for (UUID entry : loaded) {
             cleanup(entry);
         }
+        this.frozen.retainAll(loaded);
     }
 
     public void cleanup(UUID uuid) {
-        // unload users which aren't online and who haven't been online (or tried to login) recently
-        if (this.recentlyUsed.contains(uuid) || this.recentlyUsedApi.contains(uuid) || this.plugin.getBootstrap().isPlayerOnline(uuid)) {
+        if (this.plugin.getBootstrap().isPlayerOnline(uuid)) {
+            return;
+        }
+
+        // users who aren't online but have been recently are kept loaded, but in a compact form
+        if (this.recentlyUsed.contains(uuid) || this.recentlyUsedApi.contains(uuid)) {
+            User user = this.userManager.getIfLoaded(uuid);
+            if (user != null) {
+                freeze(user);
+            }
             return;
         }
 
+        // unload users which aren't online and who haven't been online (or tried to login) recently
+
         User user = this.userManager.getIfLoaded(uuid);
         if (user == null) {
             return;
@@ -94,6 +111,18 @@ public class UserHousekeeper implements Runnable {
             this.plugin.getLogger().info("User Housekeeper: unloading user data for " + uuid);
         }
         this.userManager.unload(uuid);
+        this.frozen.remove(uuid);
+    }
+
+    private void freeze(User user) {
+        // only freeze once between usages - if the data has been thawed since,
+        // it is being modified, and freezing it again would just cause churn
+        if (this.frozen.add(user.getUniqueId())) {
+            // the cached data holds on to the same nodes, so release it first -
+            // it will be recalculated if the user is used again
+            user.getCachedData().invalidate();
+            user.freeze();
+        }
     }
 
     public static TimeoutSettings timeoutSettings(long duration, TimeUnit unit) {
@@ -29,6 +29,7 @@ import me.lucko.luckperms.common.calculator.PermissionCalculator;
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.model.manager.Manager;
 import net.luckperms.api.node.Node;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -45,6 +46,14 @@ public interface UserManager<T extends User> extends Manager<UUID, User, T> {
      */
     T getByUsername(String name);
 
+    /**
+     * Updates the username index following a change to the username of a user.
+     *
+     * @param user the user
+     * @param previousUsername the previous username of the user
+     */
+    void onUsernameChange(User user, @Nullable String previousUsername);
+
     /**
      * Gives the user the default group if necessary.
      *
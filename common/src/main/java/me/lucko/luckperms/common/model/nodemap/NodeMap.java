@@ -57,6 +57,16 @@ public interface NodeMap {
 
     int size();
 
+    /**
+     * Gets the modification count of the map.
+     *
+     * <p>The value changes whenever the contents of the map are mutated, so it
+     * can be used to cheaply check if data derived from the map is still current.</p>
+     *
+     * @return the modification count
+     */
+    int modCount();
+
     default List<Node> asList() {
         List<Node> list = new ArrayList<>();
         copyTo(list);
@@ -159,4 +169,25 @@ public interface NodeMap {
 
     Difference<Node> addAll(Stream<? extends Node> stream);
 
+    /**
+     * Removes any nodes which have expired.
+     *
+     * @return the changes made
+     */
+    default Difference<Node> removeExpired() {
+        return removeIf(Node::hasExpired);
+    }
+
+    /**
+     * Converts the contents of the map to a compact read-only form, to reduce
+     * memory usage whilst the map isn't being used.
+     *
+     * <p>Reads are answered from the compact form, which is only converted back the
+     * next time the map is written to. This method has no effect on the contents
+     * of the map.</p>
+     */
+    default void freeze() {
+        // do nothing by default
+    }
+
 }
@@ -43,6 +43,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.SortedSet;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 /**
@@ -53,22 +54,25 @@ abstract class NodeMapBase implements NodeMap {
     NodeMapBase() {
 
     }
-    
-    protected abstract SortedMap<ImmutableContextSet, SortedSet<Node>> map();
 
-    protected abstract SortedMap<ImmutableContextSet, SortedSet<InheritanceNode>> inheritanceMap();
+    /**
+     * Gets a consistent view of the current contents of the map.
+     *
+     * @return the snapshot
+     */
+    protected abstract Snapshot snapshot();
 
     protected abstract ContextSatisfyMode defaultSatisfyMode();
 
     @Override
     public boolean isEmpty() {
-        return map().isEmpty();
+        return snapshot().map.isEmpty();
     }
 
     @Override
     public int size() {
         int size = 0;
-        for (SortedSet<Node> values : map().values()) {
+        for (SortedSet<Node> values : snapshot().map.values()) {
             size += values.size();
         }
         return size;
@@ -77,7 +81,7 @@ abstract class NodeMapBase implements NodeMap {
     @Override
     public Map<ImmutableContextSet, Collection<Node>> asMap() {
         Map<ImmutableContextSet, Collection<Node>> map = new HashMap<>();
-        for (Map.Entry<ImmutableContextSet, SortedSet<Node>> e : map().entrySet()) {
+        for (Map.Entry<ImmutableContextSet, SortedSet<Node>> e : snapshot().map.entrySet()) {
             map.put(e.getKey(), new ArrayList<>(e.getValue()));
         }
         return map;
@@ -86,7 +90,7 @@ abstract class NodeMapBase implements NodeMap {
     @Override
     public Map<ImmutableContextSet, Collection<InheritanceNode>> inheritanceAsMap() {
         Map<ImmutableContextSet, Collection<InheritanceNode>> map = new HashMap<>();
-        for (Map.Entry<ImmutableContextSet, SortedSet<InheritanceNode>> e : inheritanceMap().entrySet()) {
+        for (Map.Entry<ImmutableContextSet, SortedSet<InheritanceNode>> e : snapshot().inheritanceMap.entrySet()) {
             map.put(e.getKey(), new ArrayList<>(e.getValue()));
         }
         return map;
@@ -94,63 +98,57 @@ abstract class NodeMapBase implements NodeMap {
 
     @Override
     public void forEach(Consumer<? super Node> consumer) {
-        for (SortedSet<Node> values : map().values()) {
+        for (SortedSet<Node> values : snapshot().map.values()) {
             values.forEach(consumer);
         }
     }
 
     @Override
     public void forEach(QueryOptions filter, Consumer<? super Node> consumer) {
-        for (Map.Entry<ImmutableContextSet, SortedSet<Node>> e : map().entrySet()) {
-            if (!filter.satisfies(e.getKey(), defaultSatisfyMode())) {
-                continue;
-            }
-
-            if (normalNodesExcludeTest(filter, e.getKey())) {
-                if (inheritanceNodesIncludeTest(filter, e.getKey())) {
-                    SortedSet<InheritanceNode> inheritanceNodes = inheritanceMap().get(e.getKey());
+        Snapshot snapshot = snapshot();
+        snapshot.forEachSatisfying(snapshot.map, filter, defaultSatisfyMode(), (context, nodes) -> {
+            if (normalNodesExcludeTest(filter, context)) {
+                if (inheritanceNodesIncludeTest(filter, context)) {
+                    SortedSet<InheritanceNode> inheritanceNodes = snapshot.inheritanceMap.get(context);
                     if (inheritanceNodes != null) {
                         inheritanceNodes.forEach(consumer);
                     }
                 }
             } else {
-                e.getValue().forEach(consumer);
+                nodes.forEach(consumer);
             }
-        }
+        });
     }
 
     @Override
     public void copyTo(Collection<? super Node> collection) {
-        for (SortedSet<Node> values : map().values()) {
+        for (SortedSet<Node> values : snapshot().map.values()) {
             collection.addAll(values);
         }
     }
 
     @Override
     public void copyTo(ImmutableCollection.Builder<? super Node> collection) {
-        for (SortedSet<Node> values : map().values()) {
+        for (SortedSet<Node> values : snapshot().map.values()) {
             collection.addAll(values);
         }
     }
 
     @Override
     public void copyTo(Collection<? super Node> collection, QueryOptions filter) {
-        for (Map.Entry<ImmutableContextSet, SortedSet<Node>> e : map().entrySet()) {
-            if (!filter.satisfies(e.getKey(), defaultSatisfyMode())) {
-                continue;
-            }
-
-            if (normalNodesExcludeTest(filter, e.getKey())) {
-                if (inheritanceNodesIncludeTest(filter, e.getKey())) {
-                    SortedSet<InheritanceNode> inheritanceNodes = inheritanceMap().get(e.getKey());
+        Snapshot snapshot = snapshot();
+        snapshot.forEachSatisfying(snapshot.map, filter, defaultSatisfyMode(), (context, nodes) -> {
+            if (normalNodesExcludeTest(filter, context)) {
+                if (inheritanceNodesIncludeTest(filter, context)) {
+                    SortedSet<InheritanceNode> inheritanceNodes = snapshot.inheritanceMap.get(context);
                     if (inheritanceNodes != null) {
                         collection.addAll(inheritanceNodes);
                     }
                 }
             } else {
-                collection.addAll(e.getValue());
+                collection.addAll(nodes);
             }
-        }
+        });
     }
 
     @Override
@@ -160,59 +158,53 @@ abstract class NodeMapBase implements NodeMap {
             copyInheritanceNodesTo((Collection<? super InheritanceNode>) collection, filter);
             return;
         }
-        
-        for (Map.Entry<ImmutableContextSet, SortedSet<Node>> e : map().entrySet()) {
-            if (!filter.satisfies(e.getKey(), defaultSatisfyMode())) {
-                continue;
-            }
 
-            if (normalNodesExcludeTest(filter, e.getKey())) {
-                continue;
+        Snapshot snapshot = snapshot();
+        snapshot.forEachSatisfying(snapshot.map, filter, defaultSatisfyMode(), (context, nodes) -> {
+            if (normalNodesExcludeTest(filter, context)) {
+                return;
             }
 
-            for (Node node : e.getValue()) {
+            for (Node node : nodes) {
                 if (type.matches(node)) {
                     collection.add(type.cast(node));
                 }
             }
-        }
+        });
     }
 
     @Override
     public void copyInheritanceNodesTo(Collection<? super InheritanceNode> collection) {
-        for (SortedSet<InheritanceNode> values : inheritanceMap().values()) {
+        for (SortedSet<InheritanceNode> values : snapshot().inheritanceMap.values()) {
             collection.addAll(values);
         }
     }
 
     @Override
     public void copyInheritanceNodesTo(ImmutableCollection.Builder<? super InheritanceNode> collection) {
-        for (SortedSet<InheritanceNode> values : inheritanceMap().values()) {
+        for (SortedSet<InheritanceNode> values : snapshot().inheritanceMap.values()) {
             collection.addAll(values);
         }
     }
 
     @Override
     public void copyInheritanceNodesTo(Collection<? super InheritanceNode> collection, QueryOptions filter) {
-        for (Map.Entry<ImmutableContextSet, SortedSet<InheritanceNode>> e : inheritanceMap().entrySet()) {
-            if (!filter.satisfies(e.getKey(), defaultSatisfyMode())) {
-                continue;
-            }
-
-            if (inheritanceNodesIncludeTest(filter, e.getKey())) {
-                collection.addAll(e.getValue());
+        Snapshot snapshot = snapshot();
+        snapshot.forEachSatisfying(snapshot.inheritanceMap, filter, defaultSatisfyMode(), (context, nodes) -> {
+            if (inheritanceNodesIncludeTest(filter, context)) {
+                collection.addAll(nodes);
             }
-        }
+        });
     }
 
     @Override
     public Collection<Node> nodesInContext(ContextSet context) {
-        return copy(map().get(context.immutableCopy()));
+        return copy(snapshot().map.get(context.immutableCopy()));
     }
 
     @Override
     public Collection<InheritanceNode> inheritanceNodesInContext(ContextSet context) {
-        return copy(inheritanceMap().get(context.immutableCopy()));
+        return copy(snapshot().inheritanceMap.get(context.immutableCopy()));
     }
 
     private static <T> Collection<T> copy(Collection<T> collection) {
@@ -239,4 +231,39 @@ abstract class NodeMapBase implements NodeMap {
                 !flagExcludeTest(Flag.APPLY_INHERITANCE_NODES_WITHOUT_WORLD_CONTEXT, DefaultContextKeys.WORLD_KEY, filter, contextSet);
     }
 
+    /**
+     * A view of the nodes in a {@link NodeMap} at a point in time.
+     *
+     * <p>Nodes are keyed by {@link Node#getContexts()}. The context set keys are ordered
+     * according to the rules of ContextSetComparator, and the node values are ordered
+     * according to the priority rules defined in NodeComparator.</p>
+     */
+    protected static class Snapshot {
+        protected final SortedMap<ImmutableContextSet, SortedSet<Node>> map;
+        protected final SortedMap<ImmutableContextSet, SortedSet<InheritanceNode>> inheritanceMap;
+
+        protected Snapshot(SortedMap<ImmutableContextSet, SortedSet<Node>> map, SortedMap<ImmutableContextSet, SortedSet<InheritanceNode>> inheritanceMap) {
+            this.map = map;
+            this.inheritanceMap = inheritanceMap;
+        }
+
+        /**
+         * Calls the action for each entry in the map with a context set that
+         * satisfies the filter, in map order.
+         *
+         * @param map the map, either {@link #map} or {@link #inheritanceMap}
+         * @param filter the filter
+         * @param satisfyMode the default satisfy mode
+         * @param action the action
+         * @param <V> the value type
+         */
+        protected <V> void forEachSatisfying(SortedMap<ImmutableContextSet, V> map, QueryOptions filter, ContextSatisfyMode satisfyMode, BiConsumer<ImmutableContextSet, V> action) {
+            for (Map.Entry<ImmutableContextSet, V> e : map.entrySet()) {
+                if (filter.satisfies(e.getKey(), satisfyMode)) {
+                    action.accept(e.getKey(), e.getValue());
+                }
+            }
+        }
+    }
+
 }
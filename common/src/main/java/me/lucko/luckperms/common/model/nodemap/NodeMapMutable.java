@@ -25,13 +25,21 @@
 
 package me.lucko.luckperms.common.model.nodemap;
 
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.context.ImmutableContextSetImpl;
 import me.lucko.luckperms.common.context.comparator.ContextSetComparator;
 import me.lucko.luckperms.common.model.InheritanceOrigin;
 import me.lucko.luckperms.common.model.PermissionHolder;
+import me.lucko.luckperms.common.node.AbstractNode;
 import me.lucko.luckperms.common.node.comparator.NodeComparator;
+import me.lucko.luckperms.common.node.factory.NodeBuilders;
 import me.lucko.luckperms.common.util.Difference;
 import me.lucko.luckperms.common.util.Difference.ChangeType;
+import net.luckperms.api.context.Context;
 import net.luckperms.api.context.ContextSatisfyMode;
 import net.luckperms.api.context.ContextSet;
 import net.luckperms.api.context.ImmutableContextSet;
@@ -40,54 +48,42 @@ import net.luckperms.api.node.Node;
 import net.luckperms.api.node.NodeEqualityPredicate;
 import net.luckperms.api.node.metadata.types.InheritanceOriginMetadata;
 import net.luckperms.api.node.types.InheritanceNode;
-
-import java.util.Iterator;
+import net.luckperms.api.query.QueryMode;
+import net.luckperms.api.query.QueryOptions;
+
+import java.lang.ref.WeakReference;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
-import java.util.concurrent.ConcurrentSkipListMap;
-import java.util.concurrent.ConcurrentSkipListSet;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class NodeMapMutable extends NodeMapBase {
 
-    // Used in calls to Map#computeIfAbsent to make them behave like a LoadingMap/Cache
-    // The key (ImmutableContextSet) isn't actually used - these are more like suppliers than functions
-    private static final Function<ImmutableContextSet, SortedSet<Node>> VALUE_SET_SUPPLIER = k -> new ConcurrentSkipListSet<>(NodeComparator.reverse());
-    private static final Function<ImmutableContextSet, SortedSet<InheritanceNode>> INHERITANCE_VALUE_SET_SUPPLIER = k -> new ConcurrentSkipListSet<>(NodeComparator.reverse());
-
-    // Creates the Map instances used by this.map and this.inheritanceMap
-    private static <N extends Node> SortedMap<ImmutableContextSet, SortedSet<N>> createMap() {
-        return new ConcurrentSkipListMap<>(ContextSetComparator.reverse());
-    }
-
     /*
-     * Nodes are inserted into the maps using Node#getContexts() as the key.
-     * The context set keys are ordered according to the rules of ContextSetComparator.
-     * The node values are ordered according to the priority rules defined in NodeComparator.
-     *
-     * We use our own "multimap"-like implementation here because guava's is not thread safe.
-     *
-     * The map fields aren't final because they are replaced when large updates (e.g. clear)
-     * are performed. We do this so there's no risk that the read methods will see an inconsistent
-     * state in the middle of an update from the DB. (see below comment about locking - we don't
-     * lock for reads!)
-     */
-    private SortedMap<ImmutableContextSet, SortedSet<Node>> map = createMap();
-    private SortedMap<ImmutableContextSet, SortedSet<InheritanceNode>> inheritanceMap = createMap();
-
-    /**
-     * This lock is used whilst performing mutations, but *not* reads.
+     * The contents of the map are held in an immutable State, which is replaced (using a CAS)
+     * whenever the map is changed.
      *
-     * The maps themselves are thread safe, so for querying, we just allow
-     * the read methods to do whatever they want without any locking.
-     * However, we want mutations to be atomic, so we use the lock to ensure that happens.
+     * This means that readers don't need to lock, and always see a consistent view of the
+     * map - even when large updates (e.g. setContent from the DB) are being applied. Writers
+     * copy only the parts of the state that they change (the outer maps, and the node sets
+     * for the affected contexts) and retry if another write was published first.
      */
-    private final Lock lock = new ReentrantLock();
+    private final AtomicReference<State> state = new AtomicReference<>(State.EMPTY);
 
     protected final PermissionHolder holder;
     private final InheritanceOrigin inheritanceOrigin;
@@ -98,13 +94,59 @@ public class NodeMapMutable extends NodeMapBase {
     }
 
     @Override
-    protected SortedMap<ImmutableContextSet, SortedSet<Node>> map() {
-        return this.map;
+    protected Snapshot snapshot() {
+        State state = this.state.get();
+        if (state.frozen == null) {
+            return state;
+        }
+
+        // reads don't thaw the map - they use a temporary view of the frozen nodes instead
+        return state.frozen.view(this.inheritanceOrigin, state.modCount);
+    }
+
+    /**
+     * Gets the current state for a write, thawing it first if it is frozen.
+     *
+     * @return the current state
+     */
+    private State current() {
+        while (true) {
+            State state = this.state.get();
+            if (state.frozen == null) {
+                return state;
+            }
+
+            State thawed = state.frozen.view(this.inheritanceOrigin, state.modCount);
+            if (this.state.compareAndSet(state, thawed)) {
+                return thawed;
+            }
+        }
+    }
+
+    @Override
+    public void freeze() {
+        State state = this.state.get();
+        if (state.frozen != null || state.map.isEmpty()) {
+            return;
+        }
+
+        FrozenNodes frozen = FrozenNodes.freeze(state, this.inheritanceOrigin);
+        // if this loses a race with a write, the map wasn't idle anyway
+        this.state.compareAndSet(state, new State(State.EMPTY.map, State.EMPTY.inheritanceMap, state.modCount, frozen));
+    }
+
+    /**
+     * Gets if the contents of the map are currently held in their frozen form.
+     *
+     * @return true if frozen
+     */
+    public boolean isFrozen() {
+        return this.state.get().frozen != null;
     }
 
     @Override
-    protected SortedMap<ImmutableContextSet, SortedSet<InheritanceNode>> inheritanceMap() {
-        return this.inheritanceMap;
+    public int modCount() {
+        return this.state.get().modCount;
     }
 
     @Override
@@ -121,316 +163,649 @@ public class NodeMapMutable extends NodeMapBase {
         return node.toBuilder().withMetadata(InheritanceOriginMetadata.KEY, this.inheritanceOrigin).build();
     }
 
+    /**
+     * Applies a mutation to the map.
+     *
+     * <p>The mutation is applied to an {@link Editor} for the current state, and the
+     * result is published atomically. If another mutation was published in the
+     * meantime, the mutation is applied again to the new state.</p>
+     *
+     * @param mutation the mutation
+     * @return the changes made
+     */
+    private Difference<Node> mutate(Function<Editor, Difference<Node>> mutation) {
+        while (true) {
+            State current = current();
+            Editor editor = new Editor(current);
+            Difference<Node> result = mutation.apply(editor);
+
+            State next = editor.build();
+            if (next == null || this.state.compareAndSet(current, next)) {
+                return result;
+            }
+        }
+    }
+
     @Override
     public Difference<Node> add(Node nodeWithoutInheritanceOrigin) {
         Node node = addInheritanceOrigin(nodeWithoutInheritanceOrigin);
+        return mutate(editor -> {
+            Difference<Node> result = new Difference<>();
+            editor.add(node, result);
+            return result;
+        });
+    }
 
-        ImmutableContextSet context = node.getContexts();
-        Difference<Node> result = new Difference<>();
+    @Override
+    public Difference<Node> remove(Node node) {
+        return mutate(editor -> {
+            Difference<Node> result = new Difference<>();
+            editor.remove(node, result);
+            return result;
+        });
+    }
 
-        this.lock.lock();
-        try {
-            SortedSet<Node> nodes = this.map.computeIfAbsent(context, VALUE_SET_SUPPLIER);
+    @Override
+    public Difference<Node> removeExact(Node node) {
+        return mutate(editor -> {
+            Difference<Node> result = new Difference<>();
+            editor.removeExact(node, result);
+            return result;
+        });
+    }
 
-            // add the new node to the set - if it was already there, return
-            if (!nodes.add(node)) {
-                return result;
+    @Override
+    public Difference<Node> removeIf(Predicate<? super Node> predicate) {
+        return mutate(editor -> {
+            Difference<Node> result = new Difference<>();
+            for (ImmutableContextSet context : editor.contexts()) {
+                editor.removeIf(context, predicate, result);
             }
+            return result;
+        });
+    }
 
-            // mark that we added the node in the results
-            result.recordChange(ChangeType.ADD, node);
-
-            // remove any others that were in the set already with a different value/expiry time
-            removeMatchingButNotSame(nodes.iterator(), node, result);
+    @Override
+    public Difference<Node> removeIf(ContextSet contextSet, Predicate<? super Node> predicate) {
+        ImmutableContextSet context = contextSet.immutableCopy();
+        return mutate(editor -> {
+            Difference<Node> result = new Difference<>();
+            editor.removeIf(context, predicate, result);
+            return result;
+        });
+    }
 
-            // update the inheritanceMap too if necessary
-            if (node instanceof InheritanceNode) {
-                SortedSet<InheritanceNode> inhNodes = this.inheritanceMap.computeIfAbsent(context, INHERITANCE_VALUE_SET_SUPPLIER);
-                // remove existing..
-                inhNodes.removeIf(el -> node.equals(el, NodeEqualityPredicate.IGNORE_EXPIRY_TIME_AND_VALUE));
-                // .. & add
-                if (node.getValue()) {
-                    inhNodes.add((InheritanceNode) node);
-                }
-            }
+    @Override
+    public Difference<Node> removeExpired() {
+        State state = this.state.get();
+        if (state.frozen != null && !state.frozen.hasExpiredNodes()) {
+            // avoid thawing the map just to find out there is nothing to remove
+            return new Difference<>();
+        }
+        return removeIf(Node::hasExpired);
+    }
 
-        } finally {
-            this.lock.unlock();
+    @Override
+    public Difference<Node> removeThenAdd(Node nodeToRemove, Node nodeToAdd) {
+        if (nodeToAdd.equals(nodeToRemove)) {
+            return new Difference<>();
         }
 
-        return result;
+        Node node = addInheritanceOrigin(nodeToAdd);
+        return mutate(editor -> {
+            Difference<Node> result = new Difference<>();
+            editor.removeExact(nodeToRemove, result);
+            editor.add(node, result);
+            return result;
+        });
     }
 
     @Override
-    public Difference<Node> remove(Node node) {
-        ImmutableContextSet context = node.getContexts();
-        Difference<Node> result = new Difference<>();
+    public Difference<Node> clear() {
+        return mutate(editor -> {
+            Difference<Node> result = new Difference<>();
+            editor.clear(result);
+            return result;
+        });
+    }
 
-        this.lock.lock();
-        try {
-            SortedSet<Node> nodes = this.map.get(context);
-            if (nodes == null) {
-                return result;
+    @Override
+    public Difference<Node> clear(ContextSet contextSet) {
+        ImmutableContextSet context = contextSet.immutableCopy();
+        return mutate(editor -> {
+            Difference<Node> result = new Difference<>();
+            editor.clear(context, result);
+            return result;
+        });
+    }
+
+    @Override
+    public Difference<Node> setContent(Iterable<? extends Node> set) {
+        List<Node> nodes = withInheritanceOrigin(set);
+        return mutate(editor -> {
+            Difference<Node> result = new Difference<>();
+            editor.clear(result);
+            for (Node n : nodes) {
+                editor.add(n, result);
             }
+            return result;
+        });
+    }
 
-            // remove any nodes that match, record to results
-            removeMatching(nodes.iterator(), node, result);
+    @Override
+    public Difference<Node> setContent(Stream<? extends Node> stream) {
+        return setContent(stream.collect(Collectors.toList()));
+    }
 
-            // update inheritance map too
-            if (node instanceof InheritanceNode) {
-                SortedSet<InheritanceNode> inhNodes = this.inheritanceMap.get(context);
-                if (inhNodes != null) {
-                    inhNodes.removeIf(el -> node.equals(el, NodeEqualityPredicate.IGNORE_EXPIRY_TIME_AND_VALUE));
-                }
+    @Override
+    public Difference<Node> applyChanges(Difference<Node> changes) {
+        List<Node> added = withInheritanceOrigin(changes.getAdded());
+        return mutate(editor -> {
+            Difference<Node> result = new Difference<>();
+            for (Node n : added) {
+                editor.add(n, result);
+            }
+            for (Node n : changes.getRemoved()) {
+                editor.removeExact(n, result);
             }
+            return result;
+        });
+    }
 
-        } finally {
-            this.lock.unlock();
-        }
+    @Override
+    public Difference<Node> addAll(Iterable<? extends Node> set) {
+        List<Node> nodes = withInheritanceOrigin(set);
+        return mutate(editor -> {
+            Difference<Node> result = new Difference<>();
+            for (Node n : nodes) {
+                editor.add(n, result);
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public Difference<Node> addAll(Stream<? extends Node> stream) {
+        return addAll(stream.collect(Collectors.toList()));
+    }
 
-        return result;
+    private List<Node> withInheritanceOrigin(Iterable<? extends Node> nodes) {
+        List<Node> list = new ArrayList<>();
+        for (Node n : nodes) {
+            list.add(addInheritanceOrigin(n));
+        }
+        return list;
     }
 
-    private static void removeMatching(Iterator<Node> it, Node node, Difference<Node> result) {
-        while (it.hasNext()) {
-            Node el = it.next();
-            if (node.equals(el, NodeEqualityPredicate.IGNORE_EXPIRY_TIME_AND_VALUE)) {
-                it.remove();
-                result.recordChange(ChangeType.REMOVE, el);
+    /**
+     * An immutable snapshot of the contents of the map.
+     */
+    private static final class State extends Snapshot {
+        static final State EMPTY = new State(
+                ImmutableSortedMap.<ImmutableContextSet, SortedSet<Node>>orderedBy(ContextSetComparator.reverse()).build(),
+                ImmutableSortedMap.<ImmutableContextSet, SortedSet<InheritanceNode>>orderedBy(ContextSetComparator.reverse()).build(),
+                0,
+                null
+        );
+
+        /** The minimum number of keys the map must have before the context index is used */
+        private static final int MIN_INDEXED_KEYS = 8;
+
+        /** Incremented whenever the contents of the map change */
+        final int modCount;
+
+        /** If not null, the contents of the map are held here (and the maps above are empty) */
+        final FrozenNodes frozen;
+
+        /** Lazily built when a contextual query is made against a large enough map */
+        private volatile ContextIndex contextIndex = null;
+
+        State(SortedMap<ImmutableContextSet, SortedSet<Node>> map, SortedMap<ImmutableContextSet, SortedSet<InheritanceNode>> inheritanceMap, int modCount, FrozenNodes frozen) {
+            super(map, inheritanceMap);
+            this.modCount = modCount;
+            this.frozen = frozen;
+        }
+
+        @Override
+        protected <V> void forEachSatisfying(SortedMap<ImmutableContextSet, V> map, QueryOptions filter, ContextSatisfyMode satisfyMode, BiConsumer<ImmutableContextSet, V> action) {
+            // only worth using the index for contextual queries against maps with lots of keys
+            if (filter.mode() != QueryMode.CONTEXTUAL || this.map.size() < MIN_INDEXED_KEYS) {
+                super.forEachSatisfying(map, filter, satisfyMode, action);
+                return;
+            }
+
+            ContextIndex index = this.contextIndex;
+            if (index == null) {
+                // the keys of the inheritance map are always a subset of the keys of the normal map
+                this.contextIndex = index = new ContextIndex(this.map.keySet());
+            }
+
+            List<ImmutableContextSet> contexts = index.candidates(filter.context());
+            contexts.removeIf(context -> !filter.satisfies(context, satisfyMode));
+            contexts.sort(map.comparator());
+
+            for (ImmutableContextSet context : contexts) {
+                V value = map.get(context);
+                if (value != null) {
+                    action.accept(context, value);
+                }
             }
         }
     }
 
-    private static void removeMatchingButNotSame(Iterator<Node> it, Node node, Difference<Node> result) {
-        while (it.hasNext()) {
-            Node el = it.next();
-            if (el != node && node.equals(el, NodeEqualityPredicate.IGNORE_EXPIRY_TIME_AND_VALUE)) {
-                it.remove();
-                result.recordChange(ChangeType.REMOVE, el);
+    /**
+     * Maps each context pair to the context sets in the map which contain it.
+     */
+    private static final class ContextIndex {
+        private final Map<Context, List<ImmutableContextSet>> postings = new HashMap<>();
+        private final ImmutableContextSet empty;
+
+        ContextIndex(Set<ImmutableContextSet> contextSets) {
+            ImmutableContextSet empty = null;
+            for (ImmutableContextSet contextSet : contextSets) {
+                if (contextSet.isEmpty()) {
+                    empty = contextSet;
+                    continue;
+                }
+                for (Context context : contextSet) {
+                    this.postings.computeIfAbsent(context, k -> new ArrayList<>()).add(contextSet);
+                }
             }
+            this.empty = empty;
+        }
+
+        /**
+         * Gets the context sets which could be satisfied by the given query context.
+         *
+         * <p>The empty set is always satisfied, and any other set can only be satisfied
+         * if the query contains at least one of its context pairs. The caller still needs
+         * to test each candidate.</p>
+         *
+         * @param query the query context
+         * @return the candidates
+         */
+        List<ImmutableContextSet> candidates(ImmutableContextSet query) {
+            Set<ImmutableContextSet> candidates = new HashSet<>();
+            if (this.empty != null) {
+                candidates.add(this.empty);
+            }
+            for (Context context : query) {
+                List<ImmutableContextSet> sets = this.postings.get(context);
+                if (sets != null) {
+                    candidates.addAll(sets);
+                }
+            }
+            return new ArrayList<>(candidates);
         }
     }
 
-    @Override
-    public Difference<Node> removeExact(Node node) {
-        ImmutableContextSet context = node.getContexts();
-        Difference<Node> result = new Difference<>();
+    /**
+     * A compact, read-only form of the contents of a map, used whilst it is idle.
+     *
+     * <p>Nodes are stored as parallel arrays of their key, value and expiry, grouped by
+     * context set. Node keys and context sets are shared between all frozen maps, and
+     * the inheritance origin metadata (which is the same for every node in a map) is
+     * only added back when the nodes are thawed.</p>
+     *
+     * <p>Nodes which can't be recreated from those properties alone (e.g. they have
+     * other metadata attached) are retained as-is.</p>
+     */
+    private static final class FrozenNodes {
+        private static final Interner<String> KEY_INTERNER = Interners.newWeakInterner();
+
+        private final ImmutableContextSet[] contexts;
+        private final int[] offsets; // the index of the first node for each context set, plus the total
+        private final String[] keys;
+        private final long[] expireAt; // 0L for no expiry
+        private final BitSet values;
+        private final Node[] retained; // null if no nodes are retained
+        private final long earliestExpiry; // 0L if no nodes expire
+
+        // the thawed form of the nodes, kept only for as long as it is being read
+        private volatile WeakReference<State> view = null;
+
+        private FrozenNodes(ImmutableContextSet[] contexts, int[] offsets, String[] keys, long[] expireAt, BitSet values, Node[] retained, long earliestExpiry) {
+            this.contexts = contexts;
+            this.offsets = offsets;
+            this.keys = keys;
+            this.expireAt = expireAt;
+            this.values = values;
+            this.retained = retained;
+            this.earliestExpiry = earliestExpiry;
+        }
 
-        this.lock.lock();
-        try {
-            SortedSet<Node> nodes = this.map.get(context);
-            if (nodes == null) {
-                return result;
+        static FrozenNodes freeze(State state, InheritanceOrigin origin) {
+            int size = 0;
+            for (SortedSet<Node> nodes : state.map.values()) {
+                size += nodes.size();
             }
 
-            // try to remove an exact match
-            if (nodes.remove(node)) {
-                // if we removed something, record to results
-                result.recordChange(ChangeType.REMOVE, node);
+            ImmutableContextSet[] contexts = new ImmutableContextSet[state.map.size()];
+            int[] offsets = new int[contexts.length + 1];
+            String[] keys = new String[size];
+            long[] expireAt = new long[size];
+            BitSet values = new BitSet(size);
+            Node[] retained = null;
+            long earliestExpiry = 0L;
+
+            int c = 0;
+            int i = 0;
+            for (Map.Entry<ImmutableContextSet, SortedSet<Node>> e : state.map.entrySet()) {
+                contexts[c] = ImmutableContextSetImpl.intern(e.getKey());
+                offsets[c] = i;
+                c++;
+
+                for (Node node : e.getValue()) {
+                    long expiry = node.hasExpiry() ? node.getExpiry().getEpochSecond() : 0L;
+                    if (expiry != 0L && (earliestExpiry == 0L || expiry < earliestExpiry)) {
+                        earliestExpiry = expiry;
+                    }
 
-                // update inheritance map too if necessary
-                if (node instanceof InheritanceNode && node.getValue()) {
-                    SortedSet<InheritanceNode> inhNodes = this.inheritanceMap.get(context);
-                    if (inhNodes != null) {
-                        inhNodes.remove(node);
+                    if (canRecreate(node, origin)) {
+                        keys[i] = KEY_INTERNER.intern(node.getKey());
+                        expireAt[i] = expiry;
+                        values.set(i, node.getValue());
+                    } else {
+                        if (retained == null) {
+                            retained = new Node[size];
+                        }
+                        retained[i] = node;
                     }
+                    i++;
                 }
             }
+            offsets[c] = i;
 
-        } finally {
-            this.lock.unlock();
+            return new FrozenNodes(contexts, offsets, keys, expireAt, values, retained, earliestExpiry);
         }
 
-        return result;
-    }
+        private static boolean canRecreate(Node node, InheritanceOrigin origin) {
+            return node instanceof AbstractNode &&
+                    ((AbstractNode<?, ?>) node).metadataMap().size() == 1 &&
+                    origin.equals(node.getMetadata(InheritanceOriginMetadata.KEY).orElse(null)) &&
+                    NodeBuilders.determineMostApplicable(node.getKey()).build().getType() == node.getType();
+        }
 
-    @Override
-    public Difference<Node> removeIf(Predicate<? super Node> predicate) {
-        Difference<Node> result = new Difference<>();
+        boolean hasExpiredNodes() {
+            return this.earliestExpiry != 0L && Instant.ofEpochSecond(this.earliestExpiry).isBefore(Instant.now());
+        }
 
-        this.lock.lock();
-        try {
-            for (SortedSet<Node> nodes : this.map.values()) {
-                removeMatching(nodes.iterator(), predicate, result);
+        /**
+         * Gets the nodes in their thawed form, reusing the previous result if it
+         * is still reachable.
+         *
+         * @param origin the inheritance origin of the map
+         * @param modCount the mod count of the frozen state
+         * @return the thawed state
+         */
+        State view(InheritanceOrigin origin, int modCount) {
+            WeakReference<State> ref = this.view;
+            State state = ref == null ? null : ref.get();
+            if (state == null) {
+                state = thaw(origin, modCount);
+                this.view = new WeakReference<>(state);
             }
-        } finally {
-            this.lock.unlock();
+            return state;
         }
 
-        return result;
-    }
+        private State thaw(InheritanceOrigin origin, int modCount) {
+            ImmutableSortedMap.Builder<ImmutableContextSet, SortedSet<Node>> map = ImmutableSortedMap.orderedBy(ContextSetComparator.reverse());
+            ImmutableSortedMap.Builder<ImmutableContextSet, SortedSet<InheritanceNode>> inheritanceMap = ImmutableSortedMap.orderedBy(ContextSetComparator.reverse());
+
+            for (int c = 0; c < this.contexts.length; c++) {
+                ImmutableContextSet context = this.contexts[c];
+                ImmutableSortedSet.Builder<Node> nodes = new ImmutableSortedSet.Builder<>(NodeComparator.reverse());
+                ImmutableSortedSet.Builder<InheritanceNode> inheritanceNodes = null;
+
+                for (int i = this.offsets[c]; i < this.offsets[c + 1]; i++) {
+                    Node node;
+                    if (this.retained != null && this.retained[i] != null) {
+                        node = this.retained[i];
+                    } else {
+                        node = NodeBuilders.determineMostApplicable(this.keys[i])
+                                .value(this.values.get(i))
+                                .expiry(this.expireAt[i])
+                                .context(context)
+                                .withMetadata(InheritanceOriginMetadata.KEY, origin)
+                                .build();
+                    }
 
-    @Override
-    public Difference<Node> removeIf(ContextSet contextSet, Predicate<? super Node> predicate) {
-        ImmutableContextSet context = contextSet.immutableCopy();
-        Difference<Node> result = new Difference<>();
+                    nodes.add(node);
+                    if (node instanceof InheritanceNode && node.getValue()) {
+                        if (inheritanceNodes == null) {
+                            inheritanceNodes = new ImmutableSortedSet.Builder<>(NodeComparator.reverse());
+                        }
+                        inheritanceNodes.add((InheritanceNode) node);
+                    }
+                }
 
-        this.lock.lock();
-        try {
-            SortedSet<Node> nodes = this.map.get(context);
-            if (nodes == null) {
-                return result;
+                map.put(context, nodes.build());
+                if (inheritanceNodes != null) {
+                    inheritanceMap.put(context, inheritanceNodes.build());
+                }
             }
-            removeMatching(nodes.iterator(), predicate, result);
-        } finally {
-            this.lock.unlock();
-        }
 
-        return result;
+            return new State(map.build(), inheritanceMap.build(), modCount, null);
+        }
     }
 
-    private void removeMatching(Iterator<Node> it, Predicate<? super Node> predicate, Difference<Node> result) {
-        while (it.hasNext()) {
-            Node node = it.next();
+    /**
+     * Accumulates changes to a {@link State}, copying only the parts which are modified.
+     */
+    private static final class Editor {
+        private final State base;
 
-            // if the predicate passes, remove the node from the set & record to results
-            if (predicate.test(node)) {
-                it.remove();
-                result.recordChange(ChangeType.REMOVE, node);
+        // copies of the base maps, created when the first change is made
+        private SortedMap<ImmutableContextSet, SortedSet<Node>> map = null;
+        private SortedMap<ImmutableContextSet, SortedSet<InheritanceNode>> inheritanceMap = null;
 
-                // update inheritance map too if necessary
-                if (node instanceof InheritanceNode && node.getValue()) {
-                    SortedSet<InheritanceNode> inhNodes = this.inheritanceMap.get(node.getContexts());
-                    if (inhNodes != null) {
-                        inhNodes.remove(node);
-                    }
-                }
-            }
+        // the contexts whose node sets have been replaced with mutable copies
+        private final Set<ImmutableContextSet> copied = new HashSet<>();
+        private final Set<ImmutableContextSet> copiedInheritance = new HashSet<>();
+
+        private boolean changed = false;
+
+        Editor(State base) {
+            this.base = base;
         }
-    }
 
-    @Override
-    public Difference<Node> removeThenAdd(Node nodeToRemove, Node nodeToAdd) {
-        if (nodeToAdd.equals(nodeToRemove)) {
-            return new Difference<>();
+        private SortedMap<ImmutableContextSet, SortedSet<Node>> map() {
+            return this.map != null ? this.map : this.base.map;
         }
 
-        this.lock.lock();
-        try {
-            return removeExact(nodeToRemove).mergeFrom(add(nodeToAdd));
-        } finally {
-            this.lock.unlock();
+        private SortedMap<ImmutableContextSet, SortedSet<InheritanceNode>> inheritanceMap() {
+            return this.inheritanceMap != null ? this.inheritanceMap : this.base.inheritanceMap;
         }
-    }
 
-    @Override
-    public Difference<Node> clear() {
-        Difference<Node> result = new Difference<>();
+        private void beginChange() {
+            if (this.map == null) {
+                this.map = new TreeMap<>(this.base.map);
+                this.inheritanceMap = new TreeMap<>(this.base.inheritanceMap);
+            }
+            this.changed = true;
+        }
 
-        this.lock.lock();
-        try {
-            // log removals
-            for (SortedSet<Node> nodes : this.map.values()) {
-                result.recordChanges(ChangeType.REMOVE, nodes);
+        private SortedSet<Node> nodesForWrite(ImmutableContextSet context) {
+            beginChange();
+            SortedSet<Node> nodes = this.map.get(context);
+            if (this.copied.add(context)) {
+                SortedSet<Node> copy = new TreeSet<>(NodeComparator.reverse());
+                if (nodes != null) {
+                    copy.addAll(nodes);
+                }
+                this.map.put(context, copy);
+                nodes = copy;
             }
+            return nodes;
+        }
 
-            // replace the map - this means any client reading async won't be affected
-            // by any race conditions between this call to clear and any subsequent call to setContent
-            this.map = createMap();
-            this.inheritanceMap = createMap();
-        } finally {
-            this.lock.unlock();
+        private SortedSet<InheritanceNode> inheritanceNodesForWrite(ImmutableContextSet context) {
+            beginChange();
+            SortedSet<InheritanceNode> nodes = this.inheritanceMap.get(context);
+            if (this.copiedInheritance.add(context)) {
+                SortedSet<InheritanceNode> copy = new TreeSet<>(NodeComparator.reverse());
+                if (nodes != null) {
+                    copy.addAll(nodes);
+                }
+                this.inheritanceMap.put(context, copy);
+                nodes = copy;
+            }
+            return nodes;
         }
 
-        return result;
-    }
+        List<ImmutableContextSet> contexts() {
+            return new ArrayList<>(map().keySet());
+        }
 
-    @Override
-    public Difference<Node> clear(ContextSet contextSet) {
-        ImmutableContextSet context = contextSet.immutableCopy();
-        Difference<Node> result = new Difference<>();
+        void add(Node node, Difference<Node> result) {
+            ImmutableContextSet context = node.getContexts();
 
-        this.lock.lock();
-        try {
-            SortedSet<Node> removed = this.map.remove(context);
-            if (removed != null) {
-                result.recordChanges(ChangeType.REMOVE, removed);
-                this.inheritanceMap.remove(context);
+            // if the node is already there, return
+            SortedSet<Node> existing = map().get(context);
+            if (existing != null && existing.contains(node)) {
+                return;
             }
-        } finally {
-            this.lock.unlock();
-        }
 
-        return result;
-    }
+            SortedSet<Node> nodes = nodesForWrite(context);
+            nodes.add(node);
 
-    @Override
-    public Difference<Node> setContent(Iterable<? extends Node> set) {
-        Difference<Node> result = new Difference<>();
+            // mark that we added the node in the results
+            result.recordChange(ChangeType.ADD, node);
 
-        this.lock.lock();
-        try {
-            result.mergeFrom(clear());
-            result.mergeFrom(addAll(set));
-        } finally {
-            this.lock.unlock();
+            // remove any others that were in the set already with a different value/expiry time
+            nodes.removeIf(el -> {
+                if (el != node && node.equals(el, NodeEqualityPredicate.IGNORE_EXPIRY_TIME_AND_VALUE)) {
+                    result.recordChange(ChangeType.REMOVE, el);
+                    return true;
+                }
+                return false;
+            });
+
+            // update the inheritanceMap too if necessary
+            if (node instanceof InheritanceNode) {
+                SortedSet<InheritanceNode> inhNodes = inheritanceNodesForWrite(context);
+                // remove existing..
+                inhNodes.removeIf(el -> node.equals(el, NodeEqualityPredicate.IGNORE_EXPIRY_TIME_AND_VALUE));
+                // .. & add
+                if (node.getValue()) {
+                    inhNodes.add((InheritanceNode) node);
+                }
+            }
         }
 
-        return result;
-    }
+        void remove(Node node, Difference<Node> result) {
+            removeIf(node.getContexts(), el -> node.equals(el, NodeEqualityPredicate.IGNORE_EXPIRY_TIME_AND_VALUE), result);
+        }
 
-    @Override
-    public Difference<Node> setContent(Stream<? extends Node> stream) {
-        Difference<Node> result = new Difference<>();
+        void removeExact(Node node, Difference<Node> result) {
+            ImmutableContextSet context = node.getContexts();
 
-        this.lock.lock();
-        try {
-            result.mergeFrom(clear());
-            result.mergeFrom(addAll(stream));
-        } finally {
-            this.lock.unlock();
-        }
+            SortedSet<Node> existing = map().get(context);
+            if (existing == null || !existing.contains(node)) {
+                return;
+            }
 
-        return result;
-    }
+            nodesForWrite(context).remove(node);
+            result.recordChange(ChangeType.REMOVE, node);
 
-    @Override
-    public Difference<Node> applyChanges(Difference<Node> changes) {
-        Difference<Node> result = new Difference<>();
+            // update inheritance map too if necessary
+            if (node instanceof InheritanceNode && node.getValue()) {
+                SortedSet<InheritanceNode> existingInheritance = inheritanceMap().get(context);
+                if (existingInheritance != null && existingInheritance.contains(node)) {
+                    inheritanceNodesForWrite(context).remove(node);
+                }
+            }
+        }
 
-        this.lock.lock();
-        try {
-            for (Node n : changes.getAdded()) {
-                result.mergeFrom(add(n));
+        void removeIf(ImmutableContextSet context, Predicate<? super Node> predicate, Difference<Node> result) {
+            SortedSet<Node> existing = map().get(context);
+            if (existing == null) {
+                return;
             }
-            for (Node n : changes.getRemoved()) {
-                result.mergeFrom(removeExact(n));
+
+            List<Node> removed = new ArrayList<>();
+            for (Node node : existing) {
+                if (predicate.test(node)) {
+                    removed.add(node);
+                }
+            }
+            if (removed.isEmpty()) {
+                return;
             }
-        } finally {
-            this.lock.unlock();
-        }
 
-        return result;
-    }
+            SortedSet<Node> nodes = nodesForWrite(context);
+            for (Node node : removed) {
+                nodes.remove(node);
+                result.recordChange(ChangeType.REMOVE, node);
 
-    @Override
-    public Difference<Node> addAll(Iterable<? extends Node> set) {
-        Difference<Node> result = new Difference<>();
+                // update inheritance map too if necessary
+                if (node instanceof InheritanceNode && node.getValue()) {
+                    SortedSet<InheritanceNode> existingInheritance = inheritanceMap().get(context);
+                    if (existingInheritance != null && existingInheritance.contains(node)) {
+                        inheritanceNodesForWrite(context).remove(node);
+                    }
+                }
+            }
+        }
 
-        this.lock.lock();
-        try {
-            for (Node n : set) {
-                result.mergeFrom(add(n));
+        void clear(Difference<Node> result) {
+            SortedMap<ImmutableContextSet, SortedSet<Node>> map = map();
+            if (map.isEmpty()) {
+                return;
             }
-        } finally {
-            this.lock.unlock();
+
+            // log removals
+            for (SortedSet<Node> nodes : map.values()) {
+                result.recordChanges(ChangeType.REMOVE, nodes);
+            }
+
+            this.map = new TreeMap<>(ContextSetComparator.reverse());
+            this.inheritanceMap = new TreeMap<>(ContextSetComparator.reverse());
+            this.copied.clear();
+            this.copiedInheritance.clear();
+            this.changed = true;
         }
 
-        return result;
-    }
+        void clear(ImmutableContextSet context, Difference<Node> result) {
+            SortedSet<Node> existing = map().get(context);
+            if (existing == null) {
+                return;
+            }
 
-    @Override
-    public Difference<Node> addAll(Stream<? extends Node> stream) {
-        Difference<Node> result = new Difference<>();
+            beginChange();
+            result.recordChanges(ChangeType.REMOVE, existing);
+            this.map.remove(context);
+            this.inheritanceMap.remove(context);
+            this.copied.remove(context);
+            this.copiedInheritance.remove(context);
+        }
 
-        this.lock.lock();
-        try {
-            stream.forEach(n -> result.mergeFrom(add(n)));
-        } finally {
-            this.lock.unlock();
+        /**
+         * Creates a new state containing the changes.
+         *
+         * @return the new state, or null if nothing was changed
+         */
+        State build() {
+            if (!this.changed) {
+                return null;
+            }
+            return new State(freeze(this.map, this.copied), freeze(this.inheritanceMap, this.copiedInheritance), this.base.modCount + 1, null);
         }
 
-        return result;
+        private static <N extends Node> SortedMap<ImmutableContextSet, SortedSet<N>> freeze(SortedMap<ImmutableContextSet, SortedSet<N>> map, Set<ImmutableContextSet> copied) {
+            ImmutableSortedMap.Builder<ImmutableContextSet, SortedSet<N>> builder = ImmutableSortedMap.orderedBy(ContextSetComparator.reverse());
+            for (Map.Entry<ImmutableContextSet, SortedSet<N>> e : map.entrySet()) {
+                SortedSet<N> nodes = e.getValue();
+                if (copied.contains(e.getKey())) {
+                    if (nodes.isEmpty()) {
+                        continue;
+                    }
+                    nodes = ImmutableSortedSet.copyOfSorted(nodes);
+                }
+                builder.put(e.getKey(), nodes);
+            }
+            return builder.build();
+        }
     }
 
 }
@@ -171,10 +171,17 @@ public class RecordedNodeMap implements NodeMap {
         return record(this.delegate.addAll(stream));
     }
 
+    @Override
+    public Difference<Node> removeExpired() {
+        return record(this.delegate.removeExpired());
+    }
+
     // just plain delegation
 
     @Override public boolean isEmpty() { return this.delegate.isEmpty(); }
     @Override public int size() { return this.delegate.size(); }
+    @Override public int modCount() { return this.delegate.modCount(); }
+    @Override public void freeze() { this.delegate.freeze(); }
     @Override public List<Node> asList() { return this.delegate.asList(); }
     @Override public LinkedHashSet<Node> asSet() { return this.delegate.asSet(); }
     @Override public SortedSet<Node> asSortedSet() { return this.delegate.asSortedSet(); }
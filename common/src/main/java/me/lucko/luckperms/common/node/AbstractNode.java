@@ -100,6 +100,10 @@ public abstract class AbstractNode<N extends ScopedNode<N, B>, B extends NodeBui
         return Optional.ofNullable(value);
     }
 
+    public Map<NodeMetadataKey<?>, Object> metadataMap() {
+        return this.metadata;
+    }
+
     @Override
     public boolean hasExpiry() {
         return this.expireAt != 0L;
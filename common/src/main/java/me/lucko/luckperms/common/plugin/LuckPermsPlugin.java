@@ -27,6 +27,7 @@ package me.lucko.luckperms.common.plugin;
 
 import me.lucko.luckperms.common.actionlog.LogDispatcher;
 import me.lucko.luckperms.common.api.LuckPermsApiProvider;
+import me.lucko.luckperms.common.cacheddata.CacheDependencyIndex;
 import me.lucko.luckperms.common.calculator.CalculatorFactory;
 import me.lucko.luckperms.common.command.CommandManager;
 import me.lucko.luckperms.common.command.abstraction.Command;
@@ -208,6 +209,13 @@ public interface LuckPermsPlugin {
      */
     InheritanceGraphFactory getInheritanceGraphFactory();
 
+    /**
+     * Gets the index of which cached data depends on which groups.
+     *
+     * @return the cache dependency index
+     */
+    CacheDependencyIndex getCacheDependencyIndex();
+
     /**
      * Gets the class responsible for constructing PermissionCalculators on this platform.
      *
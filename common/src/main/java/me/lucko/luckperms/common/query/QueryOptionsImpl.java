@@ -27,6 +27,8 @@ package me.lucko.luckperms.common.query;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import me.lucko.luckperms.common.context.ImmutableContextSetImpl;
 import net.luckperms.api.context.ContextSatisfyMode;
 import net.luckperms.api.context.ContextSet;
@@ -47,6 +49,45 @@ public class QueryOptionsImpl implements QueryOptions {
     public static final QueryOptions DEFAULT_CONTEXTUAL = new QueryOptionsImpl(QueryMode.CONTEXTUAL, ImmutableContextSetImpl.EMPTY, FlagUtils.ALL_FLAGS, null);
     public static final QueryOptions DEFAULT_NON_CONTEXTUAL = new QueryOptionsImpl(QueryMode.NON_CONTEXTUAL, null, FlagUtils.ALL_FLAGS, null);
 
+    /**
+     * Pool of canonical instances, see {@link #intern(QueryOptions)}.
+     */
+    private static final Interner<QueryOptionsImpl> INTERNER = Interners.newWeakInterner();
+
+    /**
+     * Gets the canonical instance of the given query options.
+     *
+     * <p>Query options are recalculated for each subject very frequently, but nearly
+     * all subjects share a small number of distinct combinations. Using a single
+     * instance for each means that cache lookups keyed by query options hit on identity,
+     * and allows for things which only depend on the query options to be shared.</p>
+     *
+     * <p>Instances are held weakly, and will be removed from the pool once
+     * they are no longer referenced elsewhere.</p>
+     *
+     * @param queryOptions the query options
+     * @return the canonical instance equal to the query options
+     */
+    public static QueryOptions intern(QueryOptions queryOptions) {
+        if (!(queryOptions instanceof QueryOptionsImpl)) {
+            return queryOptions;
+        }
+
+        QueryOptionsImpl canonical = INTERNER.intern((QueryOptionsImpl) queryOptions);
+        canonical.interned = true;
+        return canonical;
+    }
+
+    /**
+     * Gets if the given query options is a canonical instance returned by {@link #intern(QueryOptions)}.
+     *
+     * @param queryOptions the query options
+     * @return true if interned
+     */
+    public static boolean isInterned(QueryOptions queryOptions) {
+        return queryOptions instanceof QueryOptionsImpl && ((QueryOptionsImpl) queryOptions).interned;
+    }
+
     // state
     private final QueryMode mode;
     private final ImmutableContextSet context;
@@ -57,6 +98,7 @@ public class QueryOptionsImpl implements QueryOptions {
     private final int hashCode;
     private Set<Flag> flagsSet = null;
     private final ContextSatisfyMode overrideContextSatisfyMode;
+    private boolean interned = false;
 
     QueryOptionsImpl(QueryMode mode, @Nullable ImmutableContextSet context, byte flags, @Nullable Map<OptionKey<?>, Object> options) {
         this.mode = mode;
@@ -25,6 +25,7 @@
 
 package me.lucko.luckperms.common.storage;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.google.common.collect.ImmutableList;
 import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
@@ -39,6 +40,7 @@ import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
 import me.lucko.luckperms.common.storage.implementation.split.SplitStorage;
 import me.lucko.luckperms.common.storage.misc.NodeEntry;
 import me.lucko.luckperms.common.util.AsyncInterface;
+import me.lucko.luckperms.common.util.CaffeineFactory;
 import net.luckperms.api.actionlog.Action;
 import net.luckperms.api.event.cause.CreationCause;
 import net.luckperms.api.event.cause.DeletionCause;
@@ -55,14 +57,35 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Provides a {@link CompletableFuture} based API for interacting with a {@link StorageImplementation}.
  */
 public class Storage extends AsyncInterface {
+    private static final int LOOKUP_CACHE_SIZE = 1000;
+    private static final int LOOKUP_CACHE_EXPIRY_MINUTES = 5;
+
     private final LuckPermsPlugin plugin;
     private final StorageImplementation implementation;
 
+    /**
+     * Caches of recent uuid <-> username lookups, so that repeated lookups
+     * for the same player don't each hit the storage backend.
+     *
+     * <p>Entries are invalidated when player data is saved or deleted through
+     * this instance, and expire after a short time to pick up changes made
+     * by other servers sharing the same storage.</p>
+     */
+    private final Cache<String, UUID> uniqueIdCache = CaffeineFactory.newBuilder()
+            .maximumSize(LOOKUP_CACHE_SIZE)
+            .expireAfterWrite(LOOKUP_CACHE_EXPIRY_MINUTES, TimeUnit.MINUTES)
+            .build();
+    private final Cache<UUID, String> usernameCache = CaffeineFactory.newBuilder()
+            .maximumSize(LOOKUP_CACHE_SIZE)
+            .expireAfterWrite(LOOKUP_CACHE_EXPIRY_MINUTES, TimeUnit.MINUTES)
+            .build();
+
     public Storage(LuckPermsPlugin plugin, StorageImplementation implementation) {
         super(plugin);
         this.plugin = plugin;
@@ -141,6 +164,10 @@ public class Storage extends AsyncInterface {
         return future(() -> this.implementation.saveUser(user));
     }
 
+    public CompletableFuture<Void> saveUsers(Collection<User> users) {
+        return future(() -> this.implementation.saveUsers(users));
+    }
+
     public CompletableFuture<Set<UUID>> getUniqueUsers() {
         return future(this.implementation::getUniqueUsers);
     }
@@ -240,7 +267,12 @@ public class Storage extends AsyncInterface {
     public CompletableFuture<PlayerSaveResult> savePlayerData(UUID uniqueId, String username) {
         return future(() -> {
             PlayerSaveResult result = this.implementation.savePlayerData(uniqueId, username);
+            this.usernameCache.invalidate(uniqueId);
+            this.uniqueIdCache.invalidate(username.toLowerCase(Locale.ROOT));
             if (result != null) {
+                if (result.getPreviousUsername() != null) {
+                    this.uniqueIdCache.invalidate(result.getPreviousUsername().toLowerCase(Locale.ROOT));
+                }
                 this.plugin.getEventDispatcher().dispatchPlayerDataSave(uniqueId, username, result);
             }
             return result;
@@ -248,14 +280,41 @@ public class Storage extends AsyncInterface {
     }
 
     public CompletableFuture<Void> deletePlayerData(UUID uniqueId) {
-        return future(() -> this.implementation.deletePlayerData(uniqueId));
+        return future(() -> {
+            this.implementation.deletePlayerData(uniqueId);
+            this.usernameCache.invalidate(uniqueId);
+            this.uniqueIdCache.asMap().values().removeIf(uniqueId::equals);
+        });
     }
 
     public CompletableFuture<UUID> getPlayerUniqueId(String username) {
-        return future(() -> this.implementation.getPlayerUniqueId(username));
+        String key = username.toLowerCase(Locale.ROOT);
+        UUID cached = this.uniqueIdCache.getIfPresent(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        return future(() -> {
+            UUID uniqueId = this.implementation.getPlayerUniqueId(username);
+            if (uniqueId != null) {
+                this.uniqueIdCache.put(key, uniqueId);
+            }
+            return uniqueId;
+        });
     }
 
     public CompletableFuture<String> getPlayerName(UUID uniqueId) {
-        return future(() -> this.implementation.getPlayerName(uniqueId));
+        String cached = this.usernameCache.getIfPresent(uniqueId);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        return future(() -> {
+            String username = this.implementation.getPlayerName(uniqueId);
+            if (username != null) {
+                this.usernameCache.put(uniqueId, username);
+            }
+            return username;
+        });
     }
 }
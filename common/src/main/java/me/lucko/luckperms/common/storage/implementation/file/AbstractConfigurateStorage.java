@@ -70,6 +70,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -145,6 +146,21 @@ public abstract class AbstractConfigurateStorage implements StorageImplementatio
      */
     protected abstract void saveFile(StorageLocation location, String name, ConfigurationNode node) throws IOException;
 
+    /**
+     * Saves multiple configuration nodes to the given location
+     *
+     * <p>Implementations may override this to write the nodes in a single operation.</p>
+     *
+     * @param location the location
+     * @param nodes the nodes, keyed by the name of the object (a null value deletes the object)
+     * @throws IOException if an io error occurs
+     */
+    protected void saveFiles(StorageLocation location, Map<String, ConfigurationNode> nodes) throws IOException {
+        for (Map.Entry<String, ConfigurationNode> e : nodes.entrySet()) {
+            saveFile(location, e.getKey(), e.getValue());
+        }
+    }
+
     @Override
     public void init() throws IOException {
         // init the data directory and ensure it exists
@@ -156,7 +172,7 @@ public abstract class AbstractConfigurateStorage implements StorageImplementatio
         this.uuidCache.load(this.uuidCacheFile);
 
         // setup the action logger
-        this.actionLogger.init(this.dataDirectory.resolve("actions.txt"), this.dataDirectory.resolve("actions.json"));
+        this.actionLogger.init(this.dataDirectory.resolve("actions"), this.dataDirectory.resolve("actions.txt"), this.dataDirectory.resolve("actions.json"));
     }
 
     @Override
@@ -178,6 +194,42 @@ public abstract class AbstractConfigurateStorage implements StorageImplementatio
     @Override
     public User loadUser(UUID uniqueId, String username) throws IOException {
         User user = this.plugin.getUserManager().getOrMake(uniqueId, username);
+        if (loadUserData(user)) {
+            saveUser(user);
+        }
+        return user;
+    }
+
+    @Override
+    public Map<UUID, User> loadUsers(Set<UUID> uniqueIds) throws Exception {
+        Map<UUID, User> map = new HashMap<>();
+        Map<String, ConfigurationNode> toSave = new LinkedHashMap<>();
+
+        for (UUID uniqueId : uniqueIds) {
+            User user = this.plugin.getUserManager().getOrMake(uniqueId, null);
+            if (loadUserData(user)) {
+                user.normalData().discardChanges();
+                toSave.put(uniqueId.toString(), serializeUser(user));
+            }
+            map.put(uniqueId, user);
+        }
+
+        // write any users which changed as a result of being loaded in one go
+        if (!toSave.isEmpty()) {
+            saveFiles(StorageLocation.USERS, toSave);
+        }
+        return map;
+    }
+
+    /**
+     * Reads the data for the given user from storage into the user instance.
+     *
+     * @param user the user
+     * @return true if the user should be saved
+     * @throws IOException if an io error occurs
+     */
+    private boolean loadUserData(User user) throws IOException {
+        UUID uniqueId = user.getUniqueId();
         try {
             ConfigurationNode file = readFile(StorageLocation.USERS, uniqueId.toString());
             if (file != null) {
@@ -191,56 +243,67 @@ public abstract class AbstractConfigurateStorage implements StorageImplementatio
                 this.plugin.getUserManager().giveDefaultIfNeeded(user);
 
                 boolean updatedUsername = user.getUsername().isPresent() && (name == null || !user.getUsername().get().equalsIgnoreCase(name));
-                if (updatedUsername | user.auditTemporaryNodes()) {
-                    saveUser(user);
-                }
+                return updatedUsername | user.auditTemporaryNodes();
             } else {
                 if (this.plugin.getUserManager().isNonDefaultUser(user)) {
                     user.loadNodesFromStorage(Collections.emptyList());
                     user.getPrimaryGroup().setStoredValue(null);
                     this.plugin.getUserManager().giveDefaultIfNeeded(user);
                 }
+                return false;
             }
         } catch (Exception e) {
             throw new FileIOException(uniqueId.toString(), e);
         }
-        return user;
     }
 
     @Override
-    public Map<UUID, User> loadUsers(Set<UUID> uniqueIds) throws Exception {
-        // add multithreading here?
-        Map<UUID, User> map = new HashMap<>();
-        for (UUID uniqueId : uniqueIds) {
-            map.put(uniqueId, loadUser(uniqueId, null));
+    public void saveUser(User user) throws IOException {
+        user.normalData().discardChanges();
+        try {
+            saveFile(StorageLocation.USERS, user.getUniqueId().toString(), serializeUser(user));
+        } catch (Exception e) {
+            throw new FileIOException(user.getUniqueId().toString(), e);
         }
-        return map;
     }
 
     @Override
-    public void saveUser(User user) throws IOException {
-        user.normalData().discardChanges();
-        try {
-            if (!this.plugin.getUserManager().isNonDefaultUser(user)) {
-                saveFile(StorageLocation.USERS, user.getUniqueId().toString(), null);
-            } else {
-                ConfigurationNode file = ConfigurationNode.root();
-                if (this instanceof SeparatedConfigurateStorage) {
-                    file.getNode("uuid").setValue(user.getUniqueId().toString());
-                }
+    public void saveUsers(Collection<User> users) throws IOException {
+        Map<String, ConfigurationNode> toSave = new LinkedHashMap<>();
+        for (User user : users) {
+            user.normalData().discardChanges();
+            toSave.put(user.getUniqueId().toString(), serializeUser(user));
+        }
 
-                String name = user.getUsername().orElse("null");
-                String primaryGroup = user.getPrimaryGroup().getStoredValue().orElse(GroupManager.DEFAULT_GROUP_NAME);
+        if (!toSave.isEmpty()) {
+            saveFiles(StorageLocation.USERS, toSave);
+        }
+    }
 
-                file.getNode("name").setValue(name);
-                file.getNode(this.loader instanceof JsonLoader ? "primaryGroup" : "primary-group").setValue(primaryGroup);
+    /**
+     * Serializes the given user to a configuration node.
+     *
+     * @param user the user
+     * @return the node, or null if the user has no data which needs to be stored
+     */
+    private @Nullable ConfigurationNode serializeUser(User user) {
+        if (!this.plugin.getUserManager().isNonDefaultUser(user)) {
+            return null;
+        }
 
-                writeNodes(file, user.normalData().asList());
-                saveFile(StorageLocation.USERS, user.getUniqueId().toString(), file);
-            }
-        } catch (Exception e) {
-            throw new FileIOException(user.getUniqueId().toString(), e);
+        ConfigurationNode file = ConfigurationNode.root();
+        if (this instanceof SeparatedConfigurateStorage) {
+            file.getNode("uuid").setValue(user.getUniqueId().toString());
         }
+
+        String name = user.getUsername().orElse("null");
+        String primaryGroup = user.getPrimaryGroup().getStoredValue().orElse(GroupManager.DEFAULT_GROUP_NAME);
+
+        file.getNode("name").setValue(name);
+        file.getNode(this.loader instanceof JsonLoader ? "primaryGroup" : "primary-group").setValue(primaryGroup);
+
+        writeNodes(file, user.normalData().asList());
+        return file;
     }
 
     @Override
@@ -0,0 +1,449 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.storage.implementation.file;
+
+import me.lucko.luckperms.common.actionlog.ActionJsonSerializer;
+import me.lucko.luckperms.common.actionlog.LoggedAction;
+import me.lucko.luckperms.common.util.gson.GsonProvider;
+import net.luckperms.api.actionlog.Action;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A segment of the file action log.
+ *
+ * <p>Each segment consists of a content file, containing one JSON encoded
+ * action per line, and a sidecar index file. The index holds a fixed size
+ * record for each action, containing its timestamp, position in the content
+ * file, and the source/target fields which are commonly filtered on. This
+ * allows queries to be answered without parsing the content of every
+ * action.</p>
+ *
+ * <p>Segments are append-only. Both files are memory-mapped when the segment is
+ * read, and the mappings are reused until more actions are appended.</p>
+ */
+final class ActionLogSegment {
+
+    private static final int INDEX_MAGIC = 0x4C50414C; // "LPAL"
+    private static final int INDEX_VERSION = 1;
+    private static final int INDEX_HEADER_SIZE = 8;
+
+    /*
+     * Index record layout:
+     *   timestamp (long), content offset (long), content length (int),
+     *   source uuid (2x long), target type (byte), has target uuid (byte), target uuid (2x long)
+     */
+    static final int RECORD_SIZE = 8 + 8 + 4 + 16 + 1 + 1 + 16;
+
+    private static final Action.Target.Type[] TARGET_TYPES = Action.Target.Type.values();
+
+    private final int id;
+    private final Path contentFile;
+    private final Path indexFile;
+
+    /** The number of actions in the segment */
+    private volatile int size;
+
+    /** The size of the content file */
+    private volatile long contentSize;
+
+    /** The newest timestamp of any action in the segment */
+    private volatile long maxTimestamp = Long.MIN_VALUE;
+
+    private volatile boolean sealed = false;
+    private int mappedSize = -1;
+    private ByteBuffer contentMapping;
+    private ByteBuffer indexMapping;
+
+    private ActionLogSegment(int id, Path contentFile, Path indexFile) {
+        this.id = id;
+        this.contentFile = contentFile;
+        this.indexFile = indexFile;
+    }
+
+    /**
+     * Opens (or creates) the segment with the given id, repairing the index
+     * if it is missing or out of sync with the content file.
+     *
+     * @param directory the directory containing the segments
+     * @param id the id of the segment
+     * @return the segment
+     * @throws IOException if an io error occurs
+     */
+    static ActionLogSegment open(Path directory, int id) throws IOException {
+        String name = String.format("actions-%06d", id);
+        ActionLogSegment segment = new ActionLogSegment(id, directory.resolve(name + ".txt"), directory.resolve(name + ".idx"));
+        segment.load();
+        return segment;
+    }
+
+    /**
+     * Parses the id of a segment from the name of its content file.
+     *
+     * @param fileName the file name
+     * @return the id, or -1 if the file isn't a segment content file
+     */
+    static int parseId(String fileName) {
+        if (!fileName.startsWith("actions-") || !fileName.endsWith(".txt")) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(fileName.substring("actions-".length(), fileName.length() - ".txt".length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public int id() {
+        return this.id;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public long contentSize() {
+        return this.contentSize;
+    }
+
+    public long maxTimestamp() {
+        return this.maxTimestamp;
+    }
+
+    private void load() throws IOException {
+        if (!Files.exists(this.contentFile)) {
+            Files.createFile(this.contentFile);
+        }
+
+        // if a previous write was interrupted part way through a line, terminate it
+        // so that the next append starts on a fresh line
+        try (FileChannel channel = FileChannel.open(this.contentFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size != 0) {
+                ByteBuffer last = ByteBuffer.allocate(1);
+                channel.read(last, size - 1);
+                if (last.get(0) != '\n') {
+                    channel.write(ByteBuffer.wrap(new byte[]{'\n'}), size);
+                }
+            }
+            this.contentSize = channel.size();
+        }
+
+        long indexed = readIndex();
+        if (indexed == -1 || indexed > this.contentSize) {
+            resetIndex();
+            indexed = 0;
+        }
+
+        // index any content which was written without its index records
+        if (indexed < this.contentSize) {
+            indexContent(indexed);
+        }
+
+        Reader reader = reader();
+        long maxTimestamp = Long.MIN_VALUE;
+        for (int i = 0; i < reader.size(); i++) {
+            maxTimestamp = Math.max(maxTimestamp, reader.timestamp(i));
+        }
+        this.maxTimestamp = maxTimestamp;
+    }
+
+    /**
+     * Reads the index header and checks that it is well formed.
+     *
+     * @return the position in the content file up to which actions are indexed, or -1 if the index is invalid
+     * @throws IOException if an io error occurs
+     */
+    private long readIndex() throws IOException {
+        if (!Files.exists(this.indexFile)) {
+            return -1;
+        }
+
+        try (FileChannel channel = FileChannel.open(this.indexFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < INDEX_HEADER_SIZE || (size - INDEX_HEADER_SIZE) % RECORD_SIZE != 0) {
+                return -1;
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_SIZE);
+            channel.read(header, 0);
+            if (header.getInt(0) != INDEX_MAGIC || header.getInt(4) != INDEX_VERSION) {
+                return -1;
+            }
+
+            int records = (int) ((size - INDEX_HEADER_SIZE) / RECORD_SIZE);
+            this.size = records;
+            if (records == 0) {
+                return 0;
+            }
+
+            ByteBuffer last = ByteBuffer.allocate(RECORD_SIZE);
+            channel.read(last, INDEX_HEADER_SIZE + (long) (records - 1) * RECORD_SIZE);
+            return last.getLong(8) + last.getInt(16) + 1;
+        }
+    }
+
+    private void resetIndex() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_SIZE);
+        header.putInt(INDEX_MAGIC).putInt(INDEX_VERSION).flip();
+        try (FileChannel channel = FileChannel.open(this.indexFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(header);
+        }
+        this.size = 0;
+    }
+
+    private void indexContent(long start) throws IOException {
+        ByteBuffer index = ByteBuffer.allocate(RECORD_SIZE * 1024);
+        int records = 0;
+
+        try (FileChannel out = FileChannel.open(this.indexFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+             InputStream in = new BufferedInputStream(Files.newInputStream(this.contentFile))) {
+            long skipped = 0;
+            while (skipped < start) {
+                skipped += in.skip(start - skipped);
+            }
+
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long offset = start;
+            long position = start;
+
+            int b;
+            while ((b = in.read()) != -1) {
+                position++;
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+
+                byte[] bytes = line.toByteArray();
+                line.reset();
+
+                try {
+                    LoggedAction action = ActionJsonSerializer.deserialize(GsonProvider.parser().parse(new String(bytes, StandardCharsets.UTF_8)));
+                    writeRecord(index, action, offset, bytes.length);
+                    records++;
+                } catch (Exception e) {
+                    // skip lines which can't be parsed
+                    e.printStackTrace();
+                }
+                offset = position;
+
+                if (index.remaining() < RECORD_SIZE) {
+                    writeFully(out, index);
+                }
+            }
+
+            writeFully(out, index);
+        }
+
+        this.size += records;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        buf.clear();
+    }
+
+    /**
+     * Appends actions to the segment.
+     *
+     * @param actions the actions
+     * @param lines the encoded form of each action
+     * @throws IOException if an io error occurs
+     */
+    void append(List<Action> actions, List<byte[]> lines) throws IOException {
+        if (this.sealed) {
+            throw new IllegalStateException("Segment " + this.id + " is sealed");
+        }
+
+        int contentLength = 0;
+        for (byte[] line : lines) {
+            contentLength += line.length + 1;
+        }
+
+        ByteBuffer content = ByteBuffer.allocate(contentLength);
+        ByteBuffer index = ByteBuffer.allocate(RECORD_SIZE * actions.size());
+
+        long offset = this.contentSize;
+        long maxTimestamp = this.maxTimestamp;
+        for (int i = 0; i < actions.size(); i++) {
+            byte[] line = lines.get(i);
+            content.put(line).put((byte) '\n');
+            writeRecord(index, actions.get(i), offset, line.length);
+            offset += line.length + 1;
+            maxTimestamp = Math.max(maxTimestamp, actions.get(i).getTimestamp().getEpochSecond());
+        }
+
+        // write the content before the index, so that every indexed action is readable
+        try (FileChannel channel = FileChannel.open(this.contentFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            writeFully(channel, content);
+        }
+        try (FileChannel channel = FileChannel.open(this.indexFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            writeFully(channel, index);
+        }
+
+        this.contentSize = offset;
+        this.maxTimestamp = maxTimestamp;
+        this.size += actions.size();
+    }
+
+    /**
+     * Forces any content written to the segment to be written to the storage device.
+     *
+     * @throws IOException if an io error occurs
+     */
+    void force() throws IOException {
+        try (FileChannel channel = FileChannel.open(this.contentFile, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        try (FileChannel channel = FileChannel.open(this.indexFile, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Marks the segment as sealed - no further actions will be appended.
+     */
+    void seal() {
+        this.sealed = true;
+    }
+
+    /**
+     * Opens a read-only view of the segment.
+     *
+     * @return a reader
+     * @throws IOException if an io error occurs
+     */
+    synchronized Reader reader() throws IOException {
+        // the active segment may still be appended to, so map only what has been
+        // written so far, and only re-map once it has grown
+        int size = this.size;
+        if (size != this.mappedSize) {
+            this.indexMapping = map(this.indexFile, INDEX_HEADER_SIZE + (long) size * RECORD_SIZE);
+            this.contentMapping = map(this.contentFile, this.contentSize);
+            this.mappedSize = size;
+        }
+        return new Reader(size, this.indexMapping, this.contentMapping);
+    }
+
+    private static ByteBuffer map(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    private static void writeRecord(ByteBuffer buf, Action action, long offset, int length) {
+        UUID source = action.getSource().getUniqueId();
+        UUID target = action.getTarget().getUniqueId().orElse(null);
+
+        buf.putLong(action.getTimestamp().getEpochSecond());
+        buf.putLong(offset);
+        buf.putInt(length);
+        buf.putLong(source.getMostSignificantBits());
+        buf.putLong(source.getLeastSignificantBits());
+        buf.put((byte) action.getTarget().getType().ordinal());
+        buf.put((byte) (target != null ? 1 : 0));
+        buf.putLong(target != null ? target.getMostSignificantBits() : 0L);
+        buf.putLong(target != null ? target.getLeastSignificantBits() : 0L);
+    }
+
+    /**
+     * A read-only view of the actions in a segment.
+     */
+    static final class Reader {
+        private final int size;
+        private final ByteBuffer index;
+        private final ByteBuffer content;
+
+        Reader(int size, ByteBuffer index, ByteBuffer content) {
+            this.size = size;
+            this.index = index;
+            this.content = content;
+        }
+
+        public int size() {
+            return this.size;
+        }
+
+        private int record(int i) {
+            return INDEX_HEADER_SIZE + i * RECORD_SIZE;
+        }
+
+        public long timestamp(int i) {
+            return this.index.getLong(record(i));
+        }
+
+        public UUID source(int i) {
+            int pos = record(i);
+            return new UUID(this.index.getLong(pos + 20), this.index.getLong(pos + 28));
+        }
+
+        public Action.Target.Type targetType(int i) {
+            return TARGET_TYPES[this.index.get(record(i) + 36)];
+        }
+
+        public UUID target(int i) {
+            int pos = record(i);
+            if (this.index.get(pos + 37) == 0) {
+                return null;
+            }
+            return new UUID(this.index.getLong(pos + 38), this.index.getLong(pos + 46));
+        }
+
+        /**
+         * Reads and parses the action at the given position.
+         *
+         * @param i the position of the action in the segment
+         * @return the action
+         */
+        public LoggedAction read(int i) {
+            int pos = record(i);
+            int offset = (int) this.index.getLong(pos + 8);
+            int length = this.index.getInt(pos + 16);
+
+            byte[] bytes = new byte[length];
+            ByteBuffer content = this.content.duplicate();
+            content.position(offset);
+            content.get(bytes);
+            return ActionJsonSerializer.deserialize(GsonProvider.parser().parse(new String(bytes, StandardCharsets.UTF_8)));
+        }
+    }
+
+}
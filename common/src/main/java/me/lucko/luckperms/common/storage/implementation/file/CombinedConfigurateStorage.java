@@ -79,6 +79,15 @@ public class CombinedConfigurateStorage extends AbstractConfigurateStorage {
         getLoader(location).apply(true, false, root -> root.getNode(name).setValue(node));
     }
 
+    @Override
+    protected void saveFiles(StorageLocation location, Map<String, ConfigurationNode> nodes) throws IOException {
+        getLoader(location).apply(true, false, root -> {
+            for (Map.Entry<String, ConfigurationNode> e : nodes.entrySet()) {
+                root.getNode(e.getKey()).setValue(e.getValue());
+            }
+        });
+    }
+
     private CachedLoader getLoader(StorageLocation location) {
         switch (location) {
             case USERS:
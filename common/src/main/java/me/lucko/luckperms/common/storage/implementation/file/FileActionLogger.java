@@ -31,12 +31,18 @@ import com.google.gson.stream.JsonReader;
 import me.lucko.luckperms.common.actionlog.ActionJsonSerializer;
 import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.actionlog.LoggedAction;
+import me.lucko.luckperms.common.actionlog.filter.ActionFields;
 import me.lucko.luckperms.common.cache.BufferedRequest;
+import me.lucko.luckperms.common.filter.Constraint;
+import me.lucko.luckperms.common.filter.Filter;
+import me.lucko.luckperms.common.filter.FilterField;
 import me.lucko.luckperms.common.filter.FilterList;
 import me.lucko.luckperms.common.filter.PageParameters;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.util.MoreFiles;
 import me.lucko.luckperms.common.util.gson.GsonProvider;
 import net.luckperms.api.actionlog.Action;
+import net.luckperms.api.util.Tristate;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.io.BufferedReader;
@@ -44,23 +50,42 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+/**
+ * Stores the action log in a series of append-only {@link ActionLogSegment}s.
+ */
 public class FileActionLogger {
 
     /**
-     * The path to save logger content to
+     * The maximum number of actions written to a single segment
+     */
+    private static final int SEGMENT_MAX_ACTIONS = 50000;
+
+    /**
+     * The maximum size of a single segment content file
+     */
+    private static final long SEGMENT_MAX_BYTES = 32 * 1024 * 1024;
+
+    /**
+     * The directory to save the log segments to
+     */
+    private Path directory;
+
+    /**
+     * The log segments, oldest first. The last segment is the one currently being written to.
      */
-    private Path contentFile;
+    private final List<ActionLogSegment> segments = new CopyOnWriteArrayList<>();
 
     /**
      * Lock to ensure the file isn't written to by multiple threads
@@ -78,8 +103,61 @@ public class FileActionLogger {
         this.saveBuffer = new SaveBuffer(plugin);
     }
 
-    public void init(Path contentFile, Path legacyFile) {
-        this.contentFile = contentFile;
+    public void init(Path directory, Path contentFile, Path legacyFile) throws IOException {
+        this.directory = directory;
+        MoreFiles.createDirectoriesIfNotExists(directory);
+
+        List<Integer> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                int id = ActionLogSegment.parseId(file.getFileName().toString());
+                if (id != -1) {
+                    ids.add(id);
+                }
+            });
+        }
+        Collections.sort(ids);
+
+        this.segments.clear();
+        for (int id : ids) {
+            this.segments.add(ActionLogSegment.open(directory, id));
+        }
+        if (this.segments.isEmpty()) {
+            this.segments.add(ActionLogSegment.open(directory, 1));
+        }
+        for (int i = 0; i < this.segments.size() - 1; i++) {
+            this.segments.get(i).seal();
+        }
+
+        if (Files.exists(contentFile)) {
+            // migrate from the single (unindexed) content file
+            try {
+                try (BufferedReader reader = Files.newBufferedReader(contentFile, StandardCharsets.UTF_8)) {
+                    int queued = 0;
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        try {
+                            this.entryQueue.add(ActionJsonSerializer.deserialize(GsonProvider.parser().parse(line)));
+                            queued++;
+                        } catch (Exception e) {
+                            e.printStackTrace();
+                        }
+                        if (queued >= SEGMENT_MAX_ACTIONS) {
+                            write();
+                            queued = 0;
+                        }
+                    }
+                }
+
+                write();
+                force();
+                Files.delete(contentFile);
+            } catch (IOException e) {
+                // keep the old file, so that the migration can be retried
+                this.entryQueue.clear();
+                e.printStackTrace();
+            }
+        }
 
         if (Files.exists(legacyFile)) {
             // migrate
@@ -96,11 +174,13 @@ public class FileActionLogger {
                 this.entryQueue.add(ActionJsonSerializer.deserialize(element));
             }
 
-            flush();
-
             try {
+                write();
+                force();
                 Files.delete(legacyFile);
             } catch (IOException e) {
+                // keep the old file, so that the migration can be retried
+                this.entryQueue.clear();
                 e.printStackTrace();
             }
         }
@@ -113,6 +193,19 @@ public class FileActionLogger {
     }
 
     public void flush() {
+        try {
+            write();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes any queued entries to the log.
+     *
+     * @throws IOException if the entries could not be written
+     */
+    private void write() throws IOException {
         this.writeLock.lock();
         try {
             // don't perform the i/o process if there's nothing to be written
@@ -120,60 +213,220 @@ public class FileActionLogger {
                 return;
             }
 
-            try {
-                List<String> toWrite = new ArrayList<>(this.entryQueue.size());
+            List<Action> actions = new ArrayList<>();
+            List<byte[]> lines = new ArrayList<>();
+            long bytes = 0;
 
-                // poll the queue for new entries
-                for (Action e; (e = this.entryQueue.poll()) != null; ) {
-                    toWrite.add(GsonProvider.normal().toJson(ActionJsonSerializer.serialize(e)));
+            ActionLogSegment segment = this.segments.get(this.segments.size() - 1);
+
+            // poll the queue for new entries
+            for (Action e; (e = this.entryQueue.poll()) != null; ) {
+                byte[] line = GsonProvider.normal().toJson(ActionJsonSerializer.serialize(e)).getBytes(StandardCharsets.UTF_8);
+
+                // start a new segment once the current one is full
+                if (segment.size() + actions.size() >= SEGMENT_MAX_ACTIONS || segment.contentSize() + bytes >= SEGMENT_MAX_BYTES) {
+                    if (!actions.isEmpty()) {
+                        segment.append(actions, lines);
+                        actions.clear();
+                        lines.clear();
+                        bytes = 0;
+                    }
+
+                    segment.seal();
+                    segment = ActionLogSegment.open(this.directory, segment.id() + 1);
+                    this.segments.add(segment);
                 }
 
-                Files.write(this.contentFile, toWrite, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
-            } catch (IOException e) {
-                e.printStackTrace();
+                actions.add(e);
+                lines.add(line);
+                bytes += line.length + 1;
+            }
+
+            if (!actions.isEmpty()) {
+                segment.append(actions, lines);
             }
         } finally {
             this.writeLock.unlock();
         }
     }
 
-    private Stream<LoggedAction> loadLog(FilterList<Action> filters) throws IOException {
+    /**
+     * Forces everything written to the log so far to be written to the storage device.
+     *
+     * @throws IOException if an io error occurs
+     */
+    private void force() throws IOException {
+        for (ActionLogSegment segment : this.segments) {
+            segment.force();
+        }
+    }
+
+    public LogPage getLogPage(FilterList<Action> filters, @Nullable PageParameters page) throws IOException {
         // if there is log content waiting to be written, flush immediately before trying to read
         if (this.saveBuffer.isEnqueued()) {
             this.saveBuffer.requestDirectly();
         }
 
-        if (!Files.exists(this.contentFile)) {
-            return Stream.empty();
+        List<ActionLogSegment> segments = new ArrayList<>(this.segments);
+        List<ActionLogSegment.Reader> readers = new ArrayList<>(segments.size());
+        long[] newest = new long[segments.size()]; // the newest timestamp in each segment, or any before it
+        for (int s = 0; s < segments.size(); s++) {
+            ActionLogSegment segment = segments.get(s);
+            newest[s] = Math.max(s == 0 ? Long.MIN_VALUE : newest[s - 1], segment.maxTimestamp());
+            readers.add(segment.reader());
         }
 
-        Stream.Builder<LoggedAction> builder = Stream.builder();
-        try (BufferedReader reader = Files.newBufferedReader(this.contentFile, StandardCharsets.UTF_8)) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                try {
-                    JsonElement parsed = GsonProvider.parser().parse(line);
-                    LoggedAction action = ActionJsonSerializer.deserialize(parsed);
-                    if (filters.evaluate(action)) {
-                        builder.add(action);
+        // without any filters, the total is just the size of the log
+        boolean unfiltered = filters.isEmpty() && filters.operator() == FilterList.LogicalOperator.AND;
+        boolean countAll = !unfiltered && (page == null || page.exactTotal());
+
+        // the most recent actions needed to fill the page, oldest first
+        int limit = page == null ? Integer.MAX_VALUE : (int) Math.min(Integer.MAX_VALUE, (long) page.pageSize() * page.pageNumber());
+        PriorityQueue<Match> matches = new PriorityQueue<>(OLDEST_FIRST);
+        int total = 0;
+        int order = 0;
+
+        // walk the log newest first, using the index to avoid parsing wherever possible
+        for (int s = readers.size() - 1; s >= 0; s--) {
+            // stop once nothing in this segment (or any before it) could make the page
+            if (!countAll && matches.size() >= limit && matches.peek().timestamp() >= newest[s]) {
+                break;
+            }
+
+            ActionLogSegment.Reader reader = readers.get(s);
+            for (int i = reader.size() - 1; i >= 0; i--, order++) {
+                // later entries are older, so need a strictly newer timestamp to displace a match
+                boolean candidate = matches.size() < limit || reader.timestamp(i) > matches.peek().timestamp();
+                if (!candidate && !countAll) {
+                    continue;
+                }
+
+                Tristate result = evaluate(filters, reader, i);
+                LoggedAction action = null;
+                if (result == Tristate.UNDEFINED) {
+                    try {
+                        action = reader.read(i);
+                        result = Tristate.of(filters.evaluate(action));
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                        continue;
+                    }
+                }
+                if (result != Tristate.TRUE) {
+                    continue;
+                }
+
+                total++;
+                if (candidate) {
+                    matches.add(new Match(reader, i, order, action));
+                    if (matches.size() > limit) {
+                        matches.poll();
                     }
-                } catch (Exception e) {
-                    e.printStackTrace();
                 }
             }
         }
-        return builder.build();
+
+        // newest first - actions with the same timestamp are returned most recently logged first
+        List<Match> sorted = new ArrayList<>(matches);
+        sorted.sort(OLDEST_FIRST.reversed());
+        List<Match> paginated = page != null ? page.paginate(sorted) : sorted;
+
+        // only parse the actions which are actually being returned
+        List<LoggedAction> content = new ArrayList<>(paginated.size());
+        for (Match match : paginated) {
+            content.add(match.action());
+        }
+
+        if (unfiltered) {
+            total = 0;
+            for (ActionLogSegment.Reader reader : readers) {
+                total += reader.size();
+            }
+        } else if (!countAll) {
+            // count as far as this page (and one more entry, if there could be more)
+            boolean full = content.size() == page.pageSize();
+            total = (page.pageNumber() - 1) * page.pageSize() + content.size() + (full ? 1 : 0);
+            return LogPage.of(content, page, total, true, null);
+        }
+        return LogPage.of(content, page, total);
     }
 
-    public LogPage getLogPage(FilterList<Action> filters, @Nullable PageParameters page) throws IOException {
-        List<LoggedAction> filtered = loadLog(filters)
-                .sorted(Comparator.comparing(LoggedAction::getTimestamp))
-                .collect(Collectors.toList())
-                .reversed();
-
-        int size = filtered.size();
-        List<LoggedAction> paginated = page != null ? page.paginate(filtered) : filtered;
-        return LogPage.of(paginated, page, size);
+    /**
+     * Evaluates the filters against the indexed fields of an action.
+     *
+     * @param filters the filters
+     * @param reader the segment reader
+     * @param i the position of the action in the segment
+     * @return the result, or {@link Tristate#UNDEFINED} if the action needs to be parsed to decide
+     */
+    private static Tristate evaluate(FilterList<Action> filters, ActionLogSegment.Reader reader, int i) {
+        boolean and = filters.operator() == FilterList.LogicalOperator.AND;
+        boolean undefined = false;
+
+        for (Filter<Action, ?> filter : filters) {
+            Tristate result = evaluate(filter, reader, i);
+            if (result == Tristate.UNDEFINED) {
+                undefined = true;
+            } else if (result.asBoolean() != and) {
+                // short circuit: false for AND, true for OR
+                return result;
+            }
+        }
+
+        return undefined ? Tristate.UNDEFINED : Tristate.of(and);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Tristate evaluate(Filter<Action, ?> filter, ActionLogSegment.Reader reader, int i) {
+        FilterField<Action, ?> field = filter.field();
+        Constraint<Object> constraint = (Constraint<Object>) filter.constraint();
+
+        if (field == ActionFields.SOURCE_UNIQUE_ID) {
+            return Tristate.of(constraint.evaluate(reader.source(i)));
+        } else if (field == ActionFields.TARGET_UNIQUE_ID) {
+            return Tristate.of(constraint.evaluate(reader.target(i)));
+        } else if (field == ActionFields.TARGET_TYPE) {
+            return Tristate.of(constraint.evaluate(reader.targetType(i)));
+        } else {
+            return Tristate.UNDEFINED;
+        }
+    }
+
+    /**
+     * Orders matches oldest first, then by the reverse of the order they were visited in (newest first).
+     */
+    private static final Comparator<Match> OLDEST_FIRST = Comparator.comparingLong(Match::timestamp)
+            .thenComparing(Comparator.comparingInt(Match::order).reversed());
+
+    private static final class Match {
+        private final ActionLogSegment.Reader reader;
+        private final int position;
+        private final int order;
+        private final long timestamp;
+        private LoggedAction action;
+
+        Match(ActionLogSegment.Reader reader, int position, int order, @Nullable LoggedAction action) {
+            this.reader = reader;
+            this.position = position;
+            this.order = order;
+            this.timestamp = reader.timestamp(position);
+            this.action = action;
+        }
+
+        long timestamp() {
+            return this.timestamp;
+        }
+
+        int order() {
+            return this.order;
+        }
+
+        LoggedAction action() {
+            if (this.action == null) {
+                this.action = this.reader.read(this.position);
+            }
+            return this.action;
+        }
     }
 
     private final class SaveBuffer extends BufferedRequest<Void> {
@@ -35,9 +35,13 @@ import com.mongodb.ServerAddress;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteOneModel;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOneModel;
 import com.mongodb.client.model.ReplaceOptions;
 import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.WriteModel;
 import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.actionlog.LoggedAction;
 import me.lucko.luckperms.common.actionlog.filter.ActionFilterMongoBuilder;
@@ -71,10 +75,12 @@ import net.luckperms.api.node.NodeBuilder;
 import org.bson.Document;
 import org.bson.UuidRepresentation;
 import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -184,16 +190,48 @@ public class MongoStorage implements StorageImplementation {
         Bson filter = ActionFilterMongoBuilder.INSTANCE.make(filters);
 
         MongoCollection<Document> c = this.database.getCollection(this.prefix + "action");
-        long count = c.countDocuments(filter);
+
+        Bson query = filter;
+        PageParameters.Cursor cursor = page == null ? null : page.cursor();
+        if (cursor != null) {
+            ObjectId id = new ObjectId(cursor.id());
+            query = Filters.and(filter, Filters.or(
+                    Filters.lt("timestamp", cursor.timestamp()),
+                    Filters.and(Filters.eq("timestamp", cursor.timestamp()), Filters.lt("_id", id))
+            ));
+        }
 
         List<LoggedAction> content = new ArrayList<>();
-        try (MongoCursor<Document> cursor = ConstraintMongoBuilder.page(page, c.find(filter).sort(Sorts.descending("timestamp", "_id"))).iterator()) {
-            while (cursor.hasNext()) {
-                content.add(actionFromDoc(cursor.next()));
+        PageParameters.Cursor nextCursor = null;
+        try (MongoCursor<Document> it = ConstraintMongoBuilder.page(page, c.find(query).sort(Sorts.descending("timestamp", "_id"))).iterator()) {
+            while (it.hasNext()) {
+                Document d = it.next();
+                content.add(actionFromDoc(d));
+                Object id = d.get("_id");
+                nextCursor = id instanceof ObjectId ? new PageParameters.Cursor(d.getLong("timestamp"), ((ObjectId) id).toHexString()) : null;
             }
         }
 
-        return LogPage.of(content, page, (int) count);
+        if (page == null) {
+            return LogPage.of(content, null, content.size());
+        }
+
+        // there may be more entries if the page is full
+        boolean full = content.size() == page.pageSize();
+        if (!full) {
+            nextCursor = null;
+        }
+
+        if (page.exactTotal()) {
+            return LogPage.of(content, page, (int) c.countDocuments(filter), false, nextCursor);
+        }
+
+        // count as far as this page (and one more entry, if there could be more)
+        long total = (long) (page.pageNumber() - 1) * page.pageSize() + content.size() + (full ? 1 : 0);
+        if (filters.isEmpty()) {
+            total = Math.max(total, c.estimatedDocumentCount());
+        }
+        return LogPage.of(content, page, (int) total, true, nextCursor);
     }
 
     @Override
@@ -248,28 +286,8 @@ public class MongoStorage implements StorageImplementation {
         User user = this.plugin.getUserManager().getOrMake(uniqueId, username);
         MongoCollection<Document> c = this.database.getCollection(this.prefix + "users");
         try (MongoCursor<Document> cursor = c.find(Filters.eq("_id", user.getUniqueId())).iterator()) {
-            if (cursor.hasNext()) {
-                // User exists, let's load.
-                Document d = cursor.next();
-                String name = d.getString("name");
-
-                user.getPrimaryGroup().setStoredValue(d.getString("primaryGroup"));
-                user.setUsername(name, true);
-
-                user.loadNodesFromStorage(nodesFromDoc(d));
-                this.plugin.getUserManager().giveDefaultIfNeeded(user);
-
-
-                boolean updatedUsername = user.getUsername().isPresent() && (name == null || !user.getUsername().get().equalsIgnoreCase(name));
-                if (updatedUsername | user.auditTemporaryNodes()) {
-                    c.replaceOne(Filters.eq("_id", user.getUniqueId()), userToDoc(user));
-                }
-            } else {
-                if (this.plugin.getUserManager().isNonDefaultUser(user)) {
-                    user.loadNodesFromStorage(Collections.emptyList());
-                    user.getPrimaryGroup().setStoredValue(null);
-                    this.plugin.getUserManager().giveDefaultIfNeeded(user);
-                }
+            if (loadUserData(user, cursor.hasNext() ? cursor.next() : null)) {
+                c.replaceOne(Filters.eq("_id", user.getUniqueId()), userToDoc(user));
             }
         }
         return user;
@@ -277,14 +295,67 @@ public class MongoStorage implements StorageImplementation {
 
     @Override
     public Map<UUID, User> loadUsers(Set<UUID> uniqueIds) throws Exception {
-        // make this a bulk search?
+        MongoCollection<Document> c = this.database.getCollection(this.prefix + "users");
+
+        // fetch all of the documents in a single query
+        Map<UUID, Document> documents = new HashMap<>();
+        try (MongoCursor<Document> cursor = c.find(Filters.in("_id", uniqueIds)).iterator()) {
+            while (cursor.hasNext()) {
+                Document d = cursor.next();
+                try {
+                    documents.put(getDocumentId(d), d);
+                } catch (IllegalArgumentException e) {
+                    // ignore
+                }
+            }
+        }
+
         Map<UUID, User> map = new HashMap<>();
+        List<WriteModel<Document>> writes = new ArrayList<>();
         for (UUID uniqueId : uniqueIds) {
-            map.put(uniqueId, loadUser(uniqueId, null));
+            User user = this.plugin.getUserManager().getOrMake(uniqueId, null);
+            if (loadUserData(user, documents.get(uniqueId))) {
+                writes.add(new ReplaceOneModel<>(Filters.eq("_id", uniqueId), userToDoc(user)));
+            }
+            map.put(uniqueId, user);
+        }
+
+        if (!writes.isEmpty()) {
+            c.bulkWrite(writes, new BulkWriteOptions().ordered(false));
         }
         return map;
     }
 
+    /**
+     * Reads the data for the given user from their document into the user instance.
+     *
+     * @param user the user
+     * @param d the document, or null if the user has no stored data
+     * @return true if the user should be saved
+     */
+    private boolean loadUserData(User user, @Nullable Document d) {
+        if (d != null) {
+            // User exists, let's load.
+            String name = d.getString("name");
+
+            user.getPrimaryGroup().setStoredValue(d.getString("primaryGroup"));
+            user.setUsername(name, true);
+
+            user.loadNodesFromStorage(nodesFromDoc(d));
+            this.plugin.getUserManager().giveDefaultIfNeeded(user);
+
+            boolean updatedUsername = user.getUsername().isPresent() && (name == null || !user.getUsername().get().equalsIgnoreCase(name));
+            return updatedUsername | user.auditTemporaryNodes();
+        } else {
+            if (this.plugin.getUserManager().isNonDefaultUser(user)) {
+                user.loadNodesFromStorage(Collections.emptyList());
+                user.getPrimaryGroup().setStoredValue(null);
+                this.plugin.getUserManager().giveDefaultIfNeeded(user);
+            }
+            return false;
+        }
+    }
+
     @Override
     public void saveUser(User user) {
         MongoCollection<Document> c = this.database.getCollection(this.prefix + "users");
@@ -296,6 +367,24 @@ public class MongoStorage implements StorageImplementation {
         }
     }
 
+    @Override
+    public void saveUsers(Collection<User> users) {
+        List<WriteModel<Document>> writes = new ArrayList<>(users.size());
+        for (User user : users) {
+            user.normalData().discardChanges();
+            if (!this.plugin.getUserManager().isNonDefaultUser(user)) {
+                writes.add(new DeleteOneModel<>(Filters.eq("_id", user.getUniqueId())));
+            } else {
+                writes.add(new ReplaceOneModel<>(Filters.eq("_id", user.getUniqueId()), userToDoc(user), new ReplaceOptions().upsert(true)));
+            }
+        }
+
+        if (!writes.isEmpty()) {
+            MongoCollection<Document> c = this.database.getCollection(this.prefix + "users");
+            c.bulkWrite(writes, new BulkWriteOptions().ordered(false));
+        }
+    }
+
     @Override
     public Set<UUID> getUniqueUsers() {
         Set<UUID> uuids = new HashSet<>();
@@ -27,6 +27,7 @@ package me.lucko.luckperms.common.storage.implementation.sql;
 
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.google.gson.reflect.TypeToken;
 import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.actionlog.LoggedAction;
@@ -74,15 +75,19 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 public class SqlStorage implements StorageImplementation {
+    private static final int BULK_INSERT_ROWS = 100;
+
     private static final Type LIST_STRING_TYPE = new TypeToken<List<String>>(){}.getType();
 
     private static final String USER_PERMISSIONS_SELECT = "SELECT id, permission, value, server, world, expiry, contexts FROM '{prefix}user_permissions' WHERE uuid=?";
@@ -133,11 +138,37 @@ public class SqlStorage implements StorageImplementation {
     private static final String ACTION_SELECT_ALL = "SELECT * FROM '{prefix}actions'";
     private static final String ACTION_COUNT = "SELECT COUNT(*) FROM '{prefix}actions'";
 
+    private static final String SCHEMA_VERSION_SELECT = "SELECT MAX(version) FROM '{prefix}schema_version'";
+    private static final String SCHEMA_VERSION_DELETE = "DELETE FROM '{prefix}schema_version'";
+    private static final String SCHEMA_VERSION_INSERT = "INSERT INTO '{prefix}schema_version' (version) VALUES(?)";
+
+    /**
+     * The current version of the schema.
+     *
+     * <p>Databases created with an older version are upgraded by applying the statements in
+     * {@code schema/migrations/<version>/<implementation>.sql} for each version in turn.</p>
+     */
+    private static final int SCHEMA_VERSION = 1;
+
+    /**
+     * The error code returned by MySQL/MariaDB when creating an index which already exists
+     */
+    private static final int MYSQL_DUPLICATE_KEY_NAME = 1061;
+
     private final LuckPermsPlugin plugin;
     
     private final ConnectionFactory connectionFactory;
     private final StatementProcessor statementProcessor;
 
+    /**
+     * The number of entries in the actions table, or -1 if not yet counted.
+     *
+     * <p>Counted once and then kept up to date by {@link #logAction(Action)}, so
+     * it won't include entries logged by other instances sharing the database
+     * until the actions are next counted in full.</p>
+     */
+    private final AtomicInteger actionCount = new AtomicInteger(-1);
+
     public SqlStorage(LuckPermsPlugin plugin, ConnectionFactory connectionFactory, String tablePrefix) {
         this.plugin = plugin;
         this.connectionFactory = connectionFactory;
@@ -174,24 +205,92 @@ public class SqlStorage implements StorageImplementation {
     }
 
     private void applySchema(List<String> existingTables) throws IOException, SQLException {
-        String schemaFileName = "me/lucko/luckperms/schema/" + this.connectionFactory.getImplementationName().toLowerCase(Locale.ROOT) + ".sql";
+        String implementationName = this.connectionFactory.getImplementationName().toLowerCase(Locale.ROOT);
+
+        List<String> statements = readSchemaFile("me/lucko/luckperms/schema/" + implementationName + ".sql");
+        statements = SchemaReader.filterStatements(statements, existingTables);
+        if (!statements.isEmpty()) {
+            createTables(statements);
+        }
+
+        applySchemaMigrations(implementationName, existingTables);
+    }
 
-        List<String> statements;
-        try (InputStream is = this.plugin.getBootstrap().getResourceStream(schemaFileName)) {
+    private List<String> readSchemaFile(String fileName) throws IOException {
+        try (InputStream is = this.plugin.getBootstrap().getResourceStream(fileName)) {
             if (is == null) {
-                throw new IOException("Couldn't locate schema file for " + this.connectionFactory.getImplementationName());
+                throw new IOException("Couldn't locate schema file " + fileName + " for " + this.connectionFactory.getImplementationName());
             }
 
-            statements = SchemaReader.getStatements(is).stream()
+            return SchemaReader.getStatements(is).stream()
                     .map(this.statementProcessor::process)
                     .collect(Collectors.toList());
         }
+    }
 
-        statements = SchemaReader.filterStatements(statements, existingTables);
-        if (statements.isEmpty()) {
-            return;
+    /**
+     * Upgrades tables created by an older version of the schema.
+     *
+     * <p>Tables which didn't exist before the schema file was applied are
+     * already up to date, so migration statements for them are skipped.</p>
+     *
+     * @param implementationName the name of the implementation
+     * @param existingTables the tables which existed before the schema was applied
+     */
+    private void applySchemaMigrations(String implementationName, List<String> existingTables) throws IOException, SQLException {
+        try (Connection c = this.connectionFactory.getConnection()) {
+            int version = 0;
+            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.process(SCHEMA_VERSION_SELECT))) {
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        version = rs.getInt(1);
+                    }
+                }
+            }
+
+            if (version >= SCHEMA_VERSION) {
+                return;
+            }
+
+            for (int v = version + 1; v <= SCHEMA_VERSION; v++) {
+                List<String> statements = readSchemaFile("me/lucko/luckperms/schema/migrations/" + v + "/" + implementationName + ".sql");
+                boolean failed = false;
+                for (String statement : statements) {
+                    if (!existingTables.contains(SchemaReader.tableFromStatement(statement))) {
+                        continue;
+                    }
+
+                    this.plugin.getLogger().info("Applying schema migration: " + statement);
+                    try (Statement s = c.createStatement()) {
+                        s.execute(statement);
+                    } catch (SQLException e) {
+                        if (e.getErrorCode() == MYSQL_DUPLICATE_KEY_NAME) {
+                            // applied by a previous (partially failed) attempt
+                            continue;
+                        }
+                        this.plugin.getLogger().warn("Unable to apply schema migration " + v + ": " + statement, e);
+                        failed = true;
+                    }
+                }
+
+                // don't record the new version, so that the migration is retried next time
+                if (failed) {
+                    this.plugin.getLogger().warn("Schema migration " + v + " was not fully applied, it will be retried on the next startup");
+                    return;
+                }
+            }
+
+            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.process(SCHEMA_VERSION_DELETE))) {
+                ps.execute();
+            }
+            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.process(SCHEMA_VERSION_INSERT))) {
+                ps.setInt(1, SCHEMA_VERSION);
+                ps.execute();
+            }
         }
+    }
 
+    private void createTables(List<String> statements) throws SQLException {
         try (Connection connection = this.connectionFactory.getConnection()) {
             boolean utf8mb4Unsupported = false;
 
@@ -246,29 +345,18 @@ public class SqlStorage implements StorageImplementation {
                 ps.execute();
             }
         }
+        this.actionCount.getAndUpdate(count -> count < 0 ? count : count + 1);
     }
 
     @Override
     public LogPage getLogPage(FilterList<Action> filter, @Nullable PageParameters page) throws SQLException {
-        int count = 0;
         List<LoggedAction> content = new ArrayList<>();
+        PageParameters.Cursor nextCursor = null;
 
         try (Connection c = this.connectionFactory.getConnection()) {
-            ActionFilterSqlBuilder countSqlBuilder = new ActionFilterSqlBuilder();
-            countSqlBuilder.builder().append(ACTION_COUNT);
-            countSqlBuilder.visit(filter);
-
-            try (PreparedStatement ps = countSqlBuilder.builder().build(c, this.statementProcessor)) {
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        count = rs.getInt(1);
-                    }
-                }
-            }
-
             ActionFilterSqlBuilder sqlBuilder = new ActionFilterSqlBuilder();
             sqlBuilder.builder().append(ACTION_SELECT_ALL);
-            sqlBuilder.visit(filter);
+            sqlBuilder.visit(filter, page == null ? null : page.cursor());
             sqlBuilder.builder().append(" ORDER BY time DESC, id DESC");
             sqlBuilder.visit(page);
 
@@ -276,11 +364,53 @@ public class SqlStorage implements StorageImplementation {
                 try (ResultSet rs = ps.executeQuery()) {
                     while (rs.next()) {
                         content.add(readAction(rs));
+                        nextCursor = new PageParameters.Cursor(rs.getLong("time"), String.valueOf(rs.getLong("id")));
                     }
                 }
             }
+
+            if (page == null) {
+                return LogPage.of(content, null, content.size());
+            }
+
+            // there may be more entries if the page is full
+            boolean full = content.size() == page.pageSize();
+            if (!full) {
+                nextCursor = null;
+            }
+
+            if (page.exactTotal()) {
+                int total = countActions(c, filter);
+                if (filter.isEmpty()) {
+                    this.actionCount.set(total);
+                }
+                return LogPage.of(content, page, total, false, nextCursor);
+            }
+
+            // count as far as this page (and one more entry, if there could be more)
+            int total = (page.pageNumber() - 1) * page.pageSize() + content.size() + (full ? 1 : 0);
+            if (filter.isEmpty()) {
+                int count = this.actionCount.get();
+                if (count < 0) {
+                    count = countActions(c, filter);
+                    this.actionCount.compareAndSet(-1, count);
+                }
+                total = Math.max(total, count);
+            }
+            return LogPage.of(content, page, total, true, nextCursor);
+        }
+    }
+
+    private int countActions(Connection c, FilterList<Action> filter) throws SQLException {
+        ActionFilterSqlBuilder countSqlBuilder = new ActionFilterSqlBuilder();
+        countSqlBuilder.builder().append(ACTION_COUNT);
+        countSqlBuilder.visit(filter);
+
+        try (PreparedStatement ps = countSqlBuilder.builder().build(c, this.statementProcessor)) {
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
         }
-        return LogPage.of(content, page, count);
     }
 
     @Override
@@ -379,7 +509,7 @@ public class SqlStorage implements StorageImplementation {
         for (UUID uniqueId : uniqueIds) {
             SqlPlayerData playerData = playerDataMap.get(uniqueId);
             List<Node> nodes = nodesMap.get(uniqueId);
-            users.put(uniqueId, createUser(uniqueId, null, playerData, nodes, false));
+            users.put(uniqueId, createUser(uniqueId, null, playerData, nodes, true));
         }
         return users;
     }
@@ -408,6 +538,61 @@ public class SqlStorage implements StorageImplementation {
 
     @Override
     public void saveUser(User user) throws SQLException {
+        Difference<Node> changes = exportUserChanges(user);
+        if (changes == null) {
+            try (Connection c = this.connectionFactory.getConnection()) {
+                deleteUser(c, user.getUniqueId());
+            }
+            return;
+        }
+
+        try (Connection c = this.connectionFactory.getConnection()) {
+            updateUserPermissions(c, user.getUniqueId(), changes.getAdded(), changes.getRemoved());
+            insertPlayerData(c, user.getUniqueId(), createPlayerData(user));
+        }
+    }
+
+    @Override
+    public void saveUsers(Collection<User> users) throws SQLException {
+        List<UUID> deleted = new ArrayList<>();
+        Map<UUID, Difference<Node>> changes = new LinkedHashMap<>();
+        Map<UUID, SqlPlayerData> playerData = new LinkedHashMap<>();
+
+        for (User user : users) {
+            Difference<Node> userChanges = exportUserChanges(user);
+            if (userChanges == null) {
+                deleted.add(user.getUniqueId());
+            } else {
+                changes.put(user.getUniqueId(), userChanges);
+                playerData.put(user.getUniqueId(), createPlayerData(user));
+            }
+        }
+
+        // write the whole batch in a single transaction
+        try (Connection c = this.connectionFactory.getConnection()) {
+            boolean autoCommit = c.getAutoCommit();
+            c.setAutoCommit(false);
+            try {
+                deleteUsers(c, deleted);
+                updateUserPermissions(c, changes);
+                insertPlayerData(c, playerData);
+                c.commit();
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * Exports the pending changes for the given user.
+     *
+     * @param user the user
+     * @return the changes to write, or null if the users data should be deleted
+     */
+    private @Nullable Difference<Node> exportUserChanges(User user) {
         Difference<Node> changes = user.normalData().exportChanges(results -> {
             if (this.plugin.getUserManager().isNonDefaultUser(user)) {
                 return true;
@@ -429,20 +614,14 @@ public class SqlStorage implements StorageImplementation {
             changes = null;
         }
 
-        if (changes == null) {
-            try (Connection c = this.connectionFactory.getConnection()) {
-                deleteUser(c, user.getUniqueId());
-            }
-            return;
-        }
+        return changes;
+    }
 
-        try (Connection c = this.connectionFactory.getConnection()) {
-            updateUserPermissions(c, user.getUniqueId(), changes.getAdded(), changes.getRemoved());
-            insertPlayerData(c, user.getUniqueId(), new SqlPlayerData(
-                    user.getPrimaryGroup().getStoredValue().orElse(GroupManager.DEFAULT_GROUP_NAME),
-                    user.getUsername().orElse("null").toLowerCase(Locale.ROOT)
-            ));
-        }
+    private static SqlPlayerData createPlayerData(User user) {
+        return new SqlPlayerData(
+                user.getPrimaryGroup().getStoredValue().orElse(GroupManager.DEFAULT_GROUP_NAME),
+                user.getUsername().orElse("null").toLowerCase(Locale.ROOT)
+        );
     }
 
     @Override
@@ -838,17 +1017,21 @@ public class SqlStorage implements StorageImplementation {
     }
 
     private static void writeNode(Node node, PreparedStatement ps) throws SQLException {
+        writeNode(node, ps, 0);
+    }
+
+    private static void writeNode(Node node, PreparedStatement ps, int offset) throws SQLException {
         MutableContextSet contexts = node.getContexts().mutableCopy();
         String server = getFirstContextValue(contexts, DefaultContextKeys.SERVER_KEY);
         String world = getFirstContextValue(contexts, DefaultContextKeys.WORLD_KEY);
         long expiry = node.hasExpiry() ? node.getExpiry().getEpochSecond() : 0L;
 
-        ps.setString(2, node.getKey());
-        ps.setBoolean(3, node.getValue());
-        ps.setString(4, server);
-        ps.setString(5, world);
-        ps.setLong(6, expiry);
-        ps.setString(7, GsonProvider.normal().toJson(ContextSetJsonSerializer.serialize(contexts)));
+        ps.setString(offset + 2, node.getKey());
+        ps.setBoolean(offset + 3, node.getValue());
+        ps.setString(offset + 4, server);
+        ps.setString(offset + 5, world);
+        ps.setLong(offset + 6, expiry);
+        ps.setString(offset + 7, GsonProvider.normal().toJson(ContextSetJsonSerializer.serialize(contexts)));
     }
 
     private void updateUserPermissions(Connection c, UUID user, Set<Node> add, Set<Node> delete) throws SQLException {
@@ -905,6 +1088,64 @@ public class SqlStorage implements StorageImplementation {
         }
     }
 
+    private void updateUserPermissions(Connection c, Map<UUID, Difference<Node>> changes) throws SQLException {
+        List<Long> deleteRows = new ArrayList<>();
+        List<NodeEntry<UUID, Node>> deleteNodes = new ArrayList<>();
+        List<NodeEntry<UUID, Node>> insertNodes = new ArrayList<>();
+
+        for (Map.Entry<UUID, Difference<Node>> entry : changes.entrySet()) {
+            for (Node node : entry.getValue().getRemoved()) {
+                SqlRowId rowId = node.getMetadata(SqlRowId.KEY).orElse(null);
+                if (rowId != null) {
+                    deleteRows.add(rowId.getRowId());
+                } else {
+                    deleteNodes.add(NodeEntry.of(entry.getKey(), node));
+                }
+            }
+            for (Node node : entry.getValue().getAdded()) {
+                insertNodes.add(NodeEntry.of(entry.getKey(), node));
+            }
+        }
+
+        if (!deleteRows.isEmpty()) {
+            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.process(USER_PERMISSIONS_DELETE_SPECIFIC))) {
+                for (Long id : deleteRows) {
+                    ps.setLong(1, id);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+        if (!deleteNodes.isEmpty()) {
+            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.process(USER_PERMISSIONS_DELETE_SPECIFIC_PROPS))) {
+                for (NodeEntry<UUID, Node> entry : deleteNodes) {
+                    ps.setString(1, entry.getHolder().toString());
+                    writeNode(entry.getNode(), ps);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+
+        // insert the new rows using multi-row INSERT statements, BULK_INSERT_ROWS at a time
+        for (List<NodeEntry<UUID, Node>> partition : Lists.partition(insertNodes, BULK_INSERT_ROWS)) {
+            StringBuilder sql = new StringBuilder(USER_PERMISSIONS_INSERT);
+            for (int i = 1; i < partition.size(); i++) {
+                sql.append(", (?, ?, ?, ?, ?, ?, ?)");
+            }
+
+            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.process(sql.toString()))) {
+                int offset = 0;
+                for (NodeEntry<UUID, Node> entry : partition) {
+                    ps.setString(offset + 1, entry.getHolder().toString());
+                    writeNode(entry.getNode(), ps, offset);
+                    offset += 7;
+                }
+                ps.execute();
+            }
+        }
+    }
+
     private List<Node> selectUserPermissions(Connection c, UUID user) throws SQLException {
         List<Node> nodes = new ArrayList<>();
         try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.process(USER_PERMISSIONS_SELECT))) {
@@ -947,7 +1188,7 @@ public class SqlStorage implements StorageImplementation {
                     UUID uuid = UUID.fromString(rs.getString("uuid"));
                     Node node = readNode(rs);
                     if (node != null) {
-                        map.get(uuid).add(readNode(rs));
+                        map.get(uuid).add(node);
                     }
                 }
             }
@@ -1025,6 +1266,65 @@ public class SqlStorage implements StorageImplementation {
         }
     }
 
+    private void deleteUsers(Connection c, Collection<UUID> users) throws SQLException {
+        if (users.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.process(USER_PERMISSIONS_DELETE))) {
+            for (UUID user : users) {
+                ps.setString(1, user.toString());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.process(PLAYER_UPDATE_PRIMARY_GROUP_BY_UUID))) {
+            for (UUID user : users) {
+                ps.setString(1, GroupManager.DEFAULT_GROUP_NAME);
+                ps.setString(2, user.toString());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private void insertPlayerData(Connection c, Map<UUID, SqlPlayerData> data) throws SQLException {
+        if (data.isEmpty()) {
+            return;
+        }
+
+        // find out which players already have a row in a single query
+        Set<UUID> existing = selectPlayerData(c, data.keySet()).keySet();
+
+        try (PreparedStatement update = c.prepareStatement(this.statementProcessor.process(PLAYER_UPDATE_PRIMARY_GROUP_BY_UUID));
+             PreparedStatement insert = c.prepareStatement(this.statementProcessor.process(PLAYER_INSERT))) {
+            boolean hasUpdates = false;
+            boolean hasInserts = false;
+
+            for (Map.Entry<UUID, SqlPlayerData> entry : data.entrySet()) {
+                if (existing.contains(entry.getKey())) {
+                    update.setString(1, entry.getValue().primaryGroup);
+                    update.setString(2, entry.getKey().toString());
+                    update.addBatch();
+                    hasUpdates = true;
+                } else {
+                    insert.setString(1, entry.getKey().toString());
+                    insert.setString(2, entry.getValue().username);
+                    insert.setString(3, entry.getValue().primaryGroup);
+                    insert.addBatch();
+                    hasInserts = true;
+                }
+            }
+
+            if (hasUpdates) {
+                update.executeBatch();
+            }
+            if (hasInserts) {
+                insert.executeBatch();
+            }
+        }
+    }
+
     private Set<String> selectGroups(Connection c) throws SQLException {
         Set<String> groups = new HashSet<>();
         try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.process(GROUP_SELECT_ALL))) {
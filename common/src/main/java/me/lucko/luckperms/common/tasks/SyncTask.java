@@ -26,10 +26,16 @@
 package me.lucko.luckperms.common.tasks;
 
 import me.lucko.luckperms.common.cache.BufferedRequest;
+import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.manager.group.GroupManager;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import net.luckperms.api.event.cause.CreationCause;
+import net.luckperms.api.node.Node;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -55,12 +61,28 @@ public class SyncTask implements Runnable {
             return;
         }
 
+        // Take a snapshot of the current group data, so we can work out which groups changed
+        Map<String, Set<Node>> previousGroupData = new HashMap<>();
+        for (Group group : this.plugin.getGroupManager().getAll().values()) {
+            previousGroupData.put(group.getName(), group.normalData().asImmutableSet());
+        }
+
         // Reload all groups
         this.plugin.getStorage().loadAllGroups().join();
         if (!this.plugin.getGroupManager().isLoaded(GroupManager.DEFAULT_GROUP_NAME)) {
             this.plugin.getStorage().createAndLoadGroup(GroupManager.DEFAULT_GROUP_NAME, CreationCause.INTERNAL).join();
         }
 
+        Set<String> changedGroups = new HashSet<>(previousGroupData.keySet());
+        for (Group group : this.plugin.getGroupManager().getAll().values()) {
+            Set<Node> previous = previousGroupData.get(group.getName());
+            if (previous != null && previous.equals(group.normalData().asImmutableSet())) {
+                changedGroups.remove(group.getName());
+            } else {
+                changedGroups.add(group.getName());
+            }
+        }
+
         // Reload all tracks
         this.plugin.getStorage().loadAllTracks().join();
 
@@ -69,9 +91,9 @@ public class SyncTask implements Runnable {
 
         this.plugin.performPlatformDataSync();
 
-        // Just to be sure...
-        this.plugin.getGroupManager().invalidateAllGroupCaches();
-        this.plugin.getUserManager().invalidateAllUserCaches();
+        // Invalidate the caches of anything which inherits from a changed group.
+        // (users are reloaded above, which invalidates their own caches)
+        this.plugin.getCacheDependencyIndex().invalidateDependents(changedGroups);
 
         this.plugin.getEventDispatcher().dispatchPostSync();
     }
@@ -0,0 +1,59 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.treeview;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import java.util.Locale;
+
+/**
+ * A pool of canonical lowercase permission strings.
+ *
+ * <p>Permission holders export their nodes into a fresh map for every set of query options.
+ * Interning the keys means identical permissions share a single string instance (and
+ * its cached hash code) across all holders, rather than each map holding its own copy.</p>
+ *
+ * <p>The pool holds its entries weakly, so permissions are dropped once they are no
+ * longer referenced by any holder.</p>
+ */
+public final class PermissionPool {
+
+    /** The pooled permissions */
+    private final Interner<String> interner = Interners.newWeakInterner();
+
+    /**
+     * Gets the canonical instance of the given permission, converted to lowercase.
+     *
+     * @param permission the permission
+     * @return the canonical lowercase instance
+     */
+    public String intern(String permission) {
+        // toLowerCase returns the same instance if the permission is already lowercase
+        return this.interner.intern(permission.toLowerCase(Locale.ROOT));
+    }
+
+}
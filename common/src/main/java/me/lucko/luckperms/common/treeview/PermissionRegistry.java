@@ -41,10 +41,17 @@ public class PermissionRegistry {
     /** The root node in the tree */
     private final TreeNode rootNode = new TreeNode();
 
+    /** The pool of permissions which are set on holders */
+    private final PermissionPool pool = new PermissionPool();
+
     public TreeNode getRootNode() {
         return this.rootNode;
     }
 
+    public PermissionPool getPool() {
+        return this.pool;
+    }
+
     public List<String> rootAsList() {
         return this.rootNode.makeImmutableCopy().getNodeEndings().stream()
                 .map(Map.Entry::getValue)
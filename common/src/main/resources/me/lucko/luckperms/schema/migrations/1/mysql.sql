@@ -0,0 +1,8 @@
+-- LuckPerms MySQL Schema Migration 1
+-- Adds indexes for node searches and action log queries
+
+CREATE INDEX `{prefix}user_permissions_permission` ON `{prefix}user_permissions` (`permission`(191));
+CREATE INDEX `{prefix}group_permissions_permission` ON `{prefix}group_permissions` (`permission`(191));
+CREATE INDEX `{prefix}actions_time` ON `{prefix}actions` (`time`, `id`);
+CREATE INDEX `{prefix}actions_actor_uuid` ON `{prefix}actions` (`actor_uuid`);
+CREATE INDEX `{prefix}actions_acted_uuid` ON `{prefix}actions` (`acted_uuid`);
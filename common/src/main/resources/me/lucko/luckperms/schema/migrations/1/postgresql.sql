@@ -0,0 +1,8 @@
+-- LuckPerms PostgreSQL Schema Migration 1
+-- Adds indexes for node searches and action log queries
+
+CREATE INDEX IF NOT EXISTS "{prefix}user_permissions_permission" ON "{prefix}user_permissions" ("permission");
+CREATE INDEX IF NOT EXISTS "{prefix}group_permissions_permission" ON "{prefix}group_permissions" ("permission");
+CREATE INDEX IF NOT EXISTS "{prefix}actions_time" ON "{prefix}actions" ("time", "id");
+CREATE INDEX IF NOT EXISTS "{prefix}actions_actor_uuid" ON "{prefix}actions" ("actor_uuid");
+CREATE INDEX IF NOT EXISTS "{prefix}actions_acted_uuid" ON "{prefix}actions" ("acted_uuid");
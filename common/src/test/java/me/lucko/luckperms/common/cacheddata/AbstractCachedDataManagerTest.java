@@ -0,0 +1,147 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package me.lucko.luckperms.common.cacheddata;
+
+import com.google.common.collect.ImmutableList;
+import me.lucko.luckperms.common.cacheddata.metastack.SimpleMetaStackDefinition;
+import me.lucko.luckperms.common.cacheddata.type.MetaAccumulator;
+import me.lucko.luckperms.common.cacheddata.type.MonitoredMetaCache;
+import me.lucko.luckperms.common.cacheddata.type.PermissionCache;
+import me.lucko.luckperms.common.calculator.CalculatorFactory;
+import me.lucko.luckperms.common.calculator.PermissionCalculator;
+import me.lucko.luckperms.common.config.LuckPermsConfiguration;
+import me.lucko.luckperms.common.model.HolderType;
+import me.lucko.luckperms.common.node.types.Permission;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.query.QueryOptionsImpl;
+import me.lucko.luckperms.common.verbose.VerboseCheckTarget;
+import net.luckperms.api.metastacking.DuplicateRemovalFunction;
+import net.luckperms.api.metastacking.MetaStackDefinition;
+import net.luckperms.api.node.ChatMetaType;
+import net.luckperms.api.node.Node;
+import net.luckperms.api.query.QueryOptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+
+@ExtendWith(MockitoExtension.class)
+public class AbstractCachedDataManagerTest {
+
+    @Mock private LuckPermsPlugin plugin;
+    @Mock private LuckPermsConfiguration configuration;
+
+    @BeforeEach
+    public void setupMocks() {
+        lenient().when(this.plugin.getConfiguration()).thenReturn(this.configuration);
+    }
+
+    @Test
+    public void testConcurrentColdLoad() throws Exception {
+        QueryOptions queryOptions = QueryOptionsImpl.DEFAULT_CONTEXTUAL;
+
+        // both threads must be resolving at the same time for the test to be meaningful
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        TestCachedDataManager manager = new TestCachedDataManager(this.plugin, barrier);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CompletableFuture<PermissionCache> permission = CompletableFuture.supplyAsync(() -> manager.getPermissionData(queryOptions), executor);
+            CompletableFuture<MonitoredMetaCache> meta = CompletableFuture.supplyAsync(() -> manager.getMetaData(queryOptions), executor);
+
+            PermissionCache permissionData = permission.get(10, TimeUnit.SECONDS);
+            MonitoredMetaCache metaData = meta.get(10, TimeUnit.SECONDS);
+
+            assertEquals(1, permissionData.getPermissionMap().size());
+            assertSame(permissionData, manager.getPermissionData(queryOptions));
+            assertSame(metaData, manager.getMetaData(queryOptions));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static final class TestCachedDataManager extends AbstractCachedDataManager {
+        private static final MetaStackDefinition STACK = new SimpleMetaStackDefinition(ImmutableList.of(), DuplicateRemovalFunction.RETAIN_ALL, "", "", "");
+
+        private final CyclicBarrier barrier;
+
+        TestCachedDataManager(LuckPermsPlugin plugin, CyclicBarrier barrier) {
+            super(plugin);
+            this.barrier = barrier;
+        }
+
+        @Override
+        protected CacheMetadata getMetadataForQueryOptions(QueryOptions queryOptions) {
+            return new CacheMetadata(HolderType.GROUP, VerboseCheckTarget.internal("test"), queryOptions);
+        }
+
+        @Override
+        protected QueryOptions getQueryOptions() {
+            return QueryOptionsImpl.DEFAULT_CONTEXTUAL;
+        }
+
+        @Override
+        protected CalculatorFactory getCalculatorFactory() {
+            return (queryOptions, metadata) -> mock(PermissionCalculator.class);
+        }
+
+        @Override
+        protected MetaStackDefinition getDefaultMetaStackDefinition(ChatMetaType type) {
+            return STACK;
+        }
+
+        @Override
+        protected <M extends Map<String, Node>> M resolvePermissions(IntFunction<M> mapFactory, QueryOptions queryOptions) {
+            M map = mapFactory.apply(1);
+            map.put("test", Permission.builder().permission("test").build());
+            return map;
+        }
+
+        @Override
+        protected void resolveMeta(MetaAccumulator accumulator, QueryOptions queryOptions) {
+            try {
+                this.barrier.await(5, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            accumulator.complete();
+        }
+    }
+
+}
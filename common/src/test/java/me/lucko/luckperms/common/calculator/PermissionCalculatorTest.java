@@ -34,6 +34,7 @@ import me.lucko.luckperms.common.calculator.processor.DirectProcessor;
 import me.lucko.luckperms.common.calculator.processor.PermissionProcessor;
 import me.lucko.luckperms.common.calculator.processor.RegexProcessor;
 import me.lucko.luckperms.common.calculator.processor.SpongeWildcardProcessor;
+import me.lucko.luckperms.common.calculator.processor.TrieWildcardProcessor;
 import me.lucko.luckperms.common.calculator.processor.WildcardProcessor;
 import me.lucko.luckperms.common.model.HolderType;
 import me.lucko.luckperms.common.node.factory.NodeBuilders;
@@ -109,7 +110,7 @@ public class PermissionCalculatorTest {
     }
 
     private PermissionCalculator createCalculator(PermissionProcessor... processors) {
-        return new PermissionCalculator(this.plugin, MOCK_METADATA, ImmutableList.copyOf(processors));
+        return new PermissionCalculator(this.plugin, MOCK_METADATA, ImmutableList.copyOf(processors), -1);
     }
 
     @ParameterizedTest
@@ -168,6 +169,40 @@ public class PermissionCalculatorTest {
         }
     }
 
+    @ParameterizedTest
+    @CsvSource({
+            "one.two.three.four, true, direct",
+            "one.two.three.four.five, false, wildcard",
+            "one.two.three.test, false, wildcard",
+            "one.two.three, true, direct",
+            "one.two.test, false, wildcard",
+            "one.two, true, direct",
+            "one.twox.test, false, wildcard",
+            "one.test, false, wildcard",
+            "one, true, direct",
+            "onex.test, false, wildcard",
+            ".one.test, false, wildcard",
+            "test, false, wildcard",
+            "overridetest.test, true, wildcard",
+    })
+    public void testTrieWildcard(String node, boolean expected, String type) {
+        PermissionCalculator calculator = createCalculator(new DirectProcessor(), new TrieWildcardProcessor());
+        calculator.setSourcePermissions(EXAMPLE_PERMISSIONS);
+
+        TristateResult result = calculator.checkPermission(node, CheckOrigin.INTERNAL);
+        assertEquals(Tristate.of(expected), result.result());
+        assertNull(result.overriddenResult());
+        assertNotNull(result.node());
+
+        if (type.equals("direct")) {
+            assertSame(DirectProcessor.class, result.processorClass());
+        } else if (type.equals("wildcard")) {
+            assertSame(TrieWildcardProcessor.class, result.processorClass());
+        } else {
+            throw new AssertionError();
+        }
+    }
+
     @ParameterizedTest
     @CsvSource({
             "one, true, direct",
@@ -221,6 +256,76 @@ public class PermissionCalculatorTest {
         }
     }
 
+    @ParameterizedTest
+    @CsvSource({
+            "hello, UNDEFINED",
+            "hello1, TRUE",
+            "hello123, TRUE",
+            "helloo, UNDEFINED",
+            "regex1, FALSE",
+            "regexes2, FALSE",
+            "regexp3, FALSE",
+            "regexps4, FALSE",
+            "rege1, UNDEFINED",
+    })
+    public void testRegexPrefixFiltering(String node, Tristate expected) {
+        PermissionCalculator calculator = createCalculator(new DirectProcessor(), new RegexProcessor(true));
+        calculator.setSourcePermissions(EXAMPLE_PERMISSIONS);
+
+        TristateResult result = calculator.checkPermission(node, CheckOrigin.INTERNAL);
+        assertEquals(expected, result.result());
+
+        if (expected != Tristate.UNDEFINED) {
+            assertSame(RegexProcessor.class, result.processorClass());
+        } else {
+            assertNull(result.processorClass());
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "'hello\\d+', hello",
+            "'^hello\\d+', hello",
+            "'rege(x(es)?|xps?)[1-5]', rege",
+            "'kits\\.(a|b)', kits",
+            "'kits|warps', ''",
+            "'kits[|]', kits",
+            "'kits\\Q\\E?', kit",
+            "'kits?', kit",
+            "'kits*', kit",
+            "'kits{2}', kit",
+            "'kits+', kit",
+            "'kits.', kits",
+            "'(?i)kits', ''",
+            "'.*', ''",
+            "'kits', kits",
+    })
+    public void testRegexLiteralPrefix(String regex, String expected) {
+        assertEquals(expected, RegexProcessor.literalPrefix(regex));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"-1", "2"})
+    public void testLookupCacheStats(int maxCacheSize) {
+        PermissionCalculator calculator = new PermissionCalculator(this.plugin, MOCK_METADATA, ImmutableList.of(new DirectProcessor()), maxCacheSize);
+        calculator.setSourcePermissions(EXAMPLE_PERMISSIONS);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Tristate.TRUE, calculator.checkPermission("test.node1", CheckOrigin.INTERNAL).result());
+        }
+        assertEquals(Tristate.FALSE, calculator.checkPermission("test.node2", CheckOrigin.INTERNAL).result());
+        assertEquals(Tristate.UNDEFINED, calculator.checkPermission("test.node3", CheckOrigin.INTERNAL).result());
+
+        PermissionCalculator.LookupCacheStats stats = calculator.getLookupCacheStats();
+        assertEquals(2, stats.hitCount());
+        assertEquals(3, stats.missCount());
+
+        calculator.invalidateCache();
+        assertEquals(0, calculator.getLookupCacheStats().size());
+        assertEquals(Tristate.TRUE, calculator.checkPermission("test.node1", CheckOrigin.INTERNAL).result());
+        assertEquals(4, calculator.getLookupCacheStats().missCount());
+    }
+
     @Test
     public void testOverrideWildcard() {
         AbstractOverrideWildcardProcessor overrideProcessor = new AbstractOverrideWildcardProcessor(true) {
@@ -170,4 +170,29 @@ public class ImmutableContextSetTest {
         );
     }
 
+    private static Stream<Consumer<ImmutableContextSet.Builder>> testSatisfiedByMatchesMutable() {
+        return Stream.concat(testContainsAllTrue(), testContainsAllFalse());
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    public void testSatisfiedByMatchesMutable(Consumer<ImmutableContextSet.Builder> setup) {
+        ImmutableContextSet.Builder builder = new ImmutableContextSetImpl.BuilderImpl();
+        setup.accept(builder);
+        ImmutableContextSet set = builder.build();
+
+        ImmutableContextSet other = new ImmutableContextSetImpl.BuilderImpl()
+                .add("aaa", "a")
+                .add("aaa", "b")
+                .add("bbb", "a")
+                .add("ccc", "a")
+                .build();
+
+        // the immutable -> immutable comparison uses the summaries, the mutable one doesn't
+        for (ContextSatisfyMode mode : ContextSatisfyMode.values()) {
+            assertEquals(set.isSatisfiedBy(other.mutableCopy(), mode), set.isSatisfiedBy(other, mode));
+            assertEquals(other.isSatisfiedBy(set.mutableCopy(), mode), other.isSatisfiedBy(set, mode));
+        }
+    }
+
 }
@@ -0,0 +1,191 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.context.manager;
+
+import com.google.common.collect.ImmutableSet;
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.config.LuckPermsConfiguration;
+import me.lucko.luckperms.common.context.ImmutableContextSetImpl;
+import me.lucko.luckperms.common.context.calculator.EventDrivenContextCalculator;
+import me.lucko.luckperms.common.event.EventDispatcher;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.query.QueryOptionsBuilderImpl;
+import net.luckperms.api.context.ContextCalculator;
+import net.luckperms.api.context.ContextConsumer;
+import net.luckperms.api.context.ImmutableContextSet;
+import net.luckperms.api.query.QueryMode;
+import net.luckperms.api.query.QueryOptions;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+
+@ExtendWith(MockitoExtension.class)
+public class ContextManagerTest {
+
+    @Mock private LuckPermsPlugin plugin;
+    @Mock private LuckPermsConfiguration configuration;
+
+    @BeforeEach
+    public void setupMocks() {
+        lenient().when(this.plugin.getConfiguration()).thenReturn(this.configuration);
+        lenient().when(this.plugin.getEventDispatcher()).thenReturn(mock(EventDispatcher.class));
+        lenient().when(this.configuration.get(ConfigKeys.DISABLED_CONTEXT_CALCULATORS)).thenReturn(ImmutableSet.of());
+    }
+
+    private static ImmutableContextSet context(String key, String value) {
+        return new ImmutableContextSetImpl.BuilderImpl().add(key, value).build();
+    }
+
+    @Test
+    public void testEventDrivenCalculatorsAreCachedUntilSignalled() throws InterruptedException {
+        TestContextManager manager = new TestContextManager(this.plugin);
+        EventDrivenCalculator calculator = new EventDrivenCalculator();
+        manager.registerCalculator(calculator);
+
+        assertFalse(manager.isPollingRequired());
+        assertEquals(context("gamemode", "survival"), manager.getContext("test"));
+
+        Thread.sleep(100); // longer than the cache duration
+        assertEquals(context("gamemode", "survival"), manager.getContext("test"));
+        assertEquals(1, calculator.calls);
+
+        calculator.value = "creative";
+        manager.signalContextUpdate("test");
+        assertEquals(context("gamemode", "creative"), manager.getContext("test"));
+        assertEquals(2, calculator.calls);
+    }
+
+    @Test
+    public void testOnlyPollingCalculatorsAreRecalculated() throws InterruptedException {
+        TestContextManager manager = new TestContextManager(this.plugin);
+        EventDrivenCalculator eventDriven = new EventDrivenCalculator();
+        PollingCalculator polling = new PollingCalculator();
+        manager.registerCalculator(eventDriven);
+        manager.registerCalculator(polling);
+
+        assertTrue(manager.isPollingRequired());
+        manager.getContext("test");
+
+        Thread.sleep(100); // longer than the cache duration
+        ImmutableContextSet context = manager.getContext("test");
+
+        assertEquals(2, polling.calls);
+        assertEquals(1, eventDriven.calls);
+        assertTrue(context.contains("gamemode", "survival"));
+        assertTrue(context.contains("polling", "true"));
+
+        Map<String, ContextManager.CalculatorTiming> timings = manager.getCalculatorTimings();
+        assertEquals(1, timings.get(EventDrivenCalculator.class.getName()).calls());
+        assertEquals(2, timings.get(PollingCalculator.class.getName()).calls());
+    }
+
+    @Test
+    public void testRegisteringCalculatorInvalidatesCache() {
+        TestContextManager manager = new TestContextManager(this.plugin);
+        manager.registerCalculator(new EventDrivenCalculator());
+        assertEquals(context("gamemode", "survival"), manager.getContext("test"));
+
+        EventDrivenCalculator other = new EventDrivenCalculator();
+        other.key = "other";
+        manager.registerCalculator(other);
+
+        ImmutableContextSet context = manager.getContext("test");
+        assertTrue(context.contains("gamemode", "survival"));
+        assertTrue(context.contains("other", "survival"));
+    }
+
+    private static final class EventDrivenCalculator implements EventDrivenContextCalculator<String> {
+        private String key = "gamemode";
+        private String value = "survival";
+        private int calls = 0;
+
+        @Override
+        public boolean isEventDriven() {
+            return true;
+        }
+
+        @Override
+        public void calculate(@NonNull String target, @NonNull ContextConsumer consumer) {
+            this.calls++;
+            consumer.accept(this.key, this.value);
+        }
+    }
+
+    private static final class PollingCalculator implements ContextCalculator<String> {
+        private int calls = 0;
+
+        @Override
+        public void calculate(@NonNull String target, @NonNull ContextConsumer consumer) {
+            this.calls++;
+            consumer.accept("polling", "true");
+        }
+    }
+
+    private static final class TestContextManager extends ContextManager<String, String> {
+        private final Map<String, QueryOptionsCache<String>> caches = new HashMap<>();
+
+        TestContextManager(LuckPermsPlugin plugin) {
+            super(plugin, String.class, String.class);
+        }
+
+        @Override
+        public UUID getUniqueId(String player) {
+            return UUID.nameUUIDFromBytes(player.getBytes());
+        }
+
+        @Override
+        public QueryOptionsSupplier getCacheFor(String subject) {
+            return this.caches.computeIfAbsent(subject, s -> new QueryOptionsCache<>(s, this));
+        }
+
+        @Override
+        public QueryOptions formQueryOptions(String subject, ImmutableContextSet contextSet) {
+            return new QueryOptionsBuilderImpl(QueryMode.CONTEXTUAL).context(contextSet).build();
+        }
+
+        @Override
+        protected void invalidateCache(String subject) {
+            QueryOptionsCache<String> cache = this.caches.get(subject);
+            if (cache != null) {
+                cache.invalidate();
+            }
+        }
+    }
+
+}
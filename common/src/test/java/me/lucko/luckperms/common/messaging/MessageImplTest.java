@@ -25,18 +25,22 @@
 
 package me.lucko.luckperms.common.messaging;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.gson.JsonObject;
 import me.lucko.luckperms.common.actionlog.ActionJsonSerializer;
 import me.lucko.luckperms.common.actionlog.LoggedAction;
 import me.lucko.luckperms.common.messaging.message.ActionLogMessageImpl;
 import me.lucko.luckperms.common.messaging.message.CustomMessageImpl;
+import me.lucko.luckperms.common.messaging.message.TargetedUpdateMessageImpl;
 import me.lucko.luckperms.common.messaging.message.UpdateMessageImpl;
 import me.lucko.luckperms.common.messaging.message.UserUpdateMessageImpl;
+import me.lucko.luckperms.common.util.gson.JArray;
 import me.lucko.luckperms.common.util.gson.JObject;
 import net.luckperms.api.actionlog.Action;
 import org.junit.jupiter.api.Test;
 
 import java.time.Instant;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -72,6 +76,29 @@ public class MessageImplTest {
         assertEquals(userUuid, msg.getUserUniqueId());
     }
 
+    @Test
+    public void testTargetedUpdateMessage() {
+        UUID uuid = UUID.fromString("22f9e168-8815-44f1-83c8-b642ebfbcef2");
+        Set<String> groups = ImmutableSet.of("admin", "mod");
+        Set<String> tracks = ImmutableSet.of("staff");
+
+        // encode
+        TargetedUpdateMessageImpl msg = new TargetedUpdateMessageImpl(uuid, groups, tracks);
+        // {"id":"22f9e168-8815-44f1-83c8-b642ebfbcef2","type":"targetedupdate","content":{"groups":["admin","mod"],"tracks":["staff"]}}
+        assertEquals("{\"id\":\"22f9e168-8815-44f1-83c8-b642ebfbcef2\",\"type\":\"targetedupdate\",\"content\":{\"groups\":[\"admin\",\"mod\"],\"tracks\":[\"staff\"]}}", msg.asEncodedString());
+
+        // decode
+        msg = TargetedUpdateMessageImpl.decode(new JObject().add("groups", new JArray().addAll(groups)).add("tracks", new JArray().addAll(tracks)).toJson(), uuid);
+        assertEquals(uuid, msg.getId());
+        assertEquals(groups, msg.getGroups());
+        assertEquals(tracks, msg.getTracks());
+
+        // decode with missing tracks
+        msg = TargetedUpdateMessageImpl.decode(new JObject().add("groups", new JArray().addAll(groups)).toJson(), uuid);
+        assertEquals(groups, msg.getGroups());
+        assertEquals(ImmutableSet.of(), msg.getTracks());
+    }
+
     @Test
     public void testActionLogMessage() {
         UUID uuid = UUID.fromString("22f9e168-8815-44f1-83c8-b642ebfbcef2");
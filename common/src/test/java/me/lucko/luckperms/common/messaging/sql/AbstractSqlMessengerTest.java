@@ -0,0 +1,68 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.messaging.sql;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import me.lucko.luckperms.common.messaging.message.CustomMessageImpl;
+import me.lucko.luckperms.common.messaging.message.TargetedUpdateMessageImpl;
+import me.lucko.luckperms.common.messaging.message.UpdateMessageImpl;
+import me.lucko.luckperms.common.messaging.message.UserUpdateMessageImpl;
+import net.luckperms.api.messenger.message.OutgoingMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AbstractSqlMessengerTest {
+
+    @Test
+    public void testCoalesceUserUpdates() {
+        UUID user = UUID.randomUUID();
+        OutgoingMessage first = new UserUpdateMessageImpl(UUID.randomUUID(), user);
+        OutgoingMessage second = new UserUpdateMessageImpl(UUID.randomUUID(), UUID.randomUUID());
+        OutgoingMessage repeat = new UserUpdateMessageImpl(UUID.randomUUID(), user);
+        OutgoingMessage custom = new CustomMessageImpl(UUID.randomUUID(), "test:channel", "payload");
+
+        List<OutgoingMessage> result = AbstractSqlMessenger.coalesce(ImmutableList.of(first, second, repeat, custom));
+        assertEquals(ImmutableList.of(first, second, custom), result);
+    }
+
+    @Test
+    public void testCoalesceFullUpdate() {
+        OutgoingMessage user = new UserUpdateMessageImpl(UUID.randomUUID(), UUID.randomUUID());
+        OutgoingMessage targeted = new TargetedUpdateMessageImpl(UUID.randomUUID(), ImmutableSet.of("default"), ImmutableSet.of());
+        OutgoingMessage custom = new CustomMessageImpl(UUID.randomUUID(), "test:channel", "payload");
+        OutgoingMessage update = new UpdateMessageImpl(UUID.randomUUID());
+        OutgoingMessage repeat = new UpdateMessageImpl(UUID.randomUUID());
+
+        List<OutgoingMessage> result = AbstractSqlMessenger.coalesce(ImmutableList.of(user, targeted, custom, update, repeat));
+        assertEquals(ImmutableList.of(custom, update), result);
+    }
+
+}
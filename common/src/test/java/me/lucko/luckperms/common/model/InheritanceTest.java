@@ -25,6 +25,12 @@
 
 package me.lucko.luckperms.common.model;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import me.lucko.luckperms.common.cacheddata.metastack.SimpleMetaStackDefinition;
+import me.lucko.luckperms.common.cacheddata.metastack.StandardStackElements;
+import me.lucko.luckperms.common.cacheddata.result.StringResult;
+import me.lucko.luckperms.common.cacheddata.type.MetaAccumulator;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.config.LuckPermsConfiguration;
 import me.lucko.luckperms.common.event.EventDispatcher;
@@ -33,11 +39,20 @@ import me.lucko.luckperms.common.inheritance.InheritanceGraphFactory;
 import me.lucko.luckperms.common.model.manager.group.GroupManager;
 import me.lucko.luckperms.common.model.manager.group.StandardGroupManager;
 import me.lucko.luckperms.common.node.types.Inheritance;
+import me.lucko.luckperms.common.node.types.Meta;
+import me.lucko.luckperms.common.node.types.Permission;
 import me.lucko.luckperms.common.node.types.Weight;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.query.QueryOptionsImpl;
+import me.lucko.luckperms.common.treeview.PermissionRegistry;
+import me.lucko.luckperms.common.util.Difference;
 import net.luckperms.api.context.ContextSatisfyMode;
+import net.luckperms.api.metastacking.DuplicateRemovalFunction;
+import net.luckperms.api.node.Node;
+import net.luckperms.api.query.Flag;
+import net.luckperms.api.query.QueryOptions;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
@@ -46,10 +61,16 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -126,6 +147,142 @@ public class InheritanceTest {
         assertEquals(expectedList, groups);
     }
 
+    @Test
+    public void testInheritanceDependencies() {
+        when(this.configuration.get(ConfigKeys.INHERITANCE_TRAVERSAL_ALGORITHM)).thenReturn(TraversalAlgorithm.DEPTH_FIRST_PRE_ORDER);
+        when(this.configuration.get(ConfigKeys.POST_TRAVERSAL_INHERITANCE_SORT)).thenReturn(false);
+
+        Group member = this.groupManager.getOrMake("member");
+        Group vip = createGroup("vip", 5, member);
+        this.groupManager.getOrMake("unrelated");
+
+        PermissionHolder testHolder = this.groupManager.getOrMake("test");
+        testHolder.normalData().add(Inheritance.builder().group(vip.getName()).build());
+        testHolder.normalData().add(Inheritance.builder().group("notloaded").build());
+
+        Set<String> dependencies = testHolder.resolveInheritanceDependencies(QueryOptionsImpl.DEFAULT_CONTEXTUAL);
+        assertEquals(ImmutableSet.of("test", "vip", "member", "notloaded"), dependencies);
+    }
+
+    @Test
+    public void testCachedTraversalInvalidation() {
+        when(this.configuration.get(ConfigKeys.INHERITANCE_TRAVERSAL_ALGORITHM)).thenReturn(TraversalAlgorithm.DEPTH_FIRST_PRE_ORDER);
+        when(this.configuration.get(ConfigKeys.POST_TRAVERSAL_INHERITANCE_SORT)).thenReturn(false);
+
+        Group base = this.groupManager.getOrMake("base");
+        Group member = this.groupManager.getOrMake("member");
+        Group vip = createGroup("vip", 5, member);
+
+        PermissionHolder testHolder = this.groupManager.getOrMake("test");
+        testHolder.normalData().add(Inheritance.builder().group(vip.getName()).build());
+        testHolder.normalData().add(Inheritance.builder().group("staff").build());
+
+        assertEquals(ImmutableList.of("vip", "member"), inheritanceTree(testHolder));
+
+        // a change to a parent group's nodes should be picked up
+        member.normalData().add(Inheritance.builder().group(base.getName()).build());
+        assertEquals(ImmutableList.of("vip", "member", "base"), inheritanceTree(testHolder));
+
+        // as should loading a previously missing group
+        Group staff = this.groupManager.getOrMake("staff");
+        staff.normalData().add(Weight.builder().weight(10).build());
+        assertEquals(ImmutableList.of("staff", "vip", "member", "base"), inheritanceTree(testHolder));
+    }
+
+    @Test
+    public void testCachedTraversalPrimaryGroupChange() {
+        when(this.configuration.get(ConfigKeys.INHERITANCE_TRAVERSAL_ALGORITHM)).thenReturn(TraversalAlgorithm.DEPTH_FIRST_PRE_ORDER);
+        when(this.configuration.get(ConfigKeys.POST_TRAVERSAL_INHERITANCE_SORT)).thenReturn(false);
+        when(this.configuration.get(ConfigKeys.PRIMARY_GROUP_CALCULATION)).thenReturn(PrimaryGroupHolder.Stored::new);
+
+        this.groupManager.getOrMake("first");
+        this.groupManager.getOrMake("second");
+
+        User user = new User(UUID.randomUUID(), this.plugin);
+        user.normalData().add(Inheritance.builder().group("first").build());
+        user.normalData().add(Inheritance.builder().group("second").build());
+
+        user.getPrimaryGroup().setStoredValue("first");
+        assertEquals(ImmutableList.of("first", "second"), inheritanceTree(user));
+
+        // changing the primary group doesn't change any nodes, but does change the order
+        user.getPrimaryGroup().setStoredValue("second");
+        assertEquals(ImmutableList.of("second", "first"), inheritanceTree(user));
+    }
+
+    @Test
+    public void testExportPermissionChanges() {
+        when(this.configuration.get(ConfigKeys.INHERITANCE_TRAVERSAL_ALGORITHM)).thenReturn(TraversalAlgorithm.DEPTH_FIRST_PRE_ORDER);
+        when(this.configuration.get(ConfigKeys.POST_TRAVERSAL_INHERITANCE_SORT)).thenReturn(false);
+        when(this.plugin.getPermissionRegistry()).thenReturn(new PermissionRegistry());
+
+        Group member = this.groupManager.getOrMake("member");
+        member.normalData().add(Permission.builder().permission("a.b").build());
+        member.normalData().add(Permission.builder().permission("x").build());
+
+        PermissionHolder testHolder = this.groupManager.getOrMake("test");
+        testHolder.normalData().add(Inheritance.builder().group(member.getName()).build());
+        testHolder.normalData().add(Permission.builder().permission("A.B").value(false).build());
+
+        QueryOptions queryOptions = QueryOptionsImpl.DEFAULT_CONTEXTUAL;
+        Map<String, Node> exported = testHolder.exportPermissions(HashMap::new, queryOptions, true, false);
+        assertFalse(exported.get("a.b").getValue());
+
+        // a new permission
+        Difference<Node> changes = testHolder.normalData().add(Permission.builder().permission("c").build());
+        Map<String, Node> updates = new HashMap<>();
+        assertTrue(testHolder.exportPermissionChanges(updates, exported, changes, queryOptions, false));
+        assertEquals(ImmutableSet.of("c"), updates.keySet());
+        exported.putAll(updates);
+        assertEquals(testHolder.exportPermissions(HashMap::new, queryOptions, true, false), exported);
+
+        // a permission which overrides an inherited one
+        changes = testHolder.normalData().add(Permission.builder().permission("x").value(false).build());
+        updates = new HashMap<>();
+        assertTrue(testHolder.exportPermissionChanges(updates, exported, changes, queryOptions, false));
+        exported.putAll(updates);
+        assertEquals(testHolder.exportPermissions(HashMap::new, queryOptions, true, false), exported);
+
+        // removing a permission which overrides an inherited one requires a full export
+        changes = testHolder.normalData().remove(Permission.builder().permission("A.B").value(false).build());
+        assertFalse(testHolder.exportPermissionChanges(new HashMap<>(), exported, changes, queryOptions, false));
+    }
+
+    @Test
+    public void testExportPermissionsAndMeta() {
+        when(this.configuration.get(ConfigKeys.INHERITANCE_TRAVERSAL_ALGORITHM)).thenReturn(TraversalAlgorithm.DEPTH_FIRST_PRE_ORDER);
+        when(this.configuration.get(ConfigKeys.POST_TRAVERSAL_INHERITANCE_SORT)).thenReturn(false);
+        when(this.plugin.getPermissionRegistry()).thenReturn(new PermissionRegistry());
+
+        Group member = createGroup("member", 1, this.groupManager.getOrMake("default"));
+        member.normalData().add(Permission.builder().permission("a.b").build());
+        member.normalData().add(Meta.builder("colour", "red").build());
+
+        Group testHolder = createGroup("test", 10, member);
+        testHolder.normalData().add(Permission.builder().permission("A.B").value(false).build());
+        testHolder.normalData().add(Meta.builder("colour", "blue").build());
+
+        SimpleMetaStackDefinition definition = new SimpleMetaStackDefinition(ImmutableList.of(StandardStackElements.HIGHEST), DuplicateRemovalFunction.RETAIN_ALL, "", "", "");
+
+        for (QueryOptions queryOptions : ImmutableList.of(QueryOptionsImpl.DEFAULT_CONTEXTUAL, QueryOptionsImpl.DEFAULT_CONTEXTUAL.toBuilder().flag(Flag.RESOLVE_INHERITANCE, false).build())) {
+            MetaAccumulator expectedMeta = testHolder.accumulateMeta(new MetaAccumulator(definition, definition), queryOptions);
+            Map<String, Node> expectedPermissions = testHolder.exportPermissions(HashMap::new, queryOptions, true, false);
+
+            MetaAccumulator meta = new MetaAccumulator(definition, definition);
+            Map<String, Node> permissions = testHolder.exportPermissionsAndMeta(HashMap::new, meta, queryOptions, true, false);
+
+            assertEquals(expectedPermissions, permissions);
+            assertEquals(expectedMeta.getMeta().keySet(), meta.getMeta().keySet());
+            assertEquals(ImmutableList.of("blue", "red"), meta.getMeta().get("colour").stream().map(StringResult::result).collect(Collectors.toList()));
+            assertEquals(expectedMeta.getWeight().intResult(), meta.getWeight().intResult());
+        }
+    }
+
+    private static List<String> inheritanceTree(PermissionHolder holder) {
+        return holder.resolveInheritanceTree(QueryOptionsImpl.DEFAULT_CONTEXTUAL)
+                .stream().map(Group::getName).collect(Collectors.toList());
+    }
+
     private Group createGroup(String name, int weight, Group parent) {
         Group group = this.groupManager.getOrMake(name);
         group.normalData().add(Inheritance.builder().group(parent.getName()).build());
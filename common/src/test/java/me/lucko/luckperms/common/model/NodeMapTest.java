@@ -52,6 +52,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
@@ -59,6 +60,8 @@ import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -95,6 +98,69 @@ public class NodeMapTest {
         assertEquals(0, map.size());
     }
 
+    @Test
+    public void testSetContentAndApplyChanges() {
+        NodeMapMutable map = new NodeMapMutable(this.mockHolder, DataType.NORMAL);
+        Node test1 = makeNode("test1");
+        Node test2 = makeNode("test2").toBuilder().withContext("server", "test").build();
+        Node group = makeNode("group.test");
+
+        map.add(test1);
+
+        Difference<Node> r1 = map.setContent(ImmutableList.of(test2, group));
+        assertEquals(ImmutableSet.of(test2, group), r1.getAdded());
+        assertEquals(ImmutableSet.of(test1), r1.getRemoved());
+        assertEquals(2, map.size());
+        assertEquals(1, map.inheritanceAsList().size());
+
+        Difference<Node> changes = new Difference<>();
+        changes.recordChange(Difference.ChangeType.ADD, test1);
+        changes.recordChange(Difference.ChangeType.REMOVE, test2);
+        changes.recordChange(Difference.ChangeType.REMOVE, group);
+
+        Difference<Node> r2 = map.applyChanges(changes);
+        assertEquals(ImmutableSet.of(test1), r2.getAdded());
+        assertEquals(ImmutableSet.of(test2, group), r2.getRemoved());
+        assertEquals(ImmutableList.of(test1), map.asList());
+        assertEquals(ImmutableList.of(), map.inheritanceAsList());
+
+        map.remove(test1);
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void testFreeze() {
+        NodeMapMutable map = new NodeMapMutable(this.mockHolder, DataType.NORMAL);
+        Node test1 = makeNode("test1");
+        Node test2 = makeNode("test2").toBuilder().value(false).withContext("server", "test").build();
+        Node temp = makeNode("temp").toBuilder().expiry(1, TimeUnit.HOURS).build();
+        Node group = makeNode("group.test").toBuilder().withContext("world", "test").build();
+
+        map.addAll(ImmutableList.of(test1, test2, temp, group));
+        List<Node> before = map.asList();
+        int modCount = map.modCount();
+
+        map.freeze();
+        assertTrue(map.removeExpired().isEmpty());
+        assertEquals(modCount, map.modCount());
+
+        assertEquals(before, map.asList());
+        assertEquals(4, map.size());
+        assertEquals(1, map.inheritanceAsList().size());
+        assertEquals(modCount, map.modCount());
+        assertEquals(temp.getExpiry(), map.asList().stream().filter(n -> n.getKey().equals("temp")).findFirst().get().getExpiry());
+        assertEquals(ORIGIN, map.asList().get(0).metadata(InheritanceOriginMetadata.KEY).getOrigin());
+
+        // reading doesn't thaw the map
+        assertTrue(map.isFrozen());
+
+        map.freeze();
+        map.remove(test2);
+        assertFalse(map.isFrozen());
+        assertEquals(3, map.size());
+        assertEquals(modCount + 1, map.modCount());
+    }
+
     @Test
     public void testInheritanceOrigin() {
         NodeMapMutable map = new NodeMapMutable(this.mockHolder, DataType.NORMAL);
@@ -324,5 +390,51 @@ public class NodeMapTest {
         assertEquals(expectedInheritance, inheritanceOutput.size());
     }
 
+    @Test
+    public void testContextFilteringManyContexts() {
+        NodeMapMutable map = new NodeMapMutable(this.mockHolder, DataType.NORMAL) {
+            @Override
+            protected ContextSatisfyMode defaultSatisfyMode() {
+                return ContextSatisfyMode.AT_LEAST_ONE_VALUE_PER_KEY;
+            }
+        };
+
+        map.add(makeNode("test"));
+        map.add(makeNode("group.test"));
+        for (int i = 0; i < 10; i++) {
+            map.add(makeNode("test.server" + i).toBuilder().withContext("server", "s" + i).build());
+            map.add(makeNode("test.world" + i).toBuilder().withContext("world", "w" + i).build());
+            map.add(makeNode("group.server" + i).toBuilder().withContext("server", "s" + i).withContext("world", "w" + i).build());
+        }
+
+        QueryOptions options = new QueryOptionsBuilderImpl(QueryMode.CONTEXTUAL)
+                .context(new ImmutableContextSetImpl.BuilderImpl().add("server", "s3").add("world", "w3").build())
+                .build();
+
+        List<Node> expected = new ArrayList<>();
+        for (Node node : map.asList()) {
+            if (options.satisfies(node.getContexts(), ContextSatisfyMode.AT_LEAST_ONE_VALUE_PER_KEY)) {
+                expected.add(node);
+            }
+        }
+        assertEquals(5, expected.size());
+
+        List<Node> output = new ArrayList<>();
+        map.copyTo(output, options);
+        assertEquals(expected, output);
+
+        output.clear();
+        map.forEach(options, output::add);
+        assertEquals(expected, output);
+
+        List<InheritanceNode> inheritanceOutput = new ArrayList<>();
+        map.copyInheritanceNodesTo(inheritanceOutput, options);
+        assertEquals(2, inheritanceOutput.size());
+
+        map.clear(new ImmutableContextSetImpl.BuilderImpl().add("server", "s3").build());
+        output.clear();
+        map.copyTo(output, options);
+        assertEquals(4, output.size());
+    }
 
 }
@@ -0,0 +1,92 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package me.lucko.luckperms.common.model;
+
+import com.google.common.collect.ImmutableMap;
+import me.lucko.luckperms.common.cacheddata.UserCachedDataManager;
+import me.lucko.luckperms.common.model.manager.user.UserHousekeeper;
+import me.lucko.luckperms.common.model.manager.user.UserManager;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.plugin.bootstrap.LuckPermsBootstrap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class UserHousekeeperTest {
+
+    @Mock private LuckPermsPlugin plugin;
+    @Mock private LuckPermsBootstrap bootstrap;
+    @Mock private UserManager<User> userManager;
+    @Mock private User user;
+    @Mock private UserCachedDataManager cachedData;
+
+    private final UUID uniqueId = UUID.randomUUID();
+
+    @BeforeEach
+    public void setupMocks() {
+        lenient().when(this.plugin.getBootstrap()).thenReturn(this.bootstrap);
+        lenient().when(this.bootstrap.isPlayerOnline(this.uniqueId)).thenReturn(false);
+        lenient().when(this.userManager.getAll()).thenReturn(ImmutableMap.of(this.uniqueId, this.user));
+        lenient().when(this.userManager.getIfLoaded(this.uniqueId)).thenReturn(this.user);
+        lenient().when(this.user.getUniqueId()).thenReturn(this.uniqueId);
+        lenient().when(this.user.getCachedData()).thenReturn(this.cachedData);
+    }
+
+    @Test
+    public void testFreezeReleasesCachedData() {
+        UserHousekeeper housekeeper = new UserHousekeeper(this.plugin, this.userManager, UserHousekeeper.timeoutSettings(1, TimeUnit.MINUTES));
+        housekeeper.registerUsage(this.uniqueId);
+        housekeeper.run();
+
+        // the cached data holds on to the same nodes, so is released before freezing
+        InOrder order = inOrder(this.cachedData, this.user);
+        order.verify(this.cachedData).invalidate();
+        order.verify(this.user).freeze();
+
+        // and isn't frozen again until it is next used
+        housekeeper.run();
+        verify(this.user, times(1)).freeze();
+        verify(this.cachedData, times(1)).invalidate();
+
+        housekeeper.registerUsage(this.uniqueId);
+        housekeeper.run();
+        verify(this.user, times(2)).freeze();
+        verify(this.userManager, never()).unload(this.uniqueId);
+    }
+
+}
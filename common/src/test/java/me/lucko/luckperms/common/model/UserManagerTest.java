@@ -46,7 +46,10 @@ import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
 
@@ -96,6 +99,23 @@ public class UserManagerTest {
         assertTrue(manager.isNonDefaultUser(user));
     }
 
+    @Test
+    public void testGetByUsername() {
+        StandardUserManager manager = new StandardUserManager(this.plugin);
+        doReturn(manager).when(this.plugin).getUserManager();
+
+        User user = manager.getOrMake(UUID.randomUUID(), "Notch");
+        assertSame(user, manager.getByUsername("notch"));
+        assertSame(user, manager.getByUsername("NOTCH"));
+
+        user.setUsername("jeb_", false);
+        assertNull(manager.getByUsername("notch"));
+        assertSame(user, manager.getByUsername("Jeb_"));
+
+        manager.unload(user.getUniqueId());
+        assertNull(manager.getByUsername("jeb_"));
+    }
+
     @Test
     public void testIsDefaultNode() {
         StandardUserManager manager = new StandardUserManager(this.plugin);
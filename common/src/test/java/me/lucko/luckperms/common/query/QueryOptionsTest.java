@@ -25,6 +25,8 @@
 
 package me.lucko.luckperms.common.query;
 
+import me.lucko.luckperms.common.context.ImmutableContextSetImpl;
+import net.luckperms.api.context.ImmutableContextSet;
 import net.luckperms.api.query.Flag;
 import net.luckperms.api.query.QueryMode;
 import net.luckperms.api.query.QueryOptions;
@@ -32,6 +34,7 @@ import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -59,4 +62,22 @@ public class QueryOptionsTest {
         }
     }
 
+    @Test
+    public void testIntern() {
+        ImmutableContextSet context = new ImmutableContextSetImpl.BuilderImpl().add("server", "test").build();
+        ImmutableContextSet equalContext = new ImmutableContextSetImpl.BuilderImpl().add("server", "test").build();
+        assertNotSame(context, equalContext);
+        assertSame(ImmutableContextSetImpl.intern(context), ImmutableContextSetImpl.intern(equalContext));
+
+        QueryOptions options = new QueryOptionsBuilderImpl(QueryMode.CONTEXTUAL).context(context).build();
+        QueryOptions equalOptions = new QueryOptionsBuilderImpl(QueryMode.CONTEXTUAL).context(equalContext).build();
+        assertNotSame(options, equalOptions);
+        assertFalse(QueryOptionsImpl.isInterned(options));
+
+        QueryOptions interned = QueryOptionsImpl.intern(options);
+        assertSame(interned, QueryOptionsImpl.intern(equalOptions));
+        assertEquals(options, interned);
+        assertTrue(QueryOptionsImpl.isInterned(interned));
+    }
+
 }
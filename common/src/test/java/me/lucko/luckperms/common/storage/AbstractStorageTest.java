@@ -62,7 +62,11 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
@@ -226,6 +230,24 @@ public abstract class AbstractStorageTest {
 
         page = this.storage.getLogPage(ActionFilters.search("hello"), new PageParameters(500, 1));
         assertEquals(300, page.getContent().size());
+
+        // walk through every page, continuing from the cursor where supported
+        List<LoggedAction> expected = this.storage.getLogPage(ActionFilters.source(sourceUuid), null).getContent();
+        List<LoggedAction> walked = new ArrayList<>();
+        PageParameters params = new PageParameters(7, 1).withEstimatedTotal();
+        do {
+            page = this.storage.getLogPage(ActionFilters.source(sourceUuid), params);
+            walked.addAll(page.getContent());
+            params = params.next(page.getNextCursor());
+        } while (page.getContent().size() == 7);
+        assertEquals(expected, walked);
+
+        // the total for the whole log can be estimated, but should still account for new entries
+        page = this.storage.getLogPage(ActionFilters.all(), new PageParameters(5, 1).withEstimatedTotal());
+        assertEquals(320, page.getTotalEntries());
+        this.storage.logAction(mockAction.apply(500));
+        page = this.storage.getLogPage(ActionFilters.all(), new PageParameters(5, 1).withEstimatedTotal());
+        assertEquals(321, page.getTotalEntries());
     }
 
     @Test
@@ -358,4 +380,81 @@ public abstract class AbstractStorageTest {
         assertEquals(ImmutableSet.of(defaultGroupNode, examplePermission), user.normalData().asSet());
     }
 
+    @Test
+    public void testLoadUsersInBulk() throws Exception {
+        //noinspection unchecked,rawtypes
+        when(this.plugin.getUserManager()).thenReturn((UserManager) new StandardUserManager(this.plugin));
+
+        InheritanceNode defaultGroupNode = Inheritance.builder(GroupManager.DEFAULT_GROUP_NAME).build();
+        Map<UUID, Node> permissions = new HashMap<>();
+        for (int i = 0; i < 5; i++) {
+            UUID uniqueId = UUID.randomUUID();
+            PermissionNode permission = Permission.builder().permission("test.bulk." + i).build();
+            permissions.put(uniqueId, permission);
+
+            User user = this.storage.loadUser(uniqueId, "user" + i);
+            user.setNode(DataType.NORMAL, permission, true);
+            this.storage.saveUser(user);
+        }
+
+        UUID unknownUniqueId = UUID.randomUUID();
+        Set<UUID> toLoad = new HashSet<>(permissions.keySet());
+        toLoad.add(unknownUniqueId);
+
+        // load the users into a fresh user manager, so the data must come from storage
+        //noinspection unchecked,rawtypes
+        when(this.plugin.getUserManager()).thenReturn((UserManager) new StandardUserManager(this.plugin));
+
+        Map<UUID, User> loaded = this.storage.loadUsers(toLoad);
+        assertEquals(toLoad, loaded.keySet());
+
+        for (Map.Entry<UUID, Node> e : permissions.entrySet()) {
+            User user = loaded.get(e.getKey());
+            assertEquals(e.getKey(), user.getUniqueId());
+            assertEquals(ImmutableSet.of(defaultGroupNode, e.getValue()), user.normalData().asSet());
+        }
+        assertEquals(ImmutableSet.of(defaultGroupNode), loaded.get(unknownUniqueId).normalData().asSet());
+    }
+
+    @Test
+    public void testSaveUsersInBulk() throws Exception {
+        //noinspection unchecked,rawtypes
+        when(this.plugin.getUserManager()).thenReturn((UserManager) new StandardUserManager(this.plugin));
+
+        InheritanceNode defaultGroupNode = Inheritance.builder(GroupManager.DEFAULT_GROUP_NAME).build();
+        Map<UUID, Node> permissions = new HashMap<>();
+        for (int i = 0; i < 5; i++) {
+            permissions.put(UUID.randomUUID(), Permission.builder().permission("test.bulk." + i).build());
+        }
+
+        // a user with existing data which is reset to the default state by the bulk save
+        UUID clearedUniqueId = UUID.randomUUID();
+        User cleared = this.storage.loadUser(clearedUniqueId, "cleared");
+        cleared.setNode(DataType.NORMAL, Permission.builder().permission("test.cleared").build(), true);
+        this.storage.saveUser(cleared);
+
+        Map<UUID, User> users = this.storage.loadUsers(new HashSet<>(permissions.keySet()));
+        for (Map.Entry<UUID, Node> e : permissions.entrySet()) {
+            users.get(e.getKey()).setNode(DataType.NORMAL, e.getValue(), true);
+        }
+        cleared.clearNodes(DataType.NORMAL, null, true);
+
+        List<User> toSave = new ArrayList<>(users.values());
+        toSave.add(cleared);
+        this.storage.saveUsers(toSave);
+
+        // load the users into a fresh user manager, so the data must come from storage
+        //noinspection unchecked,rawtypes
+        when(this.plugin.getUserManager()).thenReturn((UserManager) new StandardUserManager(this.plugin));
+
+        Set<UUID> toLoad = new HashSet<>(permissions.keySet());
+        toLoad.add(clearedUniqueId);
+        Map<UUID, User> loaded = this.storage.loadUsers(toLoad);
+
+        for (Map.Entry<UUID, Node> e : permissions.entrySet()) {
+            assertEquals(ImmutableSet.of(defaultGroupNode, e.getValue()), loaded.get(e.getKey()).normalData().asSet());
+        }
+        assertEquals(ImmutableSet.of(defaultGroupNode), loaded.get(clearedUniqueId).normalData().asSet());
+    }
+
 }
@@ -27,6 +27,7 @@ package me.lucko.luckperms.common.storage;
 
 import me.lucko.luckperms.common.actionlog.LoggedAction;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.plugin.logging.PluginLogger;
 import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
 import me.lucko.luckperms.common.storage.implementation.sql.SqlStorage;
 import me.lucko.luckperms.common.storage.implementation.sql.StatementProcessor;
@@ -38,11 +39,17 @@ import org.junit.jupiter.api.Test;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.Instant;
 import java.util.UUID;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class SqlStorageTest extends AbstractStorageTest {
 
@@ -80,6 +87,38 @@ public class SqlStorageTest extends AbstractStorageTest {
         this.storage.logAction(testAction);
     }
 
+    @Test
+    public void testSchemaMigration() throws Exception {
+        SqlStorage sql = (SqlStorage) this.storage;
+        when(this.plugin.getLogger()).thenReturn(mock(PluginLogger.class));
+
+        // simulate a database created before the schema was versioned
+        try (Connection c = sql.getConnectionFactory().getConnection()) {
+            c.createStatement().execute("DROP TABLE `luckperms_schema_version`");
+        }
+
+        this.storage.init();
+
+        try (Connection c = sql.getConnectionFactory().getConnection()) {
+            try (ResultSet rs = c.createStatement().executeQuery("SELECT version FROM `luckperms_schema_version`")) {
+                assertTrue(rs.next());
+                assertEquals(1, rs.getInt(1));
+                assertFalse(rs.next());
+            }
+        }
+
+        // the migration should not be applied again
+        this.storage.init();
+        this.storage.logAction(LoggedAction.build()
+                .source(UUID.randomUUID())
+                .sourceName("Test")
+                .targetType(Action.Target.Type.TRACK)
+                .targetName("test")
+                .description("test")
+                .timestamp(Instant.now())
+                .build());
+    }
+
     private static class TestH2ConnectionFactory implements ConnectionFactory {
         private final NonClosableConnection connection;
 
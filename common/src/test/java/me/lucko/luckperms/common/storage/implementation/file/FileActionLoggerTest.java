@@ -0,0 +1,140 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.storage.implementation.file;
+
+import com.google.common.collect.ImmutableList;
+import me.lucko.luckperms.common.actionlog.ActionJsonSerializer;
+import me.lucko.luckperms.common.actionlog.LogPage;
+import me.lucko.luckperms.common.actionlog.LoggedAction;
+import me.lucko.luckperms.common.actionlog.filter.ActionFilters;
+import me.lucko.luckperms.common.filter.PageParameters;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.plugin.bootstrap.LuckPermsBootstrap;
+import me.lucko.luckperms.common.plugin.scheduler.SchedulerAdapter;
+import me.lucko.luckperms.common.util.gson.GsonProvider;
+import net.luckperms.api.actionlog.Action;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class FileActionLoggerTest {
+
+    @Mock private LuckPermsPlugin plugin;
+    @Mock private LuckPermsBootstrap bootstrap;
+
+    @TempDir
+    private Path directory;
+
+    private final UUID sourceUuid = UUID.randomUUID();
+    private final UUID otherUuid = UUID.randomUUID();
+    private final Instant baseTime = Instant.now();
+
+    @BeforeEach
+    public void setupMocks() {
+        when(this.plugin.getBootstrap()).thenReturn(this.bootstrap);
+        when(this.bootstrap.getScheduler()).thenReturn(mock(SchedulerAdapter.class));
+    }
+
+    private LoggedAction action(int i) {
+        return LoggedAction.build()
+                .source(i % 2 == 0 ? this.sourceUuid : this.otherUuid)
+                .sourceName("Test Source")
+                .targetType(Action.Target.Type.GROUP)
+                .targetName("test")
+                .description("action " + i)
+                .timestamp(this.baseTime.plusSeconds(i))
+                .build();
+    }
+
+    private FileActionLogger open() throws Exception {
+        FileActionLogger logger = new FileActionLogger(this.plugin);
+        logger.init(this.directory.resolve("actions"), this.directory.resolve("actions.txt"), this.directory.resolve("actions.json"));
+        return logger;
+    }
+
+    @Test
+    public void testMigrateContentFile() throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            lines.add(GsonProvider.normal().toJson(ActionJsonSerializer.serialize(action(i))));
+        }
+        Files.write(this.directory.resolve("actions.txt"), lines, StandardCharsets.UTF_8);
+
+        FileActionLogger logger = open();
+        assertFalse(Files.exists(this.directory.resolve("actions.txt")));
+        assertTrue(Files.exists(this.directory.resolve("actions").resolve("actions-000001.idx")));
+
+        LogPage page = logger.getLogPage(ActionFilters.source(this.sourceUuid), new PageParameters(2, 1));
+        assertEquals(5, page.getTotalEntries());
+        assertEquals(ImmutableList.of(action(8), action(6)), page.getContent());
+    }
+
+    @Test
+    public void testRecoverIndex() throws Exception {
+        FileActionLogger logger = open();
+        for (int i = 0; i < 10; i++) {
+            logger.logAction(action(i));
+        }
+        logger.flush();
+
+        // append an action to the content without indexing it, as if the index write was interrupted
+        Path segment = this.directory.resolve("actions").resolve("actions-000001.txt");
+        String line = GsonProvider.normal().toJson(ActionJsonSerializer.serialize(action(10))) + "\n";
+        Files.write(segment, line.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        logger = open();
+        LogPage page = logger.getLogPage(ActionFilters.all(), new PageParameters(3, 1));
+        assertEquals(11, page.getTotalEntries());
+        assertEquals(ImmutableList.of(action(10), action(9), action(8)), page.getContent());
+
+        // remove the index entirely
+        Files.delete(this.directory.resolve("actions").resolve("actions-000001.idx"));
+
+        logger = open();
+        page = logger.getLogPage(ActionFilters.search("action 1"), null);
+        assertEquals(ImmutableList.of(action(10), action(1)), page.getContent());
+    }
+
+}
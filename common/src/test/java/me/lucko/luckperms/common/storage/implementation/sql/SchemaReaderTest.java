@@ -57,13 +57,19 @@ public class SchemaReaderTest {
         assertEquals(ImmutableList.of(
                 "CREATE TABLE `{prefix}user_permissions` ( `id` INT AUTO_INCREMENT NOT NULL, `uuid` VARCHAR(36) NOT NULL, `permission` VARCHAR(200) NOT NULL, `value` BOOL NOT NULL, `server` VARCHAR(36) NOT NULL, `world` VARCHAR(64) NOT NULL, `expiry` BIGINT NOT NULL, `contexts` VARCHAR(200) NOT NULL, PRIMARY KEY (`id`))",
                 "CREATE INDEX ON `{prefix}user_permissions` (`uuid`)",
+                "CREATE INDEX ON `{prefix}user_permissions` (`permission`)",
                 "CREATE TABLE `{prefix}group_permissions` ( `id` INT AUTO_INCREMENT NOT NULL, `name` VARCHAR(36) NOT NULL, `permission` VARCHAR(200) NOT NULL, `value` BOOL NOT NULL, `server` VARCHAR(36) NOT NULL, `world` VARCHAR(64) NOT NULL, `expiry` BIGINT NOT NULL, `contexts` VARCHAR(200) NOT NULL, PRIMARY KEY (`id`))",
                 "CREATE INDEX ON `{prefix}group_permissions` (`name`)",
+                "CREATE INDEX ON `{prefix}group_permissions` (`permission`)",
                 "CREATE TABLE `{prefix}players` ( `uuid` VARCHAR(36) NOT NULL, `username` VARCHAR(16) NOT NULL, `primary_group` VARCHAR(36) NOT NULL, PRIMARY KEY (`uuid`))",
                 "CREATE INDEX ON `{prefix}players` (`username`)",
                 "CREATE TABLE `{prefix}groups` ( `name` VARCHAR(36) NOT NULL, PRIMARY KEY (`name`))",
                 "CREATE TABLE `{prefix}actions` ( `id` INT AUTO_INCREMENT NOT NULL, `time` BIGINT NOT NULL, `actor_uuid` VARCHAR(36) NOT NULL, `actor_name` VARCHAR(100) NOT NULL, `type` CHAR(1) NOT NULL, `acted_uuid` VARCHAR(36) NOT NULL, `acted_name` VARCHAR(36) NOT NULL, `action` VARCHAR(300) NOT NULL, PRIMARY KEY (`id`))",
-                "CREATE TABLE `{prefix}tracks` ( `name` VARCHAR(36) NOT NULL, `groups` TEXT NOT NULL, PRIMARY KEY (`name`))"
+                "CREATE INDEX ON `{prefix}actions` (`time`, `id`)",
+                "CREATE INDEX ON `{prefix}actions` (`actor_uuid`)",
+                "CREATE INDEX ON `{prefix}actions` (`acted_uuid`)",
+                "CREATE TABLE `{prefix}tracks` ( `name` VARCHAR(36) NOT NULL, `groups` TEXT NOT NULL, PRIMARY KEY (`name`))",
+                "CREATE TABLE `{prefix}schema_version` ( `version` INT NOT NULL)"
         ), readStatements("h2"));
     }
 
@@ -72,13 +78,19 @@ public class SchemaReaderTest {
         assertEquals(ImmutableList.of(
                 "CREATE TABLE `{prefix}user_permissions` ( `id` INTEGER PRIMARY KEY NOT NULL, `uuid` VARCHAR(36) NOT NULL, `permission` VARCHAR(200) NOT NULL, `value` BOOL NOT NULL, `server` VARCHAR(36) NOT NULL, `world` VARCHAR(64) NOT NULL, `expiry` BIGINT NOT NULL, `contexts` VARCHAR(200) NOT NULL)",
                 "CREATE INDEX `{prefix}user_permissions_uuid` ON `{prefix}user_permissions` (`uuid`)",
+                "CREATE INDEX `{prefix}user_permissions_permission` ON `{prefix}user_permissions` (`permission`)",
                 "CREATE TABLE `{prefix}group_permissions` ( `id` INTEGER PRIMARY KEY NOT NULL, `name` VARCHAR(36) NOT NULL, `permission` VARCHAR(200) NOT NULL, `value` BOOL NOT NULL, `server` VARCHAR(36) NOT NULL, `world` VARCHAR(64) NOT NULL, `expiry` BIGINT NOT NULL, `contexts` VARCHAR(200) NOT NULL)",
                 "CREATE INDEX `{prefix}group_permissions_name` ON `{prefix}group_permissions` (`name`)",
+                "CREATE INDEX `{prefix}group_permissions_permission` ON `{prefix}group_permissions` (`permission`)",
                 "CREATE TABLE `{prefix}players` ( `uuid` VARCHAR(36) NOT NULL, `username` VARCHAR(16) NOT NULL, `primary_group` VARCHAR(36) NOT NULL, PRIMARY KEY (`uuid`))",
                 "CREATE INDEX `{prefix}players_username` ON `{prefix}players` (`username`)",
                 "CREATE TABLE `{prefix}groups` ( `name` VARCHAR(36) NOT NULL, PRIMARY KEY (`name`))",
                 "CREATE TABLE `{prefix}actions` ( `id` INTEGER PRIMARY KEY NOT NULL, `time` BIGINT NOT NULL, `actor_uuid` VARCHAR(36) NOT NULL, `actor_name` VARCHAR(100) NOT NULL, `type` CHAR(1) NOT NULL, `acted_uuid` VARCHAR(36) NOT NULL, `acted_name` VARCHAR(36) NOT NULL, `action` VARCHAR(300) NOT NULL)",
-                "CREATE TABLE `{prefix}tracks` ( `name` VARCHAR(36) NOT NULL, `groups` TEXT NOT NULL, PRIMARY KEY (`name`))"
+                "CREATE INDEX `{prefix}actions_time` ON `{prefix}actions` (`time`, `id`)",
+                "CREATE INDEX `{prefix}actions_actor_uuid` ON `{prefix}actions` (`actor_uuid`)",
+                "CREATE INDEX `{prefix}actions_acted_uuid` ON `{prefix}actions` (`acted_uuid`)",
+                "CREATE TABLE `{prefix}tracks` ( `name` VARCHAR(36) NOT NULL, `groups` TEXT NOT NULL, PRIMARY KEY (`name`))",
+                "CREATE TABLE `{prefix}schema_version` ( `version` INT NOT NULL)"
         ), readStatements("sqlite"));
     }
 
@@ -87,13 +99,19 @@ public class SchemaReaderTest {
         ImmutableList<String> expected = ImmutableList.of(
                 "CREATE TABLE `{prefix}user_permissions` ( `id` INT AUTO_INCREMENT NOT NULL, `uuid` VARCHAR(36) NOT NULL, `permission` VARCHAR(200) NOT NULL, `value` BOOL NOT NULL, `server` VARCHAR(36) NOT NULL, `world` VARCHAR(64) NOT NULL, `expiry` BIGINT NOT NULL, `contexts` VARCHAR(200) NOT NULL, PRIMARY KEY (`id`)) DEFAULT CHARSET = utf8mb4",
                 "CREATE INDEX `{prefix}user_permissions_uuid` ON `{prefix}user_permissions` (`uuid`)",
+                "CREATE INDEX `{prefix}user_permissions_permission` ON `{prefix}user_permissions` (`permission`)",
                 "CREATE TABLE `{prefix}group_permissions` ( `id` INT AUTO_INCREMENT NOT NULL, `name` VARCHAR(36) NOT NULL, `permission` VARCHAR(200) NOT NULL, `value` BOOL NOT NULL, `server` VARCHAR(36) NOT NULL, `world` VARCHAR(64) NOT NULL, `expiry` BIGINT NOT NULL, `contexts` VARCHAR(200) NOT NULL, PRIMARY KEY (`id`)) DEFAULT CHARSET = utf8mb4",
                 "CREATE INDEX `{prefix}group_permissions_name` ON `{prefix}group_permissions` (`name`)",
+                "CREATE INDEX `{prefix}group_permissions_permission` ON `{prefix}group_permissions` (`permission`)",
                 "CREATE TABLE `{prefix}players` ( `uuid` VARCHAR(36) NOT NULL, `username` VARCHAR(16) NOT NULL, `primary_group` VARCHAR(36) NOT NULL, PRIMARY KEY (`uuid`)) DEFAULT CHARSET = utf8mb4",
                 "CREATE INDEX `{prefix}players_username` ON `{prefix}players` (`username`)",
                 "CREATE TABLE `{prefix}groups` ( `name` VARCHAR(36) NOT NULL, PRIMARY KEY (`name`)) DEFAULT CHARSET = utf8mb4",
                 "CREATE TABLE `{prefix}actions` ( `id` INT AUTO_INCREMENT NOT NULL, `time` BIGINT NOT NULL, `actor_uuid` VARCHAR(36) NOT NULL, `actor_name` VARCHAR(100) NOT NULL, `type` CHAR(1) NOT NULL, `acted_uuid` VARCHAR(36) NOT NULL, `acted_name` VARCHAR(36) NOT NULL, `action` VARCHAR(300) NOT NULL, PRIMARY KEY (`id`)) DEFAULT CHARSET = utf8mb4",
-                "CREATE TABLE `{prefix}tracks` ( `name` VARCHAR(36) NOT NULL, `groups` TEXT NOT NULL, PRIMARY KEY (`name`)) DEFAULT CHARSET = utf8mb4"
+                "CREATE INDEX `{prefix}actions_time` ON `{prefix}actions` (`time`, `id`)",
+                "CREATE INDEX `{prefix}actions_actor_uuid` ON `{prefix}actions` (`actor_uuid`)",
+                "CREATE INDEX `{prefix}actions_acted_uuid` ON `{prefix}actions` (`acted_uuid`)",
+                "CREATE TABLE `{prefix}tracks` ( `name` VARCHAR(36) NOT NULL, `groups` TEXT NOT NULL, PRIMARY KEY (`name`)) DEFAULT CHARSET = utf8mb4",
+                "CREATE TABLE `{prefix}schema_version` ( `version` INT NOT NULL) DEFAULT CHARSET = utf8mb4"
         );
         assertEquals(expected, readStatements("mysql"));
         assertEquals(expected, readStatements("mariadb"));
@@ -104,13 +122,19 @@ public class SchemaReaderTest {
         assertEquals(ImmutableList.of(
                 "CREATE TABLE \"{prefix}user_permissions\" ( \"id\" SERIAL PRIMARY KEY NOT NULL, \"uuid\" VARCHAR(36) NOT NULL, \"permission\" VARCHAR(200) NOT NULL, \"value\" BOOL NOT NULL, \"server\" VARCHAR(36) NOT NULL, \"world\" VARCHAR(64) NOT NULL, \"expiry\" BIGINT NOT NULL, \"contexts\" VARCHAR(200) NOT NULL)",
                 "CREATE INDEX \"{prefix}user_permissions_uuid\" ON \"{prefix}user_permissions\" (\"uuid\")",
+                "CREATE INDEX \"{prefix}user_permissions_permission\" ON \"{prefix}user_permissions\" (\"permission\")",
                 "CREATE TABLE \"{prefix}group_permissions\" ( \"id\" SERIAL PRIMARY KEY NOT NULL, \"name\" VARCHAR(36) NOT NULL, \"permission\" VARCHAR(200) NOT NULL, \"value\" BOOL NOT NULL, \"server\" VARCHAR(36) NOT NULL, \"world\" VARCHAR(64) NOT NULL, \"expiry\" BIGINT NOT NULL, \"contexts\" VARCHAR(200) NOT NULL)",
                 "CREATE INDEX \"{prefix}group_permissions_name\" ON \"{prefix}group_permissions\" (\"name\")",
+                "CREATE INDEX \"{prefix}group_permissions_permission\" ON \"{prefix}group_permissions\" (\"permission\")",
                 "CREATE TABLE \"{prefix}players\" ( \"uuid\" VARCHAR(36) PRIMARY KEY NOT NULL, \"username\" VARCHAR(16) NOT NULL, \"primary_group\" VARCHAR(36) NOT NULL)",
                 "CREATE INDEX \"{prefix}players_username\" ON \"{prefix}players\" (\"username\")",
                 "CREATE TABLE \"{prefix}groups\" ( \"name\" VARCHAR(36) PRIMARY KEY NOT NULL)",
                 "CREATE TABLE \"{prefix}actions\" ( \"id\" SERIAL PRIMARY KEY NOT NULL, \"time\" BIGINT NOT NULL, \"actor_uuid\" VARCHAR(36) NOT NULL, \"actor_name\" VARCHAR(100) NOT NULL, \"type\" CHAR(1) NOT NULL, \"acted_uuid\" VARCHAR(36) NOT NULL, \"acted_name\" VARCHAR(36) NOT NULL, \"action\" VARCHAR(300) NOT NULL)",
-                "CREATE TABLE \"{prefix}tracks\" ( \"name\" VARCHAR(36) PRIMARY KEY NOT NULL, \"groups\" TEXT NOT NULL)"
+                "CREATE INDEX \"{prefix}actions_time\" ON \"{prefix}actions\" (\"time\", \"id\")",
+                "CREATE INDEX \"{prefix}actions_actor_uuid\" ON \"{prefix}actions\" (\"actor_uuid\")",
+                "CREATE INDEX \"{prefix}actions_acted_uuid\" ON \"{prefix}actions\" (\"acted_uuid\")",
+                "CREATE TABLE \"{prefix}tracks\" ( \"name\" VARCHAR(36) PRIMARY KEY NOT NULL, \"groups\" TEXT NOT NULL)",
+                "CREATE TABLE \"{prefix}schema_version\" ( \"version\" INT NOT NULL)"
         ), readStatements("postgresql"));
     }
 
@@ -122,7 +146,8 @@ public class SchemaReaderTest {
                 "luckperms_players",
                 "luckperms_groups",
                 "luckperms_actions",
-                "luckperms_tracks"
+                "luckperms_tracks",
+                "luckperms_schema_version"
         );
 
         for (String type : new String[]{"h2", "mariadb", "mysql", "postgresql", "sqlite"}) {
@@ -151,7 +176,8 @@ public class SchemaReaderTest {
                 "luckperms_players",
                 "luckperms_groups",
                 "luckperms_actions",
-                "luckperms_tracks"
+                "luckperms_tracks",
+                "luckperms_schema_version"
         ));
         assertEquals(ImmutableList.of(), filtered);
 
@@ -161,11 +187,13 @@ public class SchemaReaderTest {
                 "luckperms_players",
                 "luckperms_groups",
                 "luckperms_actions",
-                "luckperms_tracks"
+                "luckperms_tracks",
+                "luckperms_schema_version"
         ));
         assertEquals(ImmutableList.of(
                 "CREATE TABLE `luckperms_group_permissions` ( `id` INT AUTO_INCREMENT NOT NULL, `name` VARCHAR(36) NOT NULL, `permission` VARCHAR(200) NOT NULL, `value` BOOL NOT NULL, `server` VARCHAR(36) NOT NULL, `world` VARCHAR(64) NOT NULL, `expiry` BIGINT NOT NULL, `contexts` VARCHAR(200) NOT NULL, PRIMARY KEY (`id`)) DEFAULT CHARSET = utf8mb4",
-                "CREATE INDEX `luckperms_group_permissions_name` ON `luckperms_group_permissions` (`name`)"
+                "CREATE INDEX `luckperms_group_permissions_name` ON `luckperms_group_permissions` (`name`)",
+                "CREATE INDEX `luckperms_group_permissions_permission` ON `luckperms_group_permissions` (`permission`)"
         ), filtered);
     }
 
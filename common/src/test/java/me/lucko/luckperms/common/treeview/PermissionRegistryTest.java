@@ -33,6 +33,7 @@ import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 public class PermissionRegistryTest {
 
@@ -78,4 +79,14 @@ public class PermissionRegistryTest {
         assertEquals("{\"minecraft\":{\"minecraft.command\":{\"minecraft.command.give\":{},\"minecraft.command.time\":{}}},\"worldedit\":{\"worldedit.clipboard\":{\"worldedit.clipboard.copy\":{},\"worldedit.clipboard.paste\":{}}}}", json.toString());
     }
 
+    @Test
+    public void testPool() {
+        PermissionPool pool = new PermissionRegistry().getPool();
+
+        String permission = pool.intern("Minecraft.Command.Give");
+        assertEquals("minecraft.command.give", permission);
+        assertSame(permission, pool.intern(new String("minecraft.command.give")));
+        assertSame(permission, pool.intern("MINECRAFT.COMMAND.GIVE"));
+    }
+
 }
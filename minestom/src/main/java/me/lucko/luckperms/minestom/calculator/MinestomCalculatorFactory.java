@@ -9,6 +9,7 @@ import me.lucko.luckperms.common.calculator.processor.DirectProcessor;
 import me.lucko.luckperms.common.calculator.processor.PermissionProcessor;
 import me.lucko.luckperms.common.calculator.processor.RegexProcessor;
 import me.lucko.luckperms.common.calculator.processor.SpongeWildcardProcessor;
+import me.lucko.luckperms.common.calculator.processor.TrieWildcardProcessor;
 import me.lucko.luckperms.common.calculator.processor.WildcardProcessor;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.config.LuckPermsConfiguration;
@@ -30,8 +31,8 @@ public final class MinestomCalculatorFactory implements CalculatorFactory {
         List<PermissionProcessor> processors = new ArrayList<>(4); // todo: add initial capacity
 
         processors.add(new DirectProcessor());
-        if (this.configuration.get(ConfigKeys.APPLYING_REGEX)) processors.add(new RegexProcessor());
-        if (this.configuration.get(ConfigKeys.APPLYING_WILDCARDS)) processors.add(new WildcardProcessor());
+        if (this.configuration.get(ConfigKeys.APPLYING_REGEX)) processors.add(new RegexProcessor(this.configuration.get(ConfigKeys.REGEX_PREFIX_FILTERING)));
+        if (this.configuration.get(ConfigKeys.APPLYING_WILDCARDS)) processors.add(this.configuration.get(ConfigKeys.TRIE_WILDCARD_RESOLUTION) ? new TrieWildcardProcessor() : new WildcardProcessor());
         if (this.configuration.get(ConfigKeys.APPLYING_WILDCARDS_SPONGE)) processors.add(new SpongeWildcardProcessor());
 
         return new PermissionCalculator(this.plugin, metadata, processors);
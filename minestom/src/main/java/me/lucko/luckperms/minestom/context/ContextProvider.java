@@ -23,4 +23,17 @@ public interface ContextProvider {
         // do nothing by default
     }
 
+    /**
+     * Gets if this provider signals a context update (using the signaller passed to
+     * {@link #register(Consumer, EventNode)}) whenever its value for a player changes.
+     *
+     * <p>If every provider is event-driven, player contexts are cached until they are
+     * signalled instead of being recalculated every tick.</p>
+     *
+     * @return if the provider is event-driven
+     */
+    default boolean isEventDriven() {
+        return false;
+    }
+
 }
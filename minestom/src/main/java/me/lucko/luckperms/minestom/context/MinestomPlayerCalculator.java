@@ -4,10 +4,10 @@ import java.util.HashSet;
 import java.util.Set;
 import java.util.stream.Collectors;
 import me.lucko.luckperms.common.context.ImmutableContextSetImpl;
+import me.lucko.luckperms.common.context.calculator.EventDrivenContextCalculator;
 import me.lucko.luckperms.minestom.LPMinestomPlugin;
 import me.lucko.luckperms.minestom.context.defaults.DimensionTypeContextProvider;
 import me.lucko.luckperms.minestom.context.defaults.GameModeContextProvider;
-import net.luckperms.api.context.ContextCalculator;
 import net.luckperms.api.context.ContextConsumer;
 import net.luckperms.api.context.ContextSet;
 import net.luckperms.api.context.ImmutableContextSet;
@@ -17,9 +17,10 @@ import net.minestom.server.event.EventNode;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.jetbrains.annotations.NotNull;
 
-public final class MinestomPlayerCalculator implements ContextCalculator<Player> {
+public final class MinestomPlayerCalculator implements EventDrivenContextCalculator<Player> {
 
     private final @NonNull Set<ContextProvider> providers;
+    private final boolean eventDriven;
 
     public MinestomPlayerCalculator(@NotNull LPMinestomPlugin plugin, @NotNull EventNode<Event> eventNode, @NotNull Set<ContextProvider> providers, @NotNull Set<String> disabled) {
         providers = new HashSet<>(providers);
@@ -32,6 +33,12 @@ public final class MinestomPlayerCalculator implements ContextCalculator<Player>
                 .filter(p -> !disabled.contains(p.key()))
                 .peek(p -> p.register(player -> plugin.getContextManager().signalContextUpdate(player), eventNode))
                 .collect(Collectors.toSet());
+        this.eventDriven = this.providers.stream().allMatch(ContextProvider::isEventDriven);
+    }
+
+    @Override
+    public boolean isEventDriven() {
+        return this.eventDriven;
     }
 
     @Override
@@ -38,4 +38,9 @@ public final class DimensionTypeContextProvider implements ContextProvider {
         eventNode.addListener(PlayerSpawnEvent.class, event -> contextUpdateSignaller.accept(event.getPlayer()));
     }
 
+    @Override
+    public boolean isEventDriven() {
+        return true;
+    }
+
 }
@@ -42,7 +42,14 @@ public final class GameModeContextProvider implements ContextProvider {
 
     @Override
     public void register(@NonNull Consumer<Player> contextUpdateSignaller, @NonNull EventNode<Event> eventNode) {
-        eventNode.addListener(PlayerGameModeChangeEvent.class, event -> contextUpdateSignaller.accept(event.getPlayer()));
+        // the event is called before the game mode is changed (and may be cancelled),
+        // so wait until the next tick to signal the update
+        eventNode.addListener(PlayerGameModeChangeEvent.class, event -> event.getPlayer().scheduleNextTick(entity -> contextUpdateSignaller.accept((Player) entity)));
+    }
+
+    @Override
+    public boolean isEventDriven() {
+        return true;
     }
 
 }
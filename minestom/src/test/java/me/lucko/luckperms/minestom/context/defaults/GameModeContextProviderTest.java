@@ -0,0 +1,50 @@
+package me.lucko.luckperms.minestom.context.defaults;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import net.minestom.server.entity.Entity;
+import net.minestom.server.entity.GameMode;
+import net.minestom.server.entity.Player;
+import net.minestom.server.event.Event;
+import net.minestom.server.event.EventNode;
+import net.minestom.server.event.player.PlayerGameModeChangeEvent;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class GameModeContextProviderTest {
+
+    @Test
+    public void testSignalledAfterGameModeChange() {
+        GameModeContextProvider provider = new GameModeContextProvider();
+        Player player = mock(Player.class);
+        when(player.getGameMode()).thenReturn(GameMode.SURVIVAL);
+
+        // record the context value at the time each update is signalled
+        List<String> signalled = new ArrayList<>();
+        EventNode<Event> eventNode = EventNode.all("test");
+        provider.register(p -> signalled.add(provider.query(p).orElse(null)), eventNode);
+
+        // the event is called before the game mode is applied
+        eventNode.call(new PlayerGameModeChangeEvent(player, GameMode.CREATIVE));
+        assertTrue(signalled.isEmpty());
+
+        // apply the change, then run the next tick
+        when(player.getGameMode()).thenReturn(GameMode.CREATIVE);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Consumer<Entity>> nextTick = ArgumentCaptor.forClass(Consumer.class);
+        verify(player).scheduleNextTick(nextTick.capture());
+        nextTick.getValue().accept(player);
+
+        assertEquals(List.of("creative"), signalled);
+        assertEquals("creative", provider.query(player).orElse(null));
+    }
+
+}
@@ -26,8 +26,11 @@
 package me.lucko.luckperms.sponge.model;
 
 import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.util.Difference;
 import me.lucko.luckperms.sponge.LPSpongePlugin;
 import me.lucko.luckperms.sponge.service.model.permissionholder.GroupSubject;
+import net.luckperms.api.node.Node;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 public class SpongeGroup extends Group implements SpongePermissionHolder {
     private final GroupSubject spongeData;
@@ -38,8 +41,8 @@ public class SpongeGroup extends Group implements SpongePermissionHolder {
     }
 
     @Override
-    protected void invalidateCache() {
-        super.invalidateCache();
+    protected void invalidateCache(@Nullable Difference<Node> changes) {
+        super.invalidateCache(changes);
         this.spongeData.fireUpdateEvent();
     }
 
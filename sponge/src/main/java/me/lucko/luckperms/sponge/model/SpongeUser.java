@@ -26,9 +26,12 @@
 package me.lucko.luckperms.sponge.model;
 
 import me.lucko.luckperms.common.model.User;
+import me.lucko.luckperms.common.util.Difference;
 import me.lucko.luckperms.sponge.LPSpongePlugin;
 import me.lucko.luckperms.sponge.service.model.LPSubject;
 import me.lucko.luckperms.sponge.service.model.permissionholder.UserSubject;
+import net.luckperms.api.node.Node;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.util.UUID;
 
@@ -44,8 +47,8 @@ public class SpongeUser extends User implements SpongePermissionHolder {
     }
 
     @Override
-    protected void invalidateCache() {
-        super.invalidateCache();
+    protected void invalidateCache(@Nullable Difference<Node> changes) {
+        super.invalidateCache(changes);
         this.spongeData.fireUpdateEvent();
     }
 
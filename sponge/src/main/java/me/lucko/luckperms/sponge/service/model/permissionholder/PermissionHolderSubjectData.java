@@ -359,8 +359,7 @@ public class PermissionHolderSubjectData implements LPSubjectData {
     private CompletableFuture<Void> save(PermissionHolder t) {
         // if the holder is a group, invalidate caches.
         if (t.getType() == HolderType.GROUP) {
-            this.service.getPlugin().getGroupManager().invalidateAllGroupCaches();
-            this.service.getPlugin().getUserManager().invalidateAllUserCaches();
+            this.service.getPlugin().getCacheDependencyIndex().invalidateDependents(((Group) t).getName());
         }
 
         // no further action required for transient types